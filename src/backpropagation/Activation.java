@@ -0,0 +1,115 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * An activation function of the nodes of a layer, applied to the net input of each node 
+ * (the weighted sum of the inputs plus the bias). Implementations compute many values 
+ * at once, so a forward pass calls the activation once per layer.
+ *
+ * <pre>
+ * The activations of this package:
+ *
+ * 		SigmoidActivation	the default, outputs in (0, 1)
+ * 		TanhActivation		outputs in (-1, 1), zero-centered, usually converges faster than sigmoid
+ * 		ReluActivation		max(0, x) or the leaky ReLU, cheap to compute, does not saturate for x > 0
+ * 		SoftmaxActivation	for the output layer of classifications: the outputs of a data set sum up to 1, 
+ * 							trained using the cross-entropy loss
+ *
+ * For backpropagation, the derivative of an activation is computed from the output of a node, 
+ * which is available after the forward pass.
+ * 
+ * The activations of single values, <code>apply(double)</code> and <code>derivative(double)</code>,
+ * are only defined for an <code>ElementwiseActivation</code>: all of the above except softmax.
+ * </pre>
+ */
+public abstract class Activation {
+
+	/**
+	 * Computes the activations of a vector.
+	 * The arrays may be the same array.
+	 *
+	 * @param in		the net inputs of the nodes
+	 * @param out		the outputs of the nodes, at least as long as <code>in</code>
+	 */
+	public void apply(double[] in, double[] out) {
+
+		if (in != out) {
+			System.arraycopy(in, 0, out, 0, in.length);
+		}
+		apply(out, 0, in.length);
+	}
+
+	/**
+	 * Replaces a range of values in place by their activations.
+	 *
+	 * @param values		the net inputs of the nodes, replaced by their outputs
+	 * @param from			the index of the first value
+	 * @param to			the index after the last value
+	 */
+	public abstract void apply(double[] values, int from, int to);
+
+	/**
+	 * Replaces a number of vectors, stored one after another, in place by their activations.
+	 * This is the activation of a layer for a batch of data sets.
+	 *
+	 * @param values		the net inputs of the nodes, replaced by their outputs
+	 * @param offset		the index of the first value of the first vector
+	 * @param count			the number of vectors
+	 * @param length		the length of a vector, the number of nodes
+	 */
+	public void apply(double[] values, int offset, int count, int length) {
+
+		apply(values, offset, offset + count * length);
+	}
+
+	/**
+	 * @return the name of this activation, including its parameters
+	 */
+	public abstract String getName();
+
+	/**
+	 * Returns whether this activation applies to each value on its own, or to the vector of the outputs 
+	 * of a layer as a whole (like softmax), which is only possible for the output layer.
+	 *
+	 * @return true if the activation of a value depends on this value only, see <code>ElementwiseActivation</code>
+	 */
+	public boolean isElementwise() {
+
+		return false;
+	}
+
+	/**
+	 * Multiplies the errors of the nodes by the derivative of this activation: 
+	 * the backpropagation through the activation.
+	 *
+	 * @param outputs		the outputs of the nodes
+	 * @param errors		the errors of the nodes
+	 * @param from			the index of the first node
+	 * @param to			the index after the last node
+	 */
+	public abstract void multiplyDerivative(double[] outputs, double[] errors, int from, int to);
+
+	/**
+	 * @return the name of this activation
+	 */
+	@Override
+	public String toString() {
+
+		return getName();
+	}
+}
@@ -0,0 +1,117 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * Adam (adaptive moment estimation): momentum and RMSProp combined. It keeps moving averages of
+ * the gradients and of the squared gradients, corrected for their start at zero:
+ *
+ * <pre>
+ * 		m = beta1 * m + (1 - beta1) * gradient
+ * 		v = beta2 * v + (1 - beta2) * gradient^2
+ * 		parameters += learningRate * (m / (1 - beta1^t)) / (sqrt(v / (1 - beta2^t)) + epsilon)
+ * </pre>
+ *
+ * Use a small learning rate, usually 0.001.
+ */
+public class AdamOptimizer extends Optimizer {
+
+	/** the fraction of the average of the gradients kept per step */
+	private final double beta1;
+	/** the fraction of the average of the squared gradients kept per step */
+	private final double beta2;
+	/** the small value added to the root to avoid a division by zero */
+	private final double epsilon;
+	/** the moving averages of the gradients, one array per parameter array */
+	private double[][] means;
+	/** the moving averages of the squared gradients, one array per parameter array */
+	private double[][] variances;
+	/** the bias correction of the averages of the gradients in the current step: 1 - beta1^t */
+	private double correction1;
+	/** the root of the bias correction of the averages of the squared gradients in the current step */
+	private double correction2Root;
+
+	/**
+	 * Constructs an optimizer using beta1 0.9, beta2 0.999 and epsilon 1e-8.
+	 */
+	public AdamOptimizer() {
+
+		this(0.9, 0.999, 1e-8);
+	}
+
+	/**
+	 * Constructs an optimizer.
+	 *
+	 * @param beta1			the fraction of the average of the gradients kept per step, in [0, 1), usually 0.9
+	 * @param beta2			the fraction of the average of the squared gradients kept per step, in [0, 1), usually 0.999
+	 * @param epsilon		the small positive value added to the root to avoid a division by zero
+	 */
+	public AdamOptimizer(double beta1, double beta2, double epsilon) {
+
+		if (beta1 < 0 || beta1 >= 1 || beta2 < 0 || beta2 >= 1 || !(epsilon > 0)) {
+			throw new IllegalArgumentException("Invalid beta1 " + beta1 + ", beta2 " + beta2 + " or epsilon " + epsilon);
+		}
+		this.beta1 = beta1;
+		this.beta2 = beta2;
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	public void allocate(int[] parameterCounts) {
+
+		super.allocate(parameterCounts);
+		means = new double[parameterCounts.length][];
+		variances = new double[parameterCounts.length][];
+		for (int i = 0; i < parameterCounts.length; i++) {
+			means[i] = new double[parameterCounts[i]];
+			variances[i] = new double[parameterCounts[i]];
+		}
+	}
+
+	@Override
+	public String getName() {
+
+		return "Adam (beta1 " + beta1 + ", beta2 " + beta2 + ")";
+	}
+
+	@Override
+	public void nextStep() {
+
+		super.nextStep();
+		correction1 = 1 - Math.pow(beta1, getSteps());
+		correction2Root = Math.sqrt(1 - Math.pow(beta2, getSteps()));
+	}
+
+	@Override
+	public void update(int index, double[] parameters, double[] gradients, int dataSetCount, double learningRate) {
+
+		double[] mean = means[index];
+		double[] variance = variances[index];
+		double gradientScale = 1.0 / dataSetCount;
+		// the bias corrections folded into the step size and epsilon, saving two divisions per parameter
+		double stepSize = learningRate * correction2Root / correction1;
+		double scaledEpsilon = epsilon * correction2Root;
+		for (int i = 0; i < parameters.length; i++) {
+			double gradient = gradientScale * gradients[i];
+			double m = beta1 * mean[i] + (1 - beta1) * gradient;
+			double v = beta2 * variance[i] + (1 - beta2) * gradient * gradient;
+			mean[i] = m;
+			variance[i] = v;
+			parameters[i] += stepSize * m / (Math.sqrt(v) + scaledEpsilon);
+		}
+	}
+}
@@ -16,10 +16,15 @@
  */
 package backpropagation;
 
+import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.random.*;
 
 /**
  * A generalized model of a backpropagation neural network to be trained and used afterwards.
+ * The network has any number of hidden layers, followed by the output layer, see <code>Layer</code>.
  * 
  * <pre>
  * Some hints for best practices, using literature:
@@ -36,14 +41,16 @@ import java.util.*;
  * 			(the model does not "realize" the principle)
  * 		* not enough neurons: the model is to small to learn "all data"
  * 		* sometimes it makes sense to start with a higher 
- * 			learning rate and reduce it after a while of training
+ * 			learning rate and reduce it after a while of training, or use an 
+ * 			adaptive optimizer (see <code>setOptimizer()</code>, e.g. Adam)
  * 		* learning rates are usually in the range of 0.01 to 0.9
  * 		* high learning rates may miss an optimum or oscillate over it
  * 		* low learning rates may increase computation time a lot, 
  * 			especially in "flat" areas of optimization and/or get stuck in local 
  * 			minima
  * 		* the weights (and biases) are initialized in a random way within this model,
- * 			to avoid some initialization traps (the model uses "symmetry breaking")
+ * 			to avoid some initialization traps (the model uses "symmetry breaking"),
+ * 			larger networks learn faster with scaled initial weights (see <code>Initializer</code>)
  * 
  * References, algorithms and literature: 
  * 
@@ -58,39 +65,35 @@ public class BackpropNeuralNetwork {
 	public static final String VERSION = "1.0.1";
 	/** the default learning rate */
 	public static final float DEFAULT_LEARNING_RATE = 0.05f;
+	/** the number of data sets of a batch inference computed together, reusing each tile of weights */
+	private static final int INFERENCE_BLOCK_SIZE = 64;
+	/** the kernels of the computations */
+	private static final Kernels KERNELS = Kernels.get();
 
 	/** the number of inputs */
     private int inputNodeCount;
-	/** the number of hidden nodes */
-    private int hiddenNodeCount;
-	/** the number of outputs */
-    private int outputNodeCount;
-	/** the weights between input and hidden nodes */
-    private double[][] weightsIH;
-	/** the weights hidden input and output nodes */
-    private double[][] weightsHO;
-	/** the outputs of the hidden nodes */
-    private double[] hiddenNodeOutputs;
-	/** the output nodes */
-    private double[] outputs;
-	/** the bias of the hidden nodes */
-    private double[] biasH;
-	/** the bias of the output nodes */
-    private double[] biasO;
-	/** the errors of the outputs in a training step, used for backpropagation */
-    private double[] outputErrors;
-	/** the errors of the hidden nodes in a training step, used for backpropagation */
-	private double[] hiddenErrors;
-	/** training data inputs: N data sets with M inputs each */
-	private double[][] inputTrainVectors;
-	/** training data expected outputs: N data sets with M outputs each */
-	private double[][] outputTrainVectors;
+	/** the layers: the hidden layers and the output layer */
+    private Layer[] layers;
+	/** the buffers of forwardPass(double[]) and train(), shared by all of their callers */
+    private InferenceContext context;
+	/** the training data: N data sets with M inputs and K expected outputs each */
+	private TrainingData trainingData;
 	/** the learning rate */
     private double learningRate;
 	/** a <code>Random</code> for "symmetry breaking" */
     private Random random;
-	/** the error of the last training */
+	/** the loss of the last training step */
     private double error;
+	/** the buffers of the mini-batch training, allocated on first use */
+	private MiniBatch miniBatch;
+	/** the number of changes of the weights, biases or activations, see <code>InferenceCache</code> */
+	private long modificationCount;
+	/** the optimizer updating the weights and biases */
+	private Optimizer optimizer;
+	/** the gradients of the weights of each layer in a training step, only used by optimizers other than SGD */
+	private WeightMatrix[] gradients;
+	/** the metrics of the training */
+	private final TrainingMetrics metrics = new TrainingMetrics();
 
 	/**
 	 * Constructs an empty default model, a setup may be needed afterwards.
@@ -121,99 +124,513 @@ public class BackpropNeuralNetwork {
     public BackpropNeuralNetwork(int inputNodeCount, int hiddenNodeCount, int outputNodeCount, 
     		double learningRate, Random random) {
     	
-        this.inputNodeCount = inputNodeCount;
-        this.hiddenNodeCount = hiddenNodeCount;
-        this.outputNodeCount = outputNodeCount;
-        this.learningRate = learningRate;
-        if (random == null) {
-        	random = new Random(42);
-		}
-        this.random = random;
-        // allocate memory for all variables
-        weightsIH = new double[inputNodeCount][hiddenNodeCount];
-        weightsHO = new double[hiddenNodeCount][outputNodeCount];
-        hiddenNodeOutputs = new double[hiddenNodeCount];
-        outputs = new double[outputNodeCount];
-        biasH = new double[hiddenNodeCount];
-        biasO = new double[outputNodeCount];
-        outputErrors = new double[outputNodeCount];
-        hiddenErrors = new double[hiddenNodeCount];
-        // randomly initialize weights and biases: using "symmetry breaking"
-        for (int i = 0; i < inputNodeCount; i++) {
-            for (int j = 0; j < hiddenNodeCount; j++) {
-                weightsIH[i][j] = nextRandom();
-            }
-        }
-        for (int i = 0; i < hiddenNodeCount; i++) {
-            for (int j = 0; j < outputNodeCount; j++) {
-                weightsHO[i][j] = nextRandom();
-            }
-            biasH[i] = nextRandom();
-        }
-        for (int i = 0; i < outputNodeCount; i++) {
-            biasO[i] = nextRandom();
-        }
+    	this(new int[] { inputNodeCount, hiddenNodeCount, outputNodeCount }, learningRate, random);
     }
+
+	/**
+	 * Constructs an empty model with any number of hidden layers, a setup may be needed afterwards.
+	 * The model uses the default learning rate and weights/biases initialized using random numbers<br>
+	 * in the ranges [0.1 .. 0.5], for instance
+	 * 
+	 * <pre>
+	 * 		new BackpropNeuralNetwork(784, 128, 64, 10);		// 784 inputs, two hidden layers, 10 outputs
+	 * </pre>
+	 * 
+	 * @param layerNodeCounts		the number of inputs, the number of nodes of each hidden layer
+	 * 								and the number of outputs
+	 */
+	public BackpropNeuralNetwork(int... layerNodeCounts) {
+		
+		this(layerNodeCounts, DEFAULT_LEARNING_RATE, null);
+	}
+
+	/**
+	 * Constructs an empty model with any number of hidden layers, a setup may be needed afterwards.
+	 * The weights/biases are initialized using random numbers in the ranges [0.1 .. 0.5].  
+	 * 
+	 * @param layerNodeCounts		the number of inputs, the number of nodes of each hidden layer
+	 * 								and the number of outputs
+	 * @param learningRate			the learning rate, usually in the range of 0.01 to 0.9
+	 * @param random				a <code>Random</code>, may be <code>null</code> for a default <code>Random</code>
+	 */
+	public BackpropNeuralNetwork(int[] layerNodeCounts, double learningRate, Random random) {
+		
+		this(layerNodeCounts, learningRate);
+		if (random != null) {
+			this.random = random;
+		}
+		// randomly initialize weights and biases: using "symmetry breaking"
+		WeightMatrix weights = layers[0].getWeights();
+		for (int i = 0; i < inputNodeCount; i++) {
+			for (int j = 0; j < weights.getRows(); j++) {
+				weights.set(j, i, nextRandom());
+			}
+		}
+		// the weights into each layer, node by node of the previous layer, followed by its bias
+		for (int l = 1; l < layers.length; l++) {
+			weights = layers[l].getWeights();
+			double[] previousBias = layers[l - 1].getBias();
+			for (int i = 0; i < weights.getColumns(); i++) {
+				for (int j = 0; j < weights.getRows(); j++) {
+					weights.set(j, i, nextRandom());
+				}
+				previousBias[i] = nextRandom();
+			}
+		}
+		double[] outputBias = layers[layers.length - 1].getBias();
+		for (int i = 0; i < outputBias.length; i++) {
+			outputBias[i] = nextRandom();
+		}
+	}
+
+	/**
+	 * Constructs an empty model with any number of hidden layers, a setup may be needed afterwards.
+	 * The weights/biases are initialized by an initializer using random numbers derived from a seed, 
+	 * so the same seed always gives the same model, see <code>initialize()</code>. The seed also 
+	 * determines the order of the data sets of <code>trainRandom()</code> and <code>trainMiniBatch()</code>
+	 * without a random number generator.
+	 * 
+	 * @param layerNodeCounts		the number of inputs, the number of nodes of each hidden layer
+	 * 								and the number of outputs
+	 * @param learningRate			the learning rate, usually in the range of 0.01 to 0.9
+	 * @param initializer			the initializer of the weights and biases, e.g. <code>XavierInitializer</code>
+	 * @param seed					the seed of the random numbers
+	 */
+	public BackpropNeuralNetwork(int[] layerNodeCounts, double learningRate, Initializer initializer, long seed) {
+		
+		this(layerNodeCounts, learningRate);
+		SplittableRandom generator = new SplittableRandom(seed);
+		random = new Random(generator.nextLong());
+		initialize(initializer, generator);
+	}
 	
+	/**
+	 * Constructs a model with all weights and biases set to zero, to be set afterwards 
+	 * (like loading a model, see <code>ModelFile</code>).
+	 * 
+	 * @param layerNodeCounts		the number of inputs, the number of nodes of each hidden layer
+	 * 								and the number of outputs
+	 * @param learningRate			the learning rate
+	 */
+	BackpropNeuralNetwork(int[] layerNodeCounts, double learningRate) {
+		
+		if (layerNodeCounts.length < 2) {
+			throw new IllegalArgumentException("At least the number of inputs and outputs are needed: " 
+					+ Arrays.toString(layerNodeCounts));
+		}
+		this.inputNodeCount = layerNodeCounts[0];
+		this.learningRate = learningRate;
+		random = new Random(42);
+		// allocate memory for all variables
+		layers = new Layer[layerNodeCounts.length - 1];
+		for (int i = 0; i < layers.length; i++) {
+			layers[i] = new Layer(layerNodeCounts[i], layerNodeCounts[i + 1]);
+		}
+		context = createInferenceContext();
+		setOptimizer(new SgdOptimizer());
+	}
+	
+	/**
+	 * Adds a data set of the training data to a mini-batch.
+	 * 
+	 * @param batch				the mini-batch
+	 * @param dataSetIndex		the index of the data set within the training data
+	 */
+	void addDataSet(MiniBatch batch, int dataSetIndex) {
+		
+		batch.add(trainingData, dataSetIndex);
+	}
+
+	/**
+	 * Updates the weights and biases using the gradients accumulated in a mini-batch,
+	 * the optimizer and the current learning rate. The gradients are averaged over the data sets, 
+	 * so the learning rate keeps its meaning for any batch size.
+	 * 
+	 * @param batch				the mini-batch holding the accumulated gradients
+	 * @param dataSetCount		the number of data sets the gradients were accumulated for
+	 */
+	void applyGradients(MiniBatch batch, int dataSetCount) {
+		
+		boolean measure = metrics.isEnabled();
+		long start = measure ? System.nanoTime() : 0;
+		modificationCount++;
+		optimizer.nextStep();
+		for (int l = 0; l < layers.length; l++) {
+			optimizer.update(2 * l, layers[l].getWeights().getValues(), batch.gradients[l].getValues(), 
+					dataSetCount, learningRate);
+			optimizer.update(2 * l + 1, layers[l].getBias(), batch.biasGradients[l], dataSetCount, learningRate);
+		}
+		error = batch.loss / dataSetCount;
+		if (measure) {
+			long updateTime = System.nanoTime() - start;
+			double sum = 0;
+			for (int l = 0; l < layers.length; l++) {
+				sum += sumOfSquares(batch.gradients[l].getValues()) + sumOfSquares(batch.biasGradients[l]);
+			}
+			metrics.record(dataSetCount, batch.loss, batch.forwardNanos, batch.backwardNanos, updateTime, 
+					Math.sqrt(sum) / dataSetCount, getTrainingDataSetCount());
+		}
+	}
+
+	/**
+	 * Updates the weights and biases using the optimizer and the errors of a training step of one data set.
+	 * 
+	 * @param inputs			the array of the input vector
+	 * @param inputOffset		the index of the first input within <code>inputs</code>
+	 * @param sparseInputs		the sparse input vector instead of <code>inputs</code>, or null
+	 * @param context			the buffers with the outputs and errors of the nodes of each layer
+	 */
+	private void applyGradients(double[] inputs, int inputOffset, SparseVector sparseInputs, 
+			InferenceContext context) {
+		
+		double[][] layerOutputs = context.layerOutputs;
+		double[][] layerErrors = context.layerErrors;
+		optimizer.nextStep();
+		for (int l = 0; l < layers.length; l++) {
+			gradients[l].clear();
+			if (l == 0 && sparseInputs != null) {
+				gradients[l].addOuterProduct(1, layerErrors[l], sparseInputs);
+			} else if (l == 0) {
+				gradients[l].addOuterProduct(1, layerErrors[l], inputs, inputOffset);
+			} else {
+				gradients[l].addOuterProduct(1, layerErrors[l], layerOutputs[l - 1]);
+			}
+			optimizer.update(2 * l, layers[l].getWeights().getValues(), gradients[l].getValues(), 1, learningRate);
+			optimizer.update(2 * l + 1, layers[l].getBias(), layerErrors[l], 1, learningRate);
+		}
+	}
+
+	/**
+	 * Returns the buffers of a context for the outputs of each layer for a block of a batch inference,
+	 * allocated on first use.
+	 * 
+	 * @param context		the context of the calling thread
+	 * @return the buffers, one per layer
+	 */
+	private double[][] blockLayerOutputs(InferenceContext context) {
+		
+		if (context.blockLayerOutputs == null) {
+			double[][] blockOutputs = new double[layers.length][];
+			for (int l = 0; l < layers.length; l++) {
+				blockOutputs[l] = new double[INFERENCE_BLOCK_SIZE * layers[l].getNodeCount()];
+			}
+			context.blockLayerOutputs = blockOutputs;
+		}
+		return context.blockLayerOutputs;
+	}
+
+	/**
+	 * Computes the forward and backward passes for all data sets of a mini-batch
+	 * and accumulates the gradients of the batch, without changing the weights.
+	 * The weights are read only, so this may run concurrently on different batches.
+	 * 
+	 * @param batch				the mini-batch
+	 */
+	void computeGradients(MiniBatch batch) {
+		
+		boolean measure = metrics.isEnabled();
+		long start = measure ? System.nanoTime() : 0;
+		int count = batch.size;
+		int last = layers.length - 1;
+		// forward pass of the whole batch: matrix-matrix products
+		for (int l = 0; l < layers.length; l++) {
+			layers[l].forwardBatch(l == 0 ? batch.inputs : batch.outputs[l - 1], 0, count, batch.outputs[l], 0);
+		}
+		long forwardEnd = measure ? System.nanoTime() : 0;
+		double[] outputs = batch.outputs[last];
+		double[] desiredOutputs = batch.desiredOutputs;
+		double[] outputErrors = batch.errors[last];
+		int outputCount = count * layers[last].getNodeCount();
+		batch.loss = loss(outputs, desiredOutputs, 0, outputCount);
+		for (int i = 0; i < outputCount; i++) {
+			outputErrors[i] = desiredOutputs[i] - outputs[i];
+		}
+		layers[last].getActivation().multiplyDerivative(outputs, outputErrors, 0, outputCount);
+		// backpropagate the errors layer by layer down to the first hidden layer
+		for (int l = last; l > 0; l--) {
+			double[] errors = batch.errors[l - 1];
+			layers[l].getWeights().multiplyTransposedBatch(batch.errors[l], count, errors);
+			layers[l - 1].getActivation().multiplyDerivative(batch.outputs[l - 1], errors, 0, 
+					count * layers[l - 1].getNodeCount());
+		}
+		// accumulate the gradients of the batch
+		for (int l = 0; l < layers.length; l++) {
+			batch.gradients[l].clear();
+			batch.gradients[l].addOuterProducts(1, batch.errors[l], l == 0 ? batch.inputs : batch.outputs[l - 1], count);
+			sumVectors(batch.errors[l], count, batch.biasGradients[l]);
+		}
+		batch.forwardNanos = measure ? forwardEnd - start : 0;
+		batch.backwardNanos = measure ? System.nanoTime() - forwardEnd : 0;
+	}
+
+	/**
+	 * Creates a context for <code>forwardPass(double[], InferenceContext)</code>: the buffers
+	 * for the outputs of all nodes. Each thread doing inference needs its own context,
+	 * which may be reused for any number of calls.
+	 * 
+	 * @return a new context for this network
+	 */
+	public InferenceContext createInferenceContext() {
+		
+		return new InferenceContext(layers);
+	}
+
+	/**
+	 * Creates empty mini-batch buffers matching the layers of this network.
+	 * 
+	 * @param capacity			the maximum number of data sets of the batch
+	 * @return the mini-batch buffers
+	 */
+	MiniBatch createMiniBatch(int capacity) {
+		
+		return new MiniBatch(layers, capacity);
+	}
+
+	/**
+	 * Returns the array of a data set of the training data: the heap array of the training data, 
+	 * or a buffer holding a copy of an off-heap data set (the inputs followed by the outputs).
+	 * 
+	 * @param dataSetIndex			the index of the data set
+	 * @param context				the buffers of the calling thread
+	 * @return the training data array or the buffer
+	 */
+	private double[] dataSetValues(int dataSetIndex, InferenceContext context) {
+		
+		double[] values = trainingData.getArray();
+		if (values != null) {
+			return values;
+		}
+		// off-heap: copy the data set to the heap, the kernels compute on arrays
+		if (context.dataSetBuffer == null || context.dataSetBuffer.length != trainingData.getStride()) {
+			context.dataSetBuffer = new double[trainingData.getStride()];
+		}
+		trainingData.copyInputs(dataSetIndex, context.dataSetBuffer, 0);
+		trainingData.copyOutputs(dataSetIndex, context.dataSetBuffer, inputNodeCount);
+		return context.dataSetBuffer;
+	}
+
 	/**
 	 * Create the input and output vectors for training for a training data set.
+	 * The vectors are copied into one flat buffer, see <code>TrainingData</code>; 
+	 * use <code>setTrainingData()</code> to train large data without copying.
 	 * 
 	 * @param trainingData		the training data: input vector 0, desired output vector 0, 
 	 * 							input vector 1, desired output vector 1, and so on
 	 */
 	public void createInOutVectors(double trainingData[][]) {
 		
-		int inputLength = trainingData[0].length;
-		int outputLength = trainingData[1].length;
-		int dataSetCount = trainingData.length / 2;
-		inputTrainVectors = new double[dataSetCount][inputLength];
-		outputTrainVectors = new double[dataSetCount][outputLength];
-		for (int i = 0; i < dataSetCount; i++) {
-			double[] inputVec = trainingData[i * 2];
-			double[] vector = inputTrainVectors[i];
-			for (int j = 0; j < inputVec.length; j++) {
-				vector[j] = inputVec[j];
-			}
-			double[] outputVec = trainingData[i * 2 + 1];
-			vector = outputTrainVectors[i];
-			for (int j = 0; j < outputVec.length; j++) {
-				vector[j] = outputVec[j];
-			}
-		}
+		setTrainingData(TrainingData.of(trainingData));
 	}
 
     /**
      * Compute the outputs (output vector) for an input vector.
-     * Usually the neural network has been trained before.
+     * Usually the neural network has been trained before.<br>
+     * The returned array is a buffer of this network, it is overwritten by the next call
+     * of this method or <code>train()</code>. Use <code>forwardPass(double[], InferenceContext)</code>
+     * for concurrent inference.
      * 
      * @param inputs		the inputs (input vector)
      * @return the ouputs
      */
     public double[] forwardPass(double[] inputs) {
     	
-        // calculate the output of the hidden layer
-        for (int i = 0; i < hiddenNodeCount; i++) {
-            double activation = 0;
-            for (int j = 0; j < inputNodeCount; j++) {
-                activation += inputs[j] * weightsIH[j][i];
-            }
-            activation += biasH[i];
-            hiddenNodeOutputs[i] = Sigmoid.sigmoid(activation);
-        }
-        // calculate the output of the output layer
-        for (int i = 0; i < outputNodeCount; i++) {
-            double activation = 0;
-            for (int j = 0; j < hiddenNodeCount; j++) {
-                activation += hiddenNodeOutputs[j] * weightsHO[j][i];
-            }
-            activation += biasO[i];
-            outputs[i] = Sigmoid.sigmoid(activation);
-        }
-        return outputs;
+    	return forwardPass(inputs, context);
+    }
+
+    /**
+     * Compute the outputs (output vector) for an input vector, using the buffers of a context 
+     * owned by the caller. Nothing is allocated, and the weights are only read, 
+     * so any number of threads may do inference on the same network at the same time, 
+     * each one using its own context - as long as the network is not trained concurrently.
+     * 
+     * @param inputs		the inputs (input vector)
+     * @param context		the context of the calling thread, see <code>createInferenceContext()</code>
+     * @return the ouputs, the output buffer of the context
+     */
+    public double[] forwardPass(double[] inputs, InferenceContext context) {
+    	
+    	return forwardPass(inputs, 0, context);
+    }
+
+    /**
+     * Compute the outputs (output vector) for an input vector at an offset of an array.
+     * 
+     * @param inputs			the array of the input vector
+     * @param inputOffset		the index of the first input within <code>inputs</code>
+     * @param context			the context of the calling thread
+     * @return the ouputs, the output buffer of the context
+     */
+    private double[] forwardPass(double[] inputs, int inputOffset, InferenceContext context) {
+    	
+    	double[][] layerOutputs = context.layerOutputs;
+        // calculate the output of each layer from the output of the previous one
+    	layers[0].forward(inputs, inputOffset, layerOutputs[0]);
+    	for (int l = 1; l < layers.length; l++) {
+    		layers[l].forward(layerOutputs[l - 1], layerOutputs[l]);
+		}
+        return layerOutputs[layers.length - 1];
+    }
+
+    /**
+     * Compute the outputs (output vector) for a sparse input vector: the first layer only reads 
+     * the weights of the non-zero inputs.
+     * 
+     * @param inputs		the inputs (input vector)
+     * @return the ouputs, an internal buffer reused by the next call
+     */
+    public double[] forwardPass(SparseVector inputs) {
+    	
+    	return forwardPass(inputs, context);
+    }
+
+    /**
+     * Compute the outputs (output vector) for a sparse input vector, using the buffers of a context 
+     * owned by the caller, see <code>forwardPass(double[], InferenceContext)</code>.
+     * 
+     * @param inputs		the inputs (input vector)
+     * @param context		the context of the calling thread, see <code>createInferenceContext()</code>
+     * @return the ouputs, the output buffer of the context
+     */
+    public double[] forwardPass(SparseVector inputs, InferenceContext context) {
+    	
+    	if (inputs.getDimension() != inputNodeCount) {
+			throw new IllegalArgumentException("The dimension " + inputs.getDimension() 
+					+ " of the sparse vector differs from the number of inputs " + inputNodeCount);
+		}
+    	double[][] layerOutputs = context.layerOutputs;
+    	layers[0].forward(inputs, layerOutputs[0]);
+    	for (int l = 1; l < layers.length; l++) {
+    		layers[l].forward(layerOutputs[l - 1], layerOutputs[l]);
+		}
+        return layerOutputs[layers.length - 1];
     }
 
 	/**
-	 * @return the error of the last training 
+	 * Compute the output vectors for a number of input vectors, stored one after another 
+	 * in flat arrays. The input vectors are processed in blocks, so each tile of weights is 
+	 * reused for all vectors of a block while it is in the cache. Nothing is allocated 
+	 * after the first call using a context, and the weights are only read (see 
+	 * <code>forwardPass(double[], InferenceContext)</code> for concurrent use).
+	 * 
+	 * @param inputs		<code>count</code> input vectors, one after another
+	 * @param outputs		the <code>count</code> output vectors, one after another
+	 * @param count			the number of vectors
+	 * @param context		the context of the calling thread, see <code>createInferenceContext()</code>
+	 */
+	public void forwardPassBatch(double[] inputs, double[] outputs, int count, InferenceContext context) {
+		
+		forwardPassBatch(inputs, outputs, 0, count, context);
+	}
+
+	/**
+	 * Compute the output vectors for a number of input vectors, stored one after another 
+	 * in flat arrays, using several threads. The vectors are split into at most one range per 
+	 * context, each range is computed like <code>forwardPassBatch(double[], double[], int, 
+	 * InferenceContext)</code> using its own context. The contexts are reused by each call, 
+	 * so only the tasks of the ranges are allocated per call.
+	 * 
+	 * @param inputs		<code>count</code> input vectors, one after another
+	 * @param outputs		the <code>count</code> output vectors, one after another
+	 * @param count			the number of vectors
+	 * @param pool			the pool of threads
+	 * @param contexts		the contexts of the ranges, usually one per thread of the pool, 
+	 * 						not used by other threads during the call
+	 */
+	public void forwardPassBatch(double[] inputs, double[] outputs, int count, ForkJoinPool pool, 
+			InferenceContext[] contexts) {
+		
+		int parts = Math.max(1, Math.min(contexts.length, count / INFERENCE_BLOCK_SIZE));
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[parts];
+		for (int i = 0; i < parts; i++) {
+			int from = (int) ((long) i * count / parts);
+			int to = (int) ((long) (i + 1) * count / parts);
+			InferenceContext context = contexts[i];
+			tasks[i] = ForkJoinTask.adapt(() -> forwardPassBatch(inputs, outputs, from, to - from, context));
+		}
+		pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+	}
+
+	/**
+	 * Compute the output vectors for a range of input vectors, stored one after another in flat arrays.
+	 * 
+	 * @param inputs		the input vectors, one after another
+	 * @param outputs		the output vectors, one after another
+	 * @param from			the index of the first vector
+	 * @param count			the number of vectors
+	 * @param context		the context of the calling thread
+	 */
+	private void forwardPassBatch(double[] inputs, double[] outputs, int from, int count, InferenceContext context) {
+		
+		double[][] blockOutputs = blockLayerOutputs(context);
+		int last = layers.length - 1;
+		int outputNodeCount = layers[last].getNodeCount();
+		for (int blockStart = from; blockStart < from + count; blockStart += INFERENCE_BLOCK_SIZE) {
+			int blockSize = Math.min(INFERENCE_BLOCK_SIZE, from + count - blockStart);
+			// calculate the output of the hidden layers
+			for (int l = 0; l < last; l++) {
+				if (l == 0) {
+					layers[l].forwardBatch(inputs, blockStart * inputNodeCount, blockSize, blockOutputs[l], 0);
+				} else {
+					layers[l].forwardBatch(blockOutputs[l - 1], 0, blockSize, blockOutputs[l], 0);
+				}
+			}
+			// calculate the output of the output layer, directly into the output vectors
+			if (last == 0) {
+				layers[last].forwardBatch(inputs, blockStart * inputNodeCount, blockSize, 
+						outputs, blockStart * outputNodeCount);
+			} else {
+				layers[last].forwardBatch(blockOutputs[last - 1], 0, blockSize, 
+						outputs, blockStart * outputNodeCount);
+			}
+		}
+	}
+
+	/**
+	 * Compute the output vectors for a number of input vectors, like 
+	 * <code>forwardPassBatch(double[], double[], int, InferenceContext)</code>.
+	 * The vectors are copied block by block into buffers of the context.
+	 * 
+	 * @param inputVectors		the input vectors
+	 * @param outputVectors		the output vectors, the same number as input vectors
+	 * @param context			the context of the calling thread, see <code>createInferenceContext()</code>
+	 */
+	public void forwardPassBatch(double[][] inputVectors, double[][] outputVectors, InferenceContext context) {
+		
+		int outputNodeCount = getOutputNodeCount();
+		if (context.blockInputs == null) {
+			context.blockInputs = new double[INFERENCE_BLOCK_SIZE * inputNodeCount];
+		}
+		// the block buffer of the output layer is not used by the flat batch inference
+		double[] blockOutputs = blockLayerOutputs(context)[layers.length - 1];
+		for (int blockStart = 0; blockStart < inputVectors.length; blockStart += INFERENCE_BLOCK_SIZE) {
+			int blockSize = Math.min(INFERENCE_BLOCK_SIZE, inputVectors.length - blockStart);
+			for (int i = 0; i < blockSize; i++) {
+				System.arraycopy(inputVectors[blockStart + i], 0, context.blockInputs, i * inputNodeCount, inputNodeCount);
+			}
+			forwardPassBatch(context.blockInputs, blockOutputs, 0, blockSize, context);
+			for (int i = 0; i < blockSize; i++) {
+				System.arraycopy(blockOutputs, i * outputNodeCount, outputVectors[blockStart + i], 0, outputNodeCount);
+			}
+		}
+	}
+
+	/**
+	 * Returns the activation function of the nodes of a layer.
+	 * 
+	 * @param layerIndex		the index of the layer, the first hidden layer is 0
+	 * @return the activation
+	 */
+	public Activation getActivation(int layerIndex) {
+		
+		return layers[layerIndex].getActivation();
+	}
+
+	/**
+	 * Returns the loss of the last training step (the mean loss of its data sets for a mini-batch):
+	 * the mean squared error of the outputs, or the cross-entropy of a softmax output layer.
+	 * See <code>getMetrics()</code> for the loss of an epoch.
+	 * 
+	 * @return the loss of the last training step
 	 */
 	public double getError() {
 		
@@ -221,11 +638,38 @@ public class BackpropNeuralNetwork {
 	}
 	
 	/**
-	 * @return the errors of the hidden nodes of the last training 
+	 * @return the errors of the nodes of the first hidden layer of the last training 
 	 */
 	public double[] getHiddenErrors() {
 		
-		return hiddenErrors;
+		return context.layerErrors[0];
+	}
+
+	/**
+	 * @return the number of inputs
+	 */
+	public int getInputNodeCount() {
+		
+		return inputNodeCount;
+	}
+
+	/**
+	 * Returns a layer of this network: the hidden layers, followed by the output layer.
+	 * 
+	 * @param index			the index of the layer, 0 for the first hidden layer
+	 * @return the layer
+	 */
+	public Layer getLayer(int index) {
+		
+		return layers[index];
+	}
+
+	/**
+	 * @return the number of layers: the hidden layers and the output layer
+	 */
+	public int getLayerCount() {
+		
+		return layers.length;
 	}
 
 	/**
@@ -233,7 +677,31 @@ public class BackpropNeuralNetwork {
 	 */
     public double[] getOutputErrors() {
     	
-		return outputErrors;
+		return context.layerErrors[layers.length - 1];
+	}
+
+	/**
+	 * @return the number of outputs
+	 */
+	public int getOutputNodeCount() {
+		
+		return layers[layers.length - 1].getNodeCount();
+	}
+
+	/**
+	 * @return the training data, set by createInOutVectors() or setTrainingData(), or null
+	 */
+	public TrainingData getTrainingData() {
+		
+		return trainingData;
+	}
+
+	/**
+	 * @return the number of training data sets, set by createInOutVectors() or setTrainingData()
+	 */
+	public int getTrainingDataSetCount() {
+		
+		return trainingData == null ? 0 : trainingData.getDataSetCount();
 	}
 
 	/**
@@ -244,6 +712,82 @@ public class BackpropNeuralNetwork {
 		return learningRate;
 	}
 
+	/**
+	 * Returns the metrics of the training: the loss per epoch, the data sets per second, the time of the 
+	 * forward passes, backward passes and updates, and the gradient norms. The metrics are disabled by default,
+	 * see <code>TrainingMetrics.setEnabled()</code>.
+	 * 
+	 * @return the metrics of the training
+	 */
+	public TrainingMetrics getMetrics() {
+		
+		return metrics;
+	}
+
+	/**
+	 * Returns the number of changes of this network: each training step (or mini-batch), each change 
+	 * of an activation and each call of <code>weightsChanged()</code> increments the count.
+	 * A cache of the outputs is valid as long as the count does not change, see <code>InferenceCache</code>.
+	 * 
+	 * @return the number of changes
+	 */
+	public long getModificationCount() {
+		
+		return modificationCount;
+	}
+
+	/**
+	 * @return the optimizer updating the weights and biases
+	 */
+	public Optimizer getOptimizer() {
+		
+		return optimizer;
+	}
+
+	/**
+	 * @return the random number generator of this network: the default order of the training
+	 */
+	Random getRandom() {
+		
+		return random;
+	}
+
+	/**
+	 * Loads a model saved by <code>save()</code>, see <code>ModelFile</code>.
+	 * The model is ready for inference and further training, the training data is not part of the model.
+	 * 
+	 * @param path					the file
+	 * @return the network
+	 * @throws IOException			if the file cannot be read or is not a model file
+	 */
+	public static BackpropNeuralNetwork load(Path path) throws IOException {
+		
+		return ModelFile.read(path);
+	}
+
+	/**
+	 * Initializes the weights and biases of all layers, e.g. to train the network again from the start.
+	 * Each layer is initialized with its own stream of random numbers split from the generator, 
+	 * in the order of the layers, so the result only depends on the state of the generator:
+	 * 
+	 * <pre>
+	 * 		neuralNetwork.initialize(new HeInitializer(), new SplittableRandom(42));
+	 * </pre>
+	 * 
+	 * The state of the optimizer is reset.
+	 * 
+	 * @param initializer			the initializer of the weights and biases
+	 * @param generator				the generator the streams of the layers are split from
+	 */
+	public void initialize(Initializer initializer, RandomGenerator.SplittableGenerator generator) {
+		
+		for (Layer layer : layers) {
+			initializer.initialize(layer, generator.split());
+		}
+		setOptimizer(optimizer);
+		modificationCount++;
+	}
+
     /**
      * @return the next random number to initialize weights and biases
      */
@@ -252,6 +796,128 @@ public class BackpropNeuralNetwork {
 		return random.nextDouble(0.1, 0.5);
     }
 
+	/**
+	 * Returns the loss of a data set of the training data, without training: the mean squared error 
+	 * of the outputs, or the cross-entropy for a softmax output layer.
+	 * 
+	 * @param dataSetIndex			the index of the data set
+	 * @return the loss
+	 */
+	double loss(int dataSetIndex) {
+		
+		double[] values = dataSetValues(dataSetIndex, context);
+		int inputOffset = values == context.dataSetBuffer ? 0 : trainingData.inputOffset(dataSetIndex);
+		int outputOffset = values == context.dataSetBuffer ? inputNodeCount : trainingData.outputOffset(dataSetIndex);
+		forwardPass(values, inputOffset, context);
+		return loss(context.getOutputs(), values, outputOffset, getOutputNodeCount());
+	}
+
+	/**
+	 * Returns the sum of the losses of a number of output vectors: the mean squared error of each vector,
+	 * or its cross-entropy for a softmax output layer.
+	 * 
+	 * @param outputs				the output vectors, one after another
+	 * @param desiredOutputs		the desired output vectors, one after another
+	 * @param desiredOffset			the index of the first desired output within <code>desiredOutputs</code>
+	 * @param length				the number of all outputs
+	 * @return the sum of the losses
+	 */
+	private double loss(double[] outputs, double[] desiredOutputs, int desiredOffset, int length) {
+		
+		double sum = 0;
+		if (layers[layers.length - 1].getActivation() instanceof SoftmaxActivation) {
+			for (int i = 0; i < length; i++) {
+				double desired = desiredOutputs[desiredOffset + i];
+				if (desired != 0) {
+					sum -= desired * Math.log(Math.max(outputs[i], Double.MIN_NORMAL));
+				}
+			}
+			return sum;
+		}
+		for (int i = 0; i < length; i++) {
+			double difference = desiredOutputs[desiredOffset + i] - outputs[i];
+			sum += difference * difference;
+		}
+		return sum / getOutputNodeCount();
+	}
+
+	/**
+	 * Returns the mini-batch buffers, (re)allocated if they are too small.
+	 * 
+	 * @param capacity			the number of data sets needed
+	 * @return the mini-batch buffers, cleared
+	 */
+	private MiniBatch miniBatch(int capacity) {
+		
+		if (miniBatch == null || miniBatch.capacity < capacity) {
+			miniBatch = createMiniBatch(capacity);
+		}
+		miniBatch.clear();
+		return miniBatch;
+	}
+
+	/**
+	 * Creates an immutable inference model with 8 bit integer weights from the current weights
+	 * of this network (post-training quantization), see <code>QuantizedNeuralNetwork</code>.
+	 * Later training of this network does not change the model.
+	 *
+	 * @return the quantized model
+	 */
+	public QuantizedNeuralNetwork quantize() {
+
+		return new QuantizedNeuralNetwork(this);
+	}
+
+	/**
+	 * Saves the model (the layer sizes, weights, biases and the learning rate) to a file, see <code>ModelFile</code>.
+	 * 
+	 * @param path					the file, replaced if it exists
+	 * @throws IOException			if the file cannot be written
+	 */
+	public void save(Path path) throws IOException {
+		
+		ModelFile.write(path, this);
+	}
+
+	/**
+	 * Sets the activation function of all nodes. The default is the sigmoid function computed 
+	 * by <code>SigmoidActivation.DEFAULT</code>, the table of former versions: 
+	 * use e.g. <code>SigmoidActivation.interpolated(4096, -16, 16)</code> for more accurate results.
+	 * 
+	 * @param activation			the activation, an elementwise one
+	 */
+	public void setActivation(Activation activation) {
+		
+		if (!activation.isElementwise()) {
+			throw new IllegalArgumentException("The activation " + activation + " is only valid for the output layer");
+		}
+		for (Layer layer : layers) {
+			layer.setActivation(activation);
+		}
+		modificationCount++;
+	}
+
+	/**
+	 * Sets the activation function of the nodes of a layer, e.g. ReLU or tanh for the hidden layers 
+	 * and softmax for the output layer of a classification. The errors of the output layer are
+	 * <code>(desired - output)</code> multiplied by the derivative of its activation: the gradient of
+	 * the squared error loss, or the gradient of the cross-entropy loss for softmax.
+	 * 
+	 * @param layerIndex			the index of the layer, the first hidden layer is 0
+	 * @param activation			the activation
+	 */
+	public void setActivation(int layerIndex, Activation activation) {
+		
+		if (layerIndex < 0 || layerIndex >= layers.length) {
+			throw new IllegalArgumentException("Invalid layer index " + layerIndex + " of " + layers.length + " layers");
+		}
+		if (!activation.isElementwise() && layerIndex != layers.length - 1) {
+			throw new IllegalArgumentException("The activation " + activation + " is only valid for the output layer");
+		}
+		layers[layerIndex].setActivation(activation);
+		modificationCount++;
+	}
+
 	/**
 	 * Set the learning rate. It may be useful for some problems to
 	 * changes the learning rate according to the error of the current training
@@ -264,6 +930,83 @@ public class BackpropNeuralNetwork {
 		this.learningRate = learningRate;
 	}
 
+	/**
+	 * Sets the optimizer updating the weights and biases in each training step, 
+	 * the default is <code>SgdOptimizer</code>. The state of the optimizer is allocated for this network 
+	 * and reset, so an optimizer must not be shared by networks. Adaptive optimizers need
+	 * a smaller learning rate, e.g.
+	 * 
+	 * <pre>
+	 * 		neuralNetwork.setOptimizer(new AdamOptimizer());
+	 * 		neuralNetwork.setLearningRate(0.001);
+	 * </pre>
+	 * 
+	 * @param optimizer				the optimizer
+	 */
+	public void setOptimizer(Optimizer optimizer) {
+		
+		int[] parameterCounts = new int[2 * layers.length];
+		for (int l = 0; l < layers.length; l++) {
+			parameterCounts[2 * l] = layers[l].getWeights().getValues().length;
+			parameterCounts[2 * l + 1] = layers[l].getNodeCount();
+		}
+		optimizer.allocate(parameterCounts);
+		this.optimizer = optimizer;
+		if (optimizer instanceof SgdOptimizer) {
+			gradients = null;
+		} else if (gradients == null) {
+			gradients = new WeightMatrix[layers.length];
+			for (int l = 0; l < layers.length; l++) {
+				gradients[l] = new WeightMatrix(layers[l].getNodeCount(), layers[l].getInputCount());
+			}
+		}
+	}
+
+	/**
+	 * Sets the training data used by <code>trainRandom()</code> and <code>trainMiniBatch()</code>,
+	 * without copying it: data sets of a heap buffer are read directly, data sets of an off-heap 
+	 * buffer are copied one by one into a buffer of this network.
+	 * 
+	 * @param trainingData			the training data, matching the inputs and outputs of this network
+	 */
+	public void setTrainingData(TrainingData trainingData) {
+		
+		if (trainingData.getInputCount() != inputNodeCount || trainingData.getOutputCount() != getOutputNodeCount()) {
+			throw new IllegalArgumentException("The training data (" + trainingData.getInputCount() + " inputs, " 
+					+ trainingData.getOutputCount() + " outputs) does not match the network (" 
+					+ inputNodeCount + " inputs, " + getOutputNodeCount() + " outputs)");
+		}
+		this.trainingData = trainingData;
+	}
+
+	/**
+	 * Returns the sum of the squares of values.
+	 * 
+	 * @param values		the values
+	 * @return the sum of the squares
+	 */
+	private static double sumOfSquares(double[] values) {
+		
+		return KERNELS.dot(values, 0, values, 0, values.length);
+	}
+
+	/**
+	 * Sums up vectors stored one after another.
+	 * 
+	 * @param vectors		<code>count</code> vectors of length <code>sum.length</code>
+	 * @param count			the number of vectors
+	 * @param sum			the sum of the vectors
+	 */
+	private static void sumVectors(double[] vectors, int count, double[] sum) {
+		
+		Arrays.fill(sum, 0);
+		for (int n = 0, start = 0; n < count; n++, start += sum.length) {
+			for (int i = 0; i < sum.length; i++) {
+				sum[i] += vectors[start + i];
+			}
+		}
+	}
+
     /**
      * Train the network one step using an input vector and the current learning rate.
      * 
@@ -272,40 +1015,154 @@ public class BackpropNeuralNetwork {
      */
     public void train(double[] inputs, double[] desiredOutputs) {
     	
+    	train(inputs, 0, desiredOutputs, 0);
+    }
+
+    /**
+     * Train the network one step using an input vector and a desired output vector at an offset of arrays.
+     * 
+     * @param inputs			the array of the input vector to train
+     * @param inputOffset		the index of the first input within <code>inputs</code>
+     * @param desiredOutputs	the array of the desired output vector
+     * @param outputOffset		the index of the first desired output within <code>desiredOutputs</code>
+     */
+    private void train(double[] inputs, int inputOffset, double[] desiredOutputs, int outputOffset) {
+    	
+    	train(inputs, inputOffset, null, desiredOutputs, outputOffset, context);
+    }
+
+    /**
+     * Train the network one step using a sparse input vector and the current learning rate.
+     * The forward pass and the update of the first layer only touch the weights of the non-zero inputs, 
+     * using the default <code>SgdOptimizer</code>. Other optimizers update all weights in each step.
+     * 
+     * @param inputs			the input vector to train
+     * @param desiredOutputs	the desired output vector
+     */
+    public void train(SparseVector inputs, double[] desiredOutputs) {
+    	
+    	train(inputs, desiredOutputs, context);
+    }
+
+    /**
+     * Train the network one step using a sparse input vector and the buffers of the calling thread.
+     * 
+     * @param inputs			the input vector to train
+     * @param desiredOutputs	the desired output vector
+     * @param context			the buffers of the calling thread
+     * @return the loss of the training step
+     */
+    double train(SparseVector inputs, double[] desiredOutputs, InferenceContext context) {
+    	
+    	if (inputs.getDimension() != inputNodeCount) {
+			throw new IllegalArgumentException("The dimension " + inputs.getDimension() 
+					+ " of the sparse vector differs from the number of inputs " + inputNodeCount);
+		}
+    	return train(null, 0, inputs, desiredOutputs, 0, context);
+    }
+
+    /**
+     * Train the network one step using a dense or a sparse input vector.
+     * The loss and the metrics are only updated for the context of this network, 
+     * the steps of other contexts run concurrently (see <code>HogwildTrainer</code>).
+     * 
+     * @param inputs			the array of the input vector to train, if <code>sparseInputs</code> is null
+     * @param inputOffset		the index of the first input within <code>inputs</code>
+     * @param sparseInputs		the sparse input vector to train, or null
+     * @param desiredOutputs	the array of the desired output vector
+     * @param outputOffset		the index of the first desired output within <code>desiredOutputs</code>
+     * @param context			the buffers with the outputs and errors of the nodes
+     * @return the loss of the training step
+     */
+    private double train(double[] inputs, int inputOffset, SparseVector sparseInputs, double[] desiredOutputs, 
+    		int outputOffset, InferenceContext context) {
+    	
+    	boolean measure = context == this.context && metrics.isEnabled();
+    	long start = measure ? System.nanoTime() : 0;
         // forward pass goes first to compute the outputs and outputs of the hidden layers
-    	forwardPass(inputs);
+    	if (sparseInputs != null) {
+    		forwardPass(sparseInputs, context);
+    	} else {
+    		forwardPass(inputs, inputOffset, context);
+    	}
+    	long forwardEnd = measure ? System.nanoTime() : 0;
+    	double[][] layerOutputs = context.layerOutputs;
+    	int last = layers.length - 1;
         // backpropagation, first compute output error(s)
-        for (int i = 0; i < outputNodeCount; i++) {
-        	double output = outputs[i];
-        	// sigmoid derivative: output * (1 - output)
-            outputErrors[i] = (desiredOutputs[i] - output) * output * (1 - output);
+    	double[] outputs = layerOutputs[last];
+    	double[][] layerErrors = context.layerErrors;
+    	double[] outputErrors = layerErrors[last];
+    	double loss = loss(outputs, desiredOutputs, outputOffset, outputs.length);
+        for (int i = 0; i < outputErrors.length; i++) {
+            outputErrors[i] = desiredOutputs[outputOffset + i] - outputs[i];
         }
-        // backpropagate the output errors to the hidden nodes
-        for (int i = 0; i < hiddenNodeCount; i++) {
-            error = 0;
-            for (int j = 0; j < outputNodeCount; j++) {
-                error += outputErrors[j] * weightsHO[i][j];
-            }
-        	// sigmoid derivative:  hiddenOutputs[i] * (1 - hiddenOutputs[i])
-            hiddenErrors[i] = error * hiddenNodeOutputs[i] * (1 - hiddenNodeOutputs[i]);
-        }
-        // update weights and biases: input nodes to hidden nodes and hidden to output nodes
-        for (int i = 0; i < inputNodeCount; i++) {
-            for (int j = 0; j < hiddenNodeCount; j++) {
-                weightsIH[i][j] += learningRate * hiddenErrors[j] * inputs[i];
-            }
+        layers[last].getActivation().multiplyDerivative(outputs, outputErrors, 0, outputErrors.length);
+        // backpropagate the errors layer by layer down to the first hidden layer
+        for (int l = last; l > 0; l--) {
+        	double[] errors = layerErrors[l - 1];
+        	layers[l].getWeights().multiplyTransposed(layerErrors[l], errors);
+        	layers[l - 1].getActivation().multiplyDerivative(layerOutputs[l - 1], errors, 0, errors.length);
+		}
+        long backwardEnd = measure ? System.nanoTime() : 0;
+        modificationCount++;
+        if (gradients != null) {
+        	applyGradients(inputs, inputOffset, sparseInputs, context);
+        } else {
+	        // update weights and biases of all layers
+	        for (int l = 0; l < layers.length; l++) {
+	        	double[] errors = layerErrors[l];
+	        	if (l == 0 && sparseInputs != null) {
+	        		layers[l].getWeights().addOuterProduct(learningRate, errors, sparseInputs);
+	        	} else if (l == 0) {
+	        		layers[l].getWeights().addOuterProduct(learningRate, errors, inputs, inputOffset);
+				} else {
+					layers[l].getWeights().addOuterProduct(learningRate, errors, layerOutputs[l - 1]);
+				}
+	        	double[] bias = layers[l].getBias();
+	        	for (int i = 0; i < bias.length; i++) {
+	        		bias[i] += learningRate * errors[i];
+				}
+			}
         }
-        for (int i = 0; i < hiddenNodeCount; i++) {
-            for (int j = 0; j < outputNodeCount; j++) {
-                weightsHO[i][j] += learningRate * outputErrors[j] * hiddenNodeOutputs[i];
-            }
-            biasH[i] += learningRate * hiddenErrors[i];
+        if (measure) {
+        	long updateTime = System.nanoTime() - backwardEnd;
+        	// the gradient of the weights of a layer is the outer product of the errors and the inputs of the layer
+        	double inputSquares = sparseInputs != null ? sparseInputs.squaredNorm() 
+        			: KERNELS.dot(inputs, inputOffset, inputs, inputOffset, inputNodeCount);
+        	double sum = 0;
+        	for (int l = 0; l < layers.length; l++) {
+        		if (l > 0) {
+        			inputSquares = sumOfSquares(layerOutputs[l - 1]);
+				}
+        		sum += sumOfSquares(layerErrors[l]) * (inputSquares + 1);
+			}
+        	metrics.record(1, loss, forwardEnd - start, backwardEnd - forwardEnd, updateTime, Math.sqrt(sum), 
+        			getTrainingDataSetCount());
         }
-        for (int i = 0; i < outputNodeCount; i++) {
-            biasO[i] += learningRate * outputErrors[i];
+        if (context == this.context) {
+        	error = loss;
         }
+        return loss;
     }
 
+	/**
+	 * Train the network one step using a mini-batch of data sets and the current learning rate:
+	 * the gradients of all data sets are accumulated and the weights are updated once,
+	 * using the average gradient of the batch.
+	 * 
+	 * @param inputVectors				the input vectors of the batch
+	 * @param desiredOutputVectors		the desired output vectors of the batch
+	 */
+	public void trainBatch(double[][] inputVectors, double[][] desiredOutputVectors) {
+		
+		MiniBatch batch = miniBatch(inputVectors.length);
+		for (int i = 0; i < inputVectors.length; i++) {
+			batch.add(inputVectors[i], desiredOutputVectors[i]);
+		}
+		computeGradients(batch);
+		applyGradients(batch, batch.size);
+	}
+
 	/**
 	 * Train the model with a number data set, using one or more steps in the direction of the given data set.
 	 * 
@@ -320,11 +1177,42 @@ public class BackpropNeuralNetwork {
 		}
 	}
 
+	/**
+	 * Train the model with a data set of the training data, using one or more steps.
+	 * 
+	 * @param dataSetIndex			the index of the data set within the training data
+	 * @param trainigSteps			the number of steps to train the model with this data set
+	 */
+	void trainDataSet(int dataSetIndex, int trainigSteps) {
+		
+		trainDataSet(dataSetIndex, trainigSteps, context);
+	}
+
+	/**
+	 * Train the model with a data set of the training data, using the buffers of the calling thread.
+	 * 
+	 * @param dataSetIndex			the index of the data set within the training data
+	 * @param trainigSteps			the number of steps to train the model with this data set
+	 * @param context				the buffers of the calling thread
+	 * @return the loss of the last training step
+	 */
+	double trainDataSet(int dataSetIndex, int trainigSteps, InferenceContext context) {
+		
+		double[] values = dataSetValues(dataSetIndex, context);
+		int inputOffset = values == context.dataSetBuffer ? 0 : trainingData.inputOffset(dataSetIndex);
+		int outputOffset = values == context.dataSetBuffer ? inputNodeCount : trainingData.outputOffset(dataSetIndex);
+		double loss = 0;
+		for (int i = 0; i < trainigSteps; i++) {
+			loss = train(values, inputOffset, null, values, outputOffset, context);
+		}
+		return loss;
+	}
+
 	/**
 	 * Train the model with a number data sets, choosing randomly different data.
 	 * This method call may be repeated. 
 	 * Callers can change the learning rate or use other training data sets 
-	 * by calling createInOutVectors() before.
+	 * by calling createInOutVectors() or setTrainingData() before.
 	 * 
 	 * @param trainings				the number of data sets to be trained, usually much more than the number of 
 	 * 								data sets - they will be repeated depending on the probability of Random		
@@ -340,9 +1228,10 @@ public class BackpropNeuralNetwork {
 	 * Train the model with a number data sets, choosing randomly different data.
 	 * This method call may be repeated. 
 	 * Callers can change the learning rate or use other training data sets 
-	 * by calling createInOutVectors() before.
+	 * by calling createInOutVectors() or setTrainingData() before.
 	 * 
-	 * @param random				a random number generator to change the order of training or null for a default
+	 * @param random				a random number generator to change the order of training or null for the
+	 * 								generator of this network
 	 * @param trainings				the number of data sets to be trained, usually much more than the number of 
 	 * 								data sets - they will be repeated depending on the probability of Random		
 	 * @param trainigStepsPerSet	the number of training steps per set: if greater than one, the model will step
@@ -350,15 +1239,61 @@ public class BackpropNeuralNetwork {
 	 */
 	public void trainRandom(Random random, int trainings, int trainigStepsPerSet) {
 		
-		random = random == null ? new Random() : random;
+		random = random == null ? this.random : random;
 		for (int i = 0; i < trainings; i++) {
-			int dataSetIndex = random.nextInt(inputTrainVectors.length);
-			double[] inputVector = inputTrainVectors[dataSetIndex];
-			double[] outputVector = outputTrainVectors[dataSetIndex];
-			trainDataSet(inputVector, outputVector, trainigStepsPerSet);
+			trainDataSet(random.nextInt(trainingData.getDataSetCount()), trainigStepsPerSet);
 		}
 	}
-}
 
+	/**
+	 * Train the model with a number of mini-batches, each built from randomly chosen data sets 
+	 * of the training data. Each batch updates the weights once, using the average gradient of 
+	 * its data sets, which amortizes the update over the batch and allows matrix-matrix products.
+	 * This method call may be repeated. 
+	 * Callers can change the learning rate or use other training data sets 
+	 * by calling createInOutVectors() or setTrainingData() before.
+	 * 
+	 * @param batchSize				the number of data sets of a batch
+	 * @param batches				the number of batches to be trained
+	 */
+	public void trainMiniBatch(int batchSize, int batches) {
+		
+		trainMiniBatch(random, batchSize, batches);
+	}
 
+	/**
+	 * Train the model with a number of mini-batches, each built from randomly chosen data sets 
+	 * of the training data. Each batch updates the weights once, using the average gradient of 
+	 * its data sets, which amortizes the update over the batch and allows matrix-matrix products.
+	 * This method call may be repeated. 
+	 * Callers can change the learning rate or use other training data sets 
+	 * by calling createInOutVectors() or setTrainingData() before.
+	 * 
+	 * @param random				a random number generator to choose the data sets or null for the generator
+	 * 								of this network
+	 * @param batchSize				the number of data sets of a batch
+	 * @param batches				the number of batches to be trained
+	 */
+	public void trainMiniBatch(Random random, int batchSize, int batches) {
+		
+		random = random == null ? this.random : random;
+		for (int i = 0; i < batches; i++) {
+			MiniBatch batch = miniBatch(batchSize);
+			for (int j = 0; j < batchSize; j++) {
+				addDataSet(batch, random.nextInt(trainingData.getDataSetCount()));
+			}
+			computeGradients(batch);
+			applyGradients(batch, batchSize);
+		}
+	}
 
+	/**
+	 * Signals a change of the weights or biases made directly in the arrays of the layers 
+	 * (see <code>Layer.getWeights()</code> and <code>Layer.getBias()</code>), so the cached outputs 
+	 * of this network are no longer used, see <code>getModificationCount()</code>.
+	 */
+	public void weightsChanged() {
+		
+		modificationCount++;
+	}
+}
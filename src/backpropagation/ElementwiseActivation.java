@@ -0,0 +1,81 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * An activation function applied to each node on its own: the output of a node depends 
+ * on its net input only, and so does the derivative. Such an activation is valid for any layer.
+ */
+public abstract class ElementwiseActivation extends Activation {
+
+	/**
+	 * Returns the activation of a value.
+	 *
+	 * @param x			the net input of a node
+	 * @return the output of the node
+	 */
+	public abstract double apply(double x);
+
+	/**
+	 * Replaces a range of values in place by their activations, <code>values[i] = apply(values[i])</code>.
+	 *
+	 * @param values		the net inputs of the nodes, replaced by their outputs
+	 * @param from			the index of the first value
+	 * @param to			the index after the last value
+	 */
+	@Override
+	public void apply(double[] values, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			values[i] = apply(values[i]);
+		}
+	}
+
+	/**
+	 * Returns the derivative of this activation at the net input of a node, computed from the output of the node.
+	 *
+	 * @param output		the output of the node
+	 * @return the derivative
+	 */
+	public abstract double derivative(double output);
+
+	/**
+	 * @return true: the activation of a value depends on this value only
+	 */
+	@Override
+	public final boolean isElementwise() {
+
+		return true;
+	}
+
+	/**
+	 * Multiplies the errors of the nodes by the derivative of this activation, 
+	 * <code>errors[i] *= derivative(outputs[i])</code>.
+	 *
+	 * @param outputs		the outputs of the nodes
+	 * @param errors		the errors of the nodes
+	 * @param from			the index of the first node
+	 * @param to			the index after the last node
+	 */
+	@Override
+	public void multiplyDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			errors[i] *= derivative(outputs[i]);
+		}
+	}
+}
@@ -0,0 +1,396 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+
+/**
+ * Epoch-based training of a <code>BackpropNeuralNetwork</code> with a validation split and early stopping.
+ *
+ * <pre>
+ * Each epoch trains every data set of the training part exactly once, in an order shuffled in place 
+ * (unlike <code>trainRandom()</code>, which chooses data sets with replacement). A fraction of the 
+ * training data of the network is held out for validation: the loss of the validation data sets 
+ * after each epoch decides when the training stops,
+ *
+ * 		TARGET_LOSS		the loss reaches the target loss
+ * 		PLATEAU			the loss did not improve by more than minDelta for patience epochs
+ * 		DIVERGED		the loss is not a number or infinite
+ * 		MAX_EPOCHS		the maximum number of epochs is trained
+ *
+ * The weights and biases of the best epoch (the lowest loss) are copied, and restored at the end of 
+ * a training if a later epoch is worse. Without a validation split the loss is the training loss of an epoch. 
+ * If the metrics of the network are enabled, each epoch of this trainer is an epoch of the metrics.
+ *
+ * Usage:
+ *
+ * 		EpochTrainer trainer = new EpochTrainer(neuralNetwork, 0.2);		// 20% of the data sets for validation
+ * 		trainer.setTargetLoss(0.001);
+ * 		trainer.setPatience(20);
+ * 		trainer.train(new Random(42), 1000);
+ * 		System.out.println(trainer.getStopReason() + " after " + trainer.getEpoch() + " epochs");
+ * </pre>
+ */
+public class EpochTrainer {
+
+	/** the reasons to stop a training */
+	public enum StopReason {
+		/** the loss reached the target loss */
+		TARGET_LOSS,
+		/** the loss did not improve for a number of epochs */
+		PLATEAU,
+		/** the loss is not a number or infinite */
+		DIVERGED,
+		/** the maximum number of epochs has been trained */
+		MAX_EPOCHS
+	}
+
+	/** the network to train */
+	private final BackpropNeuralNetwork network;
+	/** the fraction of the data sets held out for validation */
+	private final double validationFraction;
+	/** the number of data sets of a mini-batch, 1 for the training of one data set per step */
+	private int batchSize = 1;
+	/** the loss to stop at */
+	private double targetLoss;
+	/** the number of epochs without improvement to stop after */
+	private int patience = Integer.MAX_VALUE;
+	/** the minimum decrease of the loss counted as an improvement */
+	private double minDelta;
+	/** true if the weights of the best epoch are restored at the end of a training */
+	private boolean restoreBestWeights = true;
+
+	/** the indices of the data sets: the training part (shuffled each epoch) followed by the validation part */
+	private int[] dataSetIndices;
+	/** the number of data sets of the training part */
+	private int trainingCount;
+	/** the mini-batch buffers, allocated on first use */
+	private MiniBatch batch;
+	/** the weights of each layer of the best epoch */
+	private double[][] bestWeights;
+	/** the biases of each layer of the best epoch */
+	private double[][] bestBiases;
+
+	/** the number of trained epochs */
+	private int epoch;
+	/** the training loss of the last epoch */
+	private double trainingLoss = Double.NaN;
+	/** the validation loss of the last epoch */
+	private double validationLoss = Double.NaN;
+	/** the lowest loss */
+	private double bestLoss = Double.POSITIVE_INFINITY;
+	/** the epoch of the lowest loss */
+	private int bestEpoch;
+	/** the epoch of the last improvement by more than minDelta */
+	private int improvementEpoch;
+	/** the loss of the last improvement by more than minDelta */
+	private double improvementLoss = Double.POSITIVE_INFINITY;
+	/** the reason the last training stopped */
+	private StopReason stopReason;
+
+	/**
+	 * Constructs a trainer of the training data of a network, see <code>BackpropNeuralNetwork.createInOutVectors()</code>
+	 * and <code>setTrainingData()</code>.
+	 *
+	 * @param network				the network to train
+	 * @param validationFraction	the fraction of the data sets held out for validation, in [0, 1), 
+	 * 								usually 0.1 to 0.2
+	 */
+	public EpochTrainer(BackpropNeuralNetwork network, double validationFraction) {
+
+		if (validationFraction < 0 || validationFraction >= 1) {
+			throw new IllegalArgumentException("The validation fraction must be in [0, 1): " + validationFraction);
+		}
+		this.network = network;
+		this.validationFraction = validationFraction;
+	}
+
+	/**
+	 * Copies the weights and biases of the network as the best ones.
+	 */
+	private void copyBestWeights() {
+
+		int layerCount = network.getLayerCount();
+		if (bestWeights == null) {
+			bestWeights = new double[layerCount][];
+			bestBiases = new double[layerCount][];
+			for (int l = 0; l < layerCount; l++) {
+				bestWeights[l] = new double[network.getLayer(l).getWeights().getValues().length];
+				bestBiases[l] = new double[network.getLayer(l).getNodeCount()];
+			}
+		}
+		for (int l = 0; l < layerCount; l++) {
+			Layer layer = network.getLayer(l);
+			System.arraycopy(layer.getWeights().getValues(), 0, bestWeights[l], 0, bestWeights[l].length);
+			System.arraycopy(layer.getBias(), 0, bestBiases[l], 0, bestBiases[l].length);
+		}
+	}
+
+	/**
+	 * @return the epoch of the lowest loss
+	 */
+	public int getBestEpoch() {
+
+		return bestEpoch;
+	}
+
+	/**
+	 * @return the lowest loss of all epochs
+	 */
+	public double getBestLoss() {
+
+		return bestLoss;
+	}
+
+	/**
+	 * @return the number of trained epochs
+	 */
+	public int getEpoch() {
+
+		return epoch;
+	}
+
+	/**
+	 * @return the reason the last training stopped, null before a training
+	 */
+	public StopReason getStopReason() {
+
+		return stopReason;
+	}
+
+	/**
+	 * @return the mean loss of the training data sets in the last epoch, measured while training
+	 */
+	public double getTrainingLoss() {
+
+		return trainingLoss;
+	}
+
+	/**
+	 * @return the mean loss of the validation data sets after the last epoch, NaN without a validation split
+	 */
+	public double getValidationLoss() {
+
+		return validationLoss;
+	}
+
+	/**
+	 * Restores the weights and biases of the best epoch.
+	 */
+	private void restoreBestWeights() {
+
+		for (int l = 0; l < network.getLayerCount(); l++) {
+			Layer layer = network.getLayer(l);
+			System.arraycopy(bestWeights[l], 0, layer.getWeights().getValues(), 0, bestWeights[l].length);
+			System.arraycopy(bestBiases[l], 0, layer.getBias(), 0, bestBiases[l].length);
+		}
+		network.weightsChanged();
+	}
+
+	/**
+	 * Sets the number of data sets of a mini-batch, the default is 1: 
+	 * one training step per data set, see <code>BackpropNeuralNetwork.train()</code>.
+	 *
+	 * @param batchSize			the number of data sets of a mini-batch
+	 */
+	public void setBatchSize(int batchSize) {
+
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the minimum decrease of the loss counted as an improvement for the patience, the default is 0.
+	 *
+	 * @param minDelta			the minimum decrease of the loss
+	 */
+	public void setMinDelta(double minDelta) {
+
+		if (minDelta < 0) {
+			throw new IllegalArgumentException("Invalid minimum delta: " + minDelta);
+		}
+		this.minDelta = minDelta;
+	}
+
+	/**
+	 * Sets the number of epochs without an improvement of the loss to stop after, 
+	 * the default is no limit.
+	 *
+	 * @param patience			the number of epochs
+	 */
+	public void setPatience(int patience) {
+
+		if (patience < 1) {
+			throw new IllegalArgumentException("Invalid patience: " + patience);
+		}
+		this.patience = patience;
+	}
+
+	/**
+	 * Sets whether the weights of the best epoch are restored at the end of a training, the default is true.
+	 *
+	 * @param restoreBestWeights	true to restore the weights of the best epoch
+	 */
+	public void setRestoreBestWeights(boolean restoreBestWeights) {
+
+		this.restoreBestWeights = restoreBestWeights;
+	}
+
+	/**
+	 * Sets the loss to stop at, the default is 0.
+	 *
+	 * @param targetLoss		the loss
+	 */
+	public void setTargetLoss(double targetLoss) {
+
+		this.targetLoss = targetLoss;
+	}
+
+	/**
+	 * Shuffles the data sets of the training part in place (Fisher-Yates).
+	 *
+	 * @param random			the random number generator
+	 */
+	private void shuffle(Random random) {
+
+		for (int i = trainingCount - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int index = dataSetIndices[i];
+			dataSetIndices[i] = dataSetIndices[j];
+			dataSetIndices[j] = index;
+		}
+	}
+
+	/**
+	 * Splits the data sets of the network randomly into the training and the validation part,
+	 * if the number of data sets has changed.
+	 *
+	 * @param random			the random number generator
+	 */
+	private void split(Random random) {
+
+		int dataSetCount = network.getTrainingDataSetCount();
+		if (dataSetIndices != null && dataSetIndices.length == dataSetCount) {
+			return;
+		}
+		int validationCount = (int) Math.round(dataSetCount * validationFraction);
+		if (dataSetCount - validationCount < 1) {
+			throw new IllegalArgumentException("Not enough training data sets: " + dataSetCount);
+		}
+		dataSetIndices = new int[dataSetCount];
+		for (int i = 0; i < dataSetCount; i++) {
+			dataSetIndices[i] = i;
+		}
+		// shuffle all data sets once, the validation part is the end of the permutation
+		trainingCount = dataSetCount;
+		shuffle(random);
+		trainingCount = dataSetCount - validationCount;
+	}
+
+	/**
+	 * Trains the network until a stop condition is met, see <code>getStopReason()</code>.
+	 * The data sets are split into the training and the validation part by the first call.
+	 * This method call may be repeated to continue the training.
+	 *
+	 * @param random			a random number generator to shuffle the data sets or null for the generator
+	 * 							of the network
+	 * @param maxEpochs			the maximum number of epochs of this call
+	 * @return the reason the training stopped
+	 */
+	public StopReason train(Random random, int maxEpochs) {
+
+		random = random == null ? network.getRandom() : random;
+		split(random);
+		TrainingMetrics metrics = network.getMetrics();
+		int validationCount = dataSetIndices.length - trainingCount;
+		stopReason = StopReason.MAX_EPOCHS;
+		for (int i = 0; i < maxEpochs; i++) {
+			shuffle(random);
+			trainingLoss = trainEpoch() / trainingCount;
+			double loss = trainingLoss;
+			if (validationCount > 0) {
+				double sum = 0;
+				for (int j = trainingCount; j < dataSetIndices.length; j++) {
+					sum += network.loss(dataSetIndices[j]);
+				}
+				validationLoss = sum / validationCount;
+				loss = validationLoss;
+			}
+			epoch++;
+			if (metrics.isEnabled()) {
+				metrics.endEpoch();
+			}
+			if (Double.isNaN(loss) || Double.isInfinite(loss)) {
+				stopReason = StopReason.DIVERGED;
+				break;
+			}
+			if (loss < bestLoss) {
+				bestLoss = loss;
+				bestEpoch = epoch;
+				copyBestWeights();
+			}
+			if (loss < improvementLoss - minDelta) {
+				improvementLoss = loss;
+				improvementEpoch = epoch;
+			}
+			if (loss <= targetLoss) {
+				stopReason = StopReason.TARGET_LOSS;
+				break;
+			}
+			if (epoch - improvementEpoch >= patience) {
+				stopReason = StopReason.PLATEAU;
+				break;
+			}
+		}
+		if (restoreBestWeights && bestWeights != null && bestEpoch != epoch) {
+			restoreBestWeights();
+		}
+		return stopReason;
+	}
+
+	/**
+	 * Trains each data set of the training part once, in the order of the indices.
+	 *
+	 * @return the sum of the losses of the data sets
+	 */
+	private double trainEpoch() {
+
+		double lossSum = 0;
+		if (batchSize == 1) {
+			for (int i = 0; i < trainingCount; i++) {
+				network.trainDataSet(dataSetIndices[i], 1);
+				lossSum += network.getError();
+			}
+			return lossSum;
+		}
+		if (batch == null || batch.capacity < batchSize) {
+			batch = network.createMiniBatch(batchSize);
+		}
+		for (int start = 0; start < trainingCount; start += batchSize) {
+			batch.clear();
+			for (int i = start; i < Math.min(start + batchSize, trainingCount); i++) {
+				network.addDataSet(batch, dataSetIndices[i]);
+			}
+			network.computeGradients(batch);
+			network.applyGradients(batch, batch.size);
+			lossSum += batch.loss;
+		}
+		return lossSum;
+	}
+}
@@ -0,0 +1,425 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+
+/**
+ * A backpropagation neural network like <code>BackpropNeuralNetwork</code>, computing in single precision:
+ * the weights, biases, outputs, errors and training data are <code>float</code> values.
+ * 
+ * <pre>
+ * Compared to BackpropNeuralNetwork:
+ * 
+ * 		* the weights and the training data need half the memory, and half the memory bandwidth 
+ * 			in the forward and backward passes, which dominates the computation time of large models
+ * 		* the training data is stored in one flat buffer (see FloatTrainingData), on the heap or off-heap
+ * 		* the SIMD kernels of the vector backend (see Kernels) compute twice the number of lanes
+ * 		* the results differ by rounding: about 7 significant digits instead of 16, 
+ * 			which is usually far below the error of the model
+ * 		* a network constructed with the same layers and the same Random is initialized 
+ * 			with the same weights and biases (rounded to float), and trains the same data sets in the same order
+ * </pre>
+ */
+public class FloatBackpropNeuralNetwork {
+
+	/** the number of inputs */
+	private int inputNodeCount;
+	/** the weights of the connections into each layer: one row per node */
+	private FloatWeightMatrix[] weights;
+	/** the bias of the nodes of each layer */
+	private float[][] biases;
+	/** the outputs of the nodes of each layer */
+	private float[][] layerOutputs;
+	/** the errors of the nodes of each layer in a training step, used for backpropagation */
+	private float[][] layerErrors;
+	/** the training data: N data sets with M inputs and K expected outputs each */
+	private FloatTrainingData trainingData;
+	/** a data set of off-heap training data, copied to the heap for training */
+	private float[] dataSetBuffer;
+	/** the learning rate */
+	private float learningRate;
+	/** a <code>Random</code> for "symmetry breaking" */
+	private Random random;
+	/** the loss of the last training step */
+	private float error;
+
+	/**
+	 * Constructs an empty model with any number of hidden layers, a setup may be needed afterwards.
+	 * The model uses the default learning rate and weights/biases initialized using random numbers<br>
+	 * in the ranges [0.1 .. 0.5].
+	 * 
+	 * @param layerNodeCounts		the number of inputs, the number of nodes of each hidden layer
+	 * 								and the number of outputs
+	 */
+	public FloatBackpropNeuralNetwork(int... layerNodeCounts) {
+		
+		this(layerNodeCounts, BackpropNeuralNetwork.DEFAULT_LEARNING_RATE, null);
+	}
+
+	/**
+	 * Constructs an empty model with any number of hidden layers, a setup may be needed afterwards.
+	 * The weights/biases are initialized using random numbers in the ranges [0.1 .. 0.5].  
+	 * 
+	 * @param layerNodeCounts		the number of inputs, the number of nodes of each hidden layer
+	 * 								and the number of outputs
+	 * @param learningRate			the learning rate, usually in the range of 0.01 to 0.9
+	 * @param random				a <code>Random</code>, may be <code>null</code> for a default <code>Random</code>
+	 */
+	public FloatBackpropNeuralNetwork(int[] layerNodeCounts, float learningRate, Random random) {
+		
+		if (layerNodeCounts.length < 2) {
+			throw new IllegalArgumentException("At least the number of inputs and outputs are needed: " 
+					+ Arrays.toString(layerNodeCounts));
+		}
+		this.inputNodeCount = layerNodeCounts[0];
+		this.learningRate = learningRate;
+		if (random == null) {
+			random = new Random(42);
+		}
+		this.random = random;
+		// allocate memory for all variables
+		int layerCount = layerNodeCounts.length - 1;
+		weights = new FloatWeightMatrix[layerCount];
+		biases = new float[layerCount][];
+		layerOutputs = new float[layerCount][];
+		layerErrors = new float[layerCount][];
+		for (int i = 0; i < layerCount; i++) {
+			weights[i] = new FloatWeightMatrix(layerNodeCounts[i + 1], layerNodeCounts[i]);
+			biases[i] = new float[layerNodeCounts[i + 1]];
+			layerOutputs[i] = new float[layerNodeCounts[i + 1]];
+			layerErrors[i] = new float[layerNodeCounts[i + 1]];
+		}
+		// randomly initialize weights and biases in the order of BackpropNeuralNetwork
+		for (int i = 0; i < inputNodeCount; i++) {
+			for (int j = 0; j < weights[0].getRows(); j++) {
+				weights[0].set(j, i, nextRandom());
+			}
+		}
+		for (int l = 1; l < layerCount; l++) {
+			for (int i = 0; i < weights[l].getColumns(); i++) {
+				for (int j = 0; j < weights[l].getRows(); j++) {
+					weights[l].set(j, i, nextRandom());
+				}
+				biases[l - 1][i] = nextRandom();
+			}
+		}
+		float[] outputBias = biases[layerCount - 1];
+		for (int i = 0; i < outputBias.length; i++) {
+			outputBias[i] = nextRandom();
+		}
+	}
+
+	/**
+	 * Create the input and output vectors for training for a training data set, 
+	 * rounded to single precision.
+	 * 
+	 * @param trainingData		the training data: input vector 0, desired output vector 0, 
+	 * 							input vector 1, desired output vector 1, and so on
+	 */
+	public void createInOutVectors(double[][] trainingData) {
+		
+		setTrainingData(FloatTrainingData.of(trainingData));
+	}
+
+	/**
+	 * Create the input and output vectors for training for a training data set.
+	 * 
+	 * @param trainingData		the training data: input vector 0, desired output vector 0, 
+	 * 							input vector 1, desired output vector 1, and so on
+	 */
+	public void createInOutVectors(float[][] trainingData) {
+		
+		setTrainingData(FloatTrainingData.of(trainingData));
+	}
+
+	/**
+	 * Compute the outputs (output vector) for an input vector.
+	 * Usually the neural network has been trained before.<br>
+	 * The returned array is a buffer of this network, it is overwritten by the next call
+	 * of this method or <code>train()</code>.
+	 * 
+	 * @param inputs		the inputs (input vector)
+	 * @return the ouputs
+	 */
+	public float[] forwardPass(float[] inputs) {
+		
+		return forwardPass(inputs, 0);
+	}
+
+	/**
+	 * Compute the outputs for an input vector stored at an offset, e.g. within the buffer of the training data.
+	 * 
+	 * @param inputs		the array holding the input vector
+	 * @param inputOffset	the index of the first input within <code>inputs</code>
+	 * @return the ouputs
+	 */
+	private float[] forwardPass(float[] inputs, int inputOffset) {
+		
+		for (int l = 0; l < weights.length; l++) {
+			float[] outputs = layerOutputs[l];
+			if (l == 0) {
+				weights[l].multiply(inputs, inputOffset, biases[l], outputs);
+			} else {
+				weights[l].multiply(layerOutputs[l - 1], biases[l], outputs);
+			}
+			for (int i = 0; i < outputs.length; i++) {
+				outputs[i] = Sigmoid.sigmoid(outputs[i]);
+			}
+		}
+		return layerOutputs[weights.length - 1];
+	}
+
+	/**
+	 * Returns the bias of the nodes of a layer. Changes to the array are changes of the biases.
+	 * 
+	 * @param layer			the index of the layer, 0 for the first hidden layer
+	 * @return the bias of the nodes
+	 */
+	public float[] getBias(int layer) {
+		
+		return biases[layer];
+	}
+
+	/**
+	 * @return the loss of the last training step: the mean squared error of the outputs
+	 */
+	public float getError() {
+		
+		return error;
+	}
+
+	/**
+	 * @return the number of inputs
+	 */
+	public int getInputNodeCount() {
+		
+		return inputNodeCount;
+	}
+
+	/**
+	 * @return the number of layers: the hidden layers and the output layer
+	 */
+	public int getLayerCount() {
+		
+		return weights.length;
+	}
+
+	/**
+	 * @return the learningRate
+	 */
+	public float getLearningRate() {
+		
+		return learningRate;
+	}
+
+	/**
+	 * @return the errors of the output nodes of the last training 
+	 */
+	public float[] getOutputErrors() {
+		
+		return layerErrors[weights.length - 1];
+	}
+
+	/**
+	 * @return the number of outputs
+	 */
+	public int getOutputNodeCount() {
+		
+		return weights[weights.length - 1].getRows();
+	}
+
+	/**
+	 * @return the training data, set by createInOutVectors() or setTrainingData(), or null
+	 */
+	public FloatTrainingData getTrainingData() {
+		
+		return trainingData;
+	}
+
+	/**
+	 * @return the number of training data sets, set by createInOutVectors() or setTrainingData()
+	 */
+	public int getTrainingDataSetCount() {
+		
+		return trainingData == null ? 0 : trainingData.getDataSetCount();
+	}
+
+	/**
+	 * Returns the weights of the connections into the nodes of a layer, one row per node
+	 * and one column per node of the previous layer (or input).
+	 * 
+	 * @param layer			the index of the layer, 0 for the first hidden layer
+	 * @return the weights
+	 */
+	public FloatWeightMatrix getWeights(int layer) {
+		
+		return weights[layer];
+	}
+
+	/**
+	 * @return the next random number to initialize weights and biases
+	 */
+	protected float nextRandom() {
+		
+		return (float) random.nextDouble(0.1, 0.5);
+	}
+
+	/**
+	 * Set the learning rate.
+	 * 
+	 * @param learningRate 			the learningRate to set
+	 */
+	public void setLearningRate(float learningRate) {
+		
+		this.learningRate = learningRate;
+	}
+
+	/**
+	 * Set the training data, without copying it. The number of inputs and outputs of a data set
+	 * must match the network.
+	 * 
+	 * @param trainingData 			the training data, on the heap or off-heap
+	 */
+	public void setTrainingData(FloatTrainingData trainingData) {
+		
+		if (trainingData.getInputCount() != inputNodeCount || trainingData.getOutputCount() != getOutputNodeCount()) {
+			throw new IllegalArgumentException("The training data has " + trainingData.getInputCount() + " inputs and " 
+					+ trainingData.getOutputCount() + " outputs, the network " + inputNodeCount + " and " 
+					+ getOutputNodeCount());
+		}
+		this.trainingData = trainingData;
+		dataSetBuffer = trainingData.isDirect() ? new float[trainingData.getStride()] : null;
+	}
+
+	/**
+	 * Train the network one step using an input vector and the current learning rate.
+	 * 
+	 * @param inputs			the input vector to train
+	 * @param desiredOutputs	the desired output vector
+	 */
+	public void train(float[] inputs, float[] desiredOutputs) {
+		
+		train(inputs, 0, desiredOutputs, 0);
+	}
+
+	/**
+	 * Train the network one step using vectors stored at offsets, e.g. within the buffer of the training data.
+	 * 
+	 * @param inputs			the array holding the input vector
+	 * @param inputOffset		the index of the first input within <code>inputs</code>
+	 * @param desiredOutputs	the array holding the desired output vector
+	 * @param desiredOffset		the index of the first desired output within <code>desiredOutputs</code>
+	 */
+	private void train(float[] inputs, int inputOffset, float[] desiredOutputs, int desiredOffset) {
+		
+		// forward pass goes first to compute the outputs and outputs of the hidden layers
+		forwardPass(inputs, inputOffset);
+		int last = weights.length - 1;
+		// backpropagation, first compute output error(s)
+		float[] outputs = layerOutputs[last];
+		float[] outputErrors = layerErrors[last];
+		float squares = 0;
+		for (int i = 0; i < outputErrors.length; i++) {
+			float output = outputs[i];
+			float difference = desiredOutputs[desiredOffset + i] - output;
+			squares += difference * difference;
+			// sigmoid derivative: output * (1 - output)
+			outputErrors[i] = difference * output * (1 - output);
+		}
+		error = squares / outputErrors.length;
+		// backpropagate the errors layer by layer down to the first hidden layer
+		for (int l = last; l > 0; l--) {
+			float[] errors = layerErrors[l - 1];
+			float[] hiddenNodeOutputs = layerOutputs[l - 1];
+			weights[l].multiplyTransposed(layerErrors[l], errors);
+			for (int i = 0; i < errors.length; i++) {
+				errors[i] = errors[i] * hiddenNodeOutputs[i] * (1 - hiddenNodeOutputs[i]);
+			}
+		}
+		// update weights and biases of all layers
+		for (int l = 0; l < weights.length; l++) {
+			float[] errors = layerErrors[l];
+			if (l == 0) {
+				weights[l].addOuterProduct(learningRate, errors, inputs, inputOffset);
+			} else {
+				weights[l].addOuterProduct(learningRate, errors, layerOutputs[l - 1]);
+			}
+			float[] bias = biases[l];
+			for (int i = 0; i < bias.length; i++) {
+				bias[i] += learningRate * errors[i];
+			}
+		}
+	}
+
+	/**
+	 * Train the model with a number data set, using one or more steps in the direction of the given data set.
+	 * 
+	 * @param inputVector				the input vector to train
+	 * @param desiredOutputVector		the desired output vector
+	 * @param trainigSteps				the number of steps to train the model with this input/output
+	 */
+	public void trainDataSet(float[] inputVector, float[] desiredOutputVector, int trainigSteps) {
+		
+		for (int i = 0; i < trainigSteps; i++) {
+			train(inputVector, desiredOutputVector);
+		}
+	}
+
+	/**
+	 * Train the model with a number data sets, choosing randomly different data,
+	 * like <code>BackpropNeuralNetwork.trainRandom()</code>.
+	 * 
+	 * @param trainings				the number of data sets to be trained
+	 * @param trainigStepsPerSet	the number of training steps per set
+	 */
+	public void trainRandom(int trainings, int trainigStepsPerSet) {
+		
+		trainRandom(random, trainings, trainigStepsPerSet);
+	}
+
+	/**
+	 * Train the model with a number data sets, choosing randomly different data,
+	 * like <code>BackpropNeuralNetwork.trainRandom()</code>.
+	 * 
+	 * @param random				a random number generator to change the order of training or null for the
+	 * 								generator of this network
+	 * @param trainings				the number of data sets to be trained
+	 * @param trainigStepsPerSet	the number of training steps per set
+	 */
+	public void trainRandom(Random random, int trainings, int trainigStepsPerSet) {
+		
+		random = random == null ? this.random : random;
+		boolean direct = trainingData.isDirect();
+		float[] values = direct ? dataSetBuffer : trainingData.getArray();
+		for (int i = 0; i < trainings; i++) {
+			int dataSetIndex = random.nextInt(trainingData.getDataSetCount());
+			int inputOffset = trainingData.inputOffset(dataSetIndex);
+			int outputOffset = trainingData.outputOffset(dataSetIndex);
+			if (direct) {
+				// off-heap: copy the data set into the buffer of the network
+				trainingData.copyInputs(dataSetIndex, dataSetBuffer, 0);
+				trainingData.copyOutputs(dataSetIndex, dataSetBuffer, trainingData.getInputCount());
+				inputOffset = 0;
+				outputOffset = trainingData.getInputCount();
+			}
+			for (int j = 0; j < trainigStepsPerSet; j++) {
+				train(values, inputOffset, values, outputOffset);
+			}
+		}
+	}
+}
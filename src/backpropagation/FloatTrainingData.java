@@ -0,0 +1,399 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.nio.*;
+
+/**
+ * The training data of a <code>FloatBackpropNeuralNetwork</code>: like <code>TrainingData</code>, 
+ * a number of data sets stored one after another in one flat buffer, of <code>float</code> values.
+ * The buffer is either a <code>float</code> array on the heap or a (direct, off-heap) <code>ByteBuffer</code>,
+ * half the memory of the same data in double precision.
+ *
+ * <pre>
+ * Data set i starts at index i * stride of the buffer, where stride = inputCount + outputCount:
+ *
+ * 		| inputs 0 | outputs 0 | inputs 1 | outputs 1 | ...
+ *
+ * A network reads the data sets of a heap buffer directly (using the index of the row within the 
+ * array), the data sets of an off-heap buffer are copied one by one into a buffer of the network.
+ * </pre>
+ */
+public class FloatTrainingData {
+
+	/** the number of bytes of a value */
+	private static final int VALUE_BYTES = Float.BYTES;
+
+	/** the number of data sets */
+	private final int dataSetCount;
+	/** the number of inputs of a data set */
+	private final int inputCount;
+	/** the number of outputs of a data set */
+	private final int outputCount;
+	/** the number of values of a data set */
+	private final int stride;
+	/** the values of a heap buffer, or null */
+	private final float[] values;
+	/** the values of an off-heap buffer, or null */
+	private final FloatBuffer buffer;
+
+	/**
+	 * Constructs training data using a heap or an off-heap buffer.
+	 *
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @param valueCount		the number of values of the buffer
+	 * @param values			the values of a heap buffer, or null
+	 * @param buffer			the values of an off-heap buffer, or null
+	 */
+	private FloatTrainingData(int inputCount, int outputCount, int valueCount, float[] values, FloatBuffer buffer) {
+
+		if (inputCount <= 0 || outputCount <= 0) {
+			throw new IllegalArgumentException("Invalid number of inputs/outputs: " + inputCount + "/" + outputCount);
+		}
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+		stride = inputCount + outputCount;
+		if (valueCount % stride != 0) {
+			throw new IllegalArgumentException("The number of values (" + valueCount 
+					+ ") is not a multiple of the values of a data set (" + stride + ")");
+		}
+		dataSetCount = valueCount / stride;
+		this.values = values;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Allocates training data on the heap, all values are zero.
+	 *
+	 * @param dataSetCount		the number of data sets
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static FloatTrainingData allocate(int dataSetCount, int inputCount, int outputCount) {
+
+		return wrap(new float[Math.multiplyExact(dataSetCount, inputCount + outputCount)], inputCount, outputCount);
+	}
+
+	/**
+	 * Allocates training data in a direct (off-heap) buffer using the native byte order, all values are zero.
+	 *
+	 * @param dataSetCount		the number of data sets
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static FloatTrainingData allocateDirect(int dataSetCount, int inputCount, int outputCount) {
+
+		int bytes = Math.multiplyExact(Math.multiplyExact(dataSetCount, inputCount + outputCount), VALUE_BYTES);
+		return wrap(ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()), inputCount, outputCount);
+	}
+
+	/**
+	 * Copies the input vector of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param target			the array to copy the inputs to
+	 * @param targetOffset		the index of the first input within <code>target</code>
+	 */
+	public void copyInputs(int dataSetIndex, float[] target, int targetOffset) {
+
+		copy(dataSetIndex, 0, target, targetOffset, inputCount);
+	}
+
+	/**
+	 * Copies the desired output vector of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param target			the array to copy the outputs to
+	 * @param targetOffset		the index of the first output within <code>target</code>
+	 */
+	public void copyOutputs(int dataSetIndex, float[] target, int targetOffset) {
+
+		copy(dataSetIndex, inputCount, target, targetOffset, outputCount);
+	}
+
+	/**
+	 * Copies values of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param index				the index of the first value within the data set
+	 * @param target			the array to copy the values to
+	 * @param targetOffset		the index of the first value within <code>target</code>
+	 * @param length			the number of values
+	 */
+	private void copy(int dataSetIndex, int index, float[] target, int targetOffset, int length) {
+
+		if (values != null) {
+			System.arraycopy(values, dataSetIndex * stride + index, target, targetOffset, length);
+		} else {
+			buffer.get(dataSetIndex * stride + index, target, targetOffset, length);
+		}
+	}
+
+	/**
+	 * Returns the values of a heap buffer, to read the data sets without copying them: 
+	 * see <code>inputOffset()</code> and <code>outputOffset()</code>.
+	 *
+	 * @return the values of the heap buffer, or null for an off-heap buffer
+	 */
+	public float[] getArray() {
+
+		return values;
+	}
+
+	/**
+	 * @return the number of data sets
+	 */
+	public int getDataSetCount() {
+
+		return dataSetCount;
+	}
+
+	/**
+	 * Returns an input of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param inputIndex		the index of the input
+	 * @return the input
+	 */
+	public float getInput(int dataSetIndex, int inputIndex) {
+
+		return get(dataSetIndex, inputIndex);
+	}
+
+	/**
+	 * @return the number of inputs of a data set
+	 */
+	public int getInputCount() {
+
+		return inputCount;
+	}
+
+	/**
+	 * Returns a desired output of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param outputIndex		the index of the output
+	 * @return the output
+	 */
+	public float getOutput(int dataSetIndex, int outputIndex) {
+
+		return get(dataSetIndex, inputCount + outputIndex);
+	}
+
+	/**
+	 * @return the number of outputs of a data set
+	 */
+	public int getOutputCount() {
+
+		return outputCount;
+	}
+
+	/**
+	 * @return the number of values of a data set: the inputs and the outputs
+	 */
+	public int getStride() {
+
+		return stride;
+	}
+
+	/**
+	 * Returns a value of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param index				the index of the value within the data set
+	 * @return the value
+	 */
+	private float get(int dataSetIndex, int index) {
+
+		if (values != null) {
+			return values[dataSetIndex * stride + index];
+		}
+		return buffer.get(dataSetIndex * stride + index);
+	}
+
+	/**
+	 * Returns the index of the first input of a data set within the array of a heap buffer.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @return the index within the buffer
+	 */
+	public int inputOffset(int dataSetIndex) {
+
+		return dataSetIndex * stride;
+	}
+
+	/**
+	 * @return true if the values are stored off-heap (or in a <code>ByteBuffer</code>), 
+	 * 			false if they are stored in a <code>float</code> array
+	 */
+	public boolean isDirect() {
+
+		return values == null;
+	}
+
+	/**
+	 * Creates training data on the heap from interleaved vectors, rounded to single precision,
+	 * like <code>BackpropNeuralNetwork.createInOutVectors()</code>.
+	 *
+	 * @param trainingData		the training data: input vector 0, desired output vector 0, 
+	 * 							input vector 1, desired output vector 1, and so on
+	 * @return the training data
+	 */
+	public static FloatTrainingData of(double[][] trainingData) {
+
+		int dataSetCount = trainingData.length / 2;
+		FloatTrainingData data = allocate(dataSetCount, trainingData[0].length, trainingData[1].length);
+		for (int i = 0; i < dataSetCount; i++) {
+			data.setDataSet(i, trainingData[i * 2], trainingData[i * 2 + 1]);
+		}
+		return data;
+	}
+
+	/**
+	 * Creates training data on the heap from interleaved vectors.
+	 *
+	 * @param trainingData		the training data: input vector 0, desired output vector 0, 
+	 * 							input vector 1, desired output vector 1, and so on
+	 * @return the training data
+	 */
+	public static FloatTrainingData of(float[][] trainingData) {
+
+		int dataSetCount = trainingData.length / 2;
+		FloatTrainingData data = allocate(dataSetCount, trainingData[0].length, trainingData[1].length);
+		for (int i = 0; i < dataSetCount; i++) {
+			data.setDataSet(i, trainingData[i * 2], trainingData[i * 2 + 1]);
+		}
+		return data;
+	}
+
+	/**
+	 * Returns the index of the first desired output of a data set within the array of a heap buffer.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @return the index within the buffer
+	 */
+	public int outputOffset(int dataSetIndex) {
+
+		return dataSetIndex * stride + inputCount;
+	}
+
+	/**
+	 * Sets a data set, rounded to single precision.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param inputs			the input vector
+	 * @param outputs			the desired output vector
+	 */
+	public void setDataSet(int dataSetIndex, double[] inputs, double[] outputs) {
+
+		checkLengths(dataSetIndex, inputs.length, outputs.length);
+		int index = inputOffset(dataSetIndex);
+		for (int i = 0; i < inputCount; i++) {
+			set(index + i, (float) inputs[i]);
+		}
+		index = outputOffset(dataSetIndex);
+		for (int i = 0; i < outputCount; i++) {
+			set(index + i, (float) outputs[i]);
+		}
+	}
+
+	/**
+	 * Sets a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param inputs			the input vector
+	 * @param outputs			the desired output vector
+	 */
+	public void setDataSet(int dataSetIndex, float[] inputs, float[] outputs) {
+
+		checkLengths(dataSetIndex, inputs.length, outputs.length);
+		if (values != null) {
+			System.arraycopy(inputs, 0, values, inputOffset(dataSetIndex), inputCount);
+			System.arraycopy(outputs, 0, values, outputOffset(dataSetIndex), outputCount);
+		} else {
+			buffer.put(inputOffset(dataSetIndex), inputs);
+			buffer.put(outputOffset(dataSetIndex), outputs);
+		}
+	}
+
+	/**
+	 * Checks the lengths of the vectors of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param inputLength		the length of the input vector
+	 * @param outputLength		the length of the desired output vector
+	 */
+	private void checkLengths(int dataSetIndex, int inputLength, int outputLength) {
+
+		if (inputLength != inputCount || outputLength != outputCount) {
+			throw new IllegalArgumentException("Invalid vector length(s) of data set " + dataSetIndex 
+					+ ": " + inputLength + "/" + outputLength);
+		}
+	}
+
+	/**
+	 * Sets a value of the buffer.
+	 *
+	 * @param index			the index of the value within the buffer
+	 * @param value			the value
+	 */
+	private void set(int index, float value) {
+
+		if (values != null) {
+			values[index] = value;
+		} else {
+			buffer.put(index, value);
+		}
+	}
+
+	/**
+	 * Wraps a heap array holding data sets one after another, without copying it.
+	 * Changes to the array are changes of the training data.
+	 *
+	 * @param values			the values of the data sets
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static FloatTrainingData wrap(float[] values, int inputCount, int outputCount) {
+
+		return new FloatTrainingData(inputCount, outputCount, values.length, values, null);
+	}
+
+	/**
+	 * Wraps the remaining bytes of a buffer holding data sets one after another, without copying them.
+	 * The values are read using the byte order of the buffer, which may be a direct (off-heap) buffer.
+	 * Changes to the buffer are changes of the training data.
+	 *
+	 * @param bytes				the buffer
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static FloatTrainingData wrap(ByteBuffer bytes, int inputCount, int outputCount) {
+
+		if (bytes.remaining() % VALUE_BYTES != 0) {
+			throw new IllegalArgumentException("The number of bytes (" + bytes.remaining() 
+					+ ") is not a multiple of " + VALUE_BYTES);
+		}
+		FloatBuffer buffer = bytes.asFloatBuffer();
+		return new FloatTrainingData(inputCount, outputCount, buffer.capacity(), null, buffer);
+	}
+}
@@ -0,0 +1,184 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+
+/**
+ * The weights between two layers of a <code>FloatBackpropNeuralNetwork</code>, stored in one contiguous 
+ * row-major <code>float</code> array: half the memory and memory bandwidth of a <code>WeightMatrix</code>.<br>
+ * Row <code>i</code> holds the weights of all connections into node <code>i</code> of the receiving
+ * layer, column <code>j</code> belongs to node <code>j</code> of the sending layer.
+ */
+public class FloatWeightMatrix {
+
+	/** the kernels of the computations */
+	private static final Kernels KERNELS = Kernels.get();
+
+	/** the number of rows: the nodes of the receiving layer */
+	private final int rows;
+	/** the number of columns: the nodes of the sending layer */
+	private final int columns;
+	/** the weights, row after row */
+	private final float[] values;
+
+	/**
+	 * Constructs a matrix with all weights set to zero.
+	 *
+	 * @param rows			the number of rows (nodes of the receiving layer)
+	 * @param columns		the number of columns (nodes of the sending layer)
+	 */
+	public FloatWeightMatrix(int rows, int columns) {
+
+		this.rows = rows;
+		this.columns = columns;
+		values = new float[rows * columns];
+	}
+
+	/**
+	 * Adds the scaled outer product of two vectors to this matrix,
+	 * <code>this[i][j] += scale * rowVector[i] * columnVector[j]</code>,
+	 * see <code>WeightMatrix.addOuterProduct()</code>.
+	 *
+	 * @param scale				the scale, usually the learning rate
+	 * @param rowVector			a vector of length <code>rows</code>
+	 * @param columnVector		a vector of length <code>columns</code>
+	 */
+	public void addOuterProduct(float scale, float[] rowVector, float[] columnVector) {
+
+		addOuterProduct(scale, rowVector, columnVector, 0);
+	}
+
+	/**
+	 * Adds the scaled outer product of two vectors to this matrix, like 
+	 * {@link #addOuterProduct(float, float[], float[])}, but reading the column vector at an offset.
+	 *
+	 * @param scale				the scale, usually the learning rate
+	 * @param rowVector			a vector of length <code>rows</code>
+	 * @param columnVector		a vector of length <code>columns</code>, at <code>columnOffset</code>
+	 * @param columnOffset		the index of the first element within <code>columnVector</code>
+	 */
+	public void addOuterProduct(float scale, float[] rowVector, float[] columnVector, int columnOffset) {
+
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			KERNELS.axpy(scale * rowVector[i], columnVector, columnOffset, values, rowStart, columns);
+		}
+	}
+
+	/**
+	 * Sets all weights to zero.
+	 */
+	public void clear() {
+
+		Arrays.fill(values, 0);
+	}
+
+	/**
+	 * Returns a weight.
+	 *
+	 * @param row			the row (node of the receiving layer)
+	 * @param column		the column (node of the sending layer)
+	 * @return the weight
+	 */
+	public float get(int row, int column) {
+
+		return values[row * columns + column];
+	}
+
+	/**
+	 * @return the number of columns (nodes of the sending layer)
+	 */
+	public int getColumns() {
+
+		return columns;
+	}
+
+	/**
+	 * @return the number of rows (nodes of the receiving layer)
+	 */
+	public int getRows() {
+
+		return rows;
+	}
+
+	/**
+	 * Returns the backing array of this matrix, row after row.
+	 * Changes to the array are changes of the weights.
+	 *
+	 * @return the backing array
+	 */
+	public float[] getValues() {
+
+		return values;
+	}
+
+	/**
+	 * Multiplies this matrix with a vector and adds a bias,
+	 * <code>result[i] = sum(this[i][j] * vector[j]) + bias[i]</code>.
+	 *
+	 * @param vector		the outputs of the sending layer, a vector of length <code>columns</code>
+	 * @param bias			the bias of the receiving layer, a vector of length <code>rows</code>
+	 * @param result		the result, a vector of length <code>rows</code>
+	 */
+	public void multiply(float[] vector, float[] bias, float[] result) {
+
+		multiply(vector, 0, bias, result);
+	}
+
+	/**
+	 * Multiplies this matrix with a vector and adds a bias, like 
+	 * {@link #multiply(float[], float[], float[])}, but reading the vector at an offset.
+	 *
+	 * @param vector			the outputs of the sending layer, a vector of length <code>columns</code>
+	 * @param vectorOffset		the index of the first element within <code>vector</code>
+	 * @param bias				the bias of the receiving layer, a vector of length <code>rows</code>
+	 * @param result			the result, a vector of length <code>rows</code>
+	 */
+	public void multiply(float[] vector, int vectorOffset, float[] bias, float[] result) {
+
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			result[i] = KERNELS.dot(values, rowStart, vector, vectorOffset, columns) + bias[i];
+		}
+	}
+
+	/**
+	 * Multiplies the transposed matrix with a vector, <code>result[j] = sum(this[i][j] * vector[i])</code>.
+	 * This propagates the errors of the receiving layer back to the sending layer.
+	 *
+	 * @param vector		the errors of the receiving layer, a vector of length <code>rows</code>
+	 * @param result		the result, a vector of length <code>columns</code>
+	 */
+	public void multiplyTransposed(float[] vector, float[] result) {
+
+		Arrays.fill(result, 0, columns, 0);
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			KERNELS.axpy(vector[i], values, rowStart, result, 0, columns);
+		}
+	}
+
+	/**
+	 * Sets a weight.
+	 *
+	 * @param row			the row (node of the receiving layer)
+	 * @param column		the column (node of the sending layer)
+	 * @param value			the weight
+	 */
+	public void set(int row, int column, float value) {
+
+		values[row * columns + column] = value;
+	}
+}
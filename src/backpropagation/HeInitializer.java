@@ -0,0 +1,46 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+import java.util.random.*;
+
+/**
+ * The He (Kaiming) initialization: the weights are normally distributed with a standard deviation
+ * of <code>sqrt(2 / inputs)</code>, the biases are zero. The factor 2 makes up for the half of the inputs
+ * a ReLU sets to zero, so the variance of the outputs stays about the same from layer to layer
+ * (He et al., 2015). Use it for ReLU and leaky ReLU nodes.
+ */
+public class HeInitializer extends Initializer {
+
+	@Override
+	public String getName() {
+
+		return "He";
+	}
+
+	@Override
+	public void initialize(Layer layer, RandomGenerator random) {
+
+		double deviation = Math.sqrt(2.0 / layer.getInputCount());
+		double[] weights = layer.getWeights().getValues();
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = random.nextGaussian() * deviation;
+		}
+		Arrays.fill(layer.getBias(), 0);
+	}
+}
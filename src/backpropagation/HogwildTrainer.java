@@ -0,0 +1,249 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.random.*;
+
+/**
+ * Asynchronous lock-free training of a <code>BackpropNeuralNetwork</code> on several cores,
+ * as described by Hogwild! (Niu, Recht, R&eacute; and Wright, 2011).
+ *
+ * <pre>
+ * Each worker trains the network step by step with randomly chosen data sets, like
+ * <code>BackpropNeuralNetwork.trainRandom()</code>, using its own buffers for the outputs and errors
+ * of the nodes, but all workers read and update the same weights without any locking.
+ * Updates of different workers may overlap and overwrite each other now and then,
+ * which is accepted by design: a lost update of a weight is just a slightly noisier
+ * gradient step. This works best for large networks and sparse inputs, where two
+ * concurrent steps rarely touch the same weights.
+ *
+ * Compared to <code>ParallelTrainer</code>, there is no reduction of gradients and no 
+ * synchronization per step, so the throughput scales with the number of cores, but the
+ * result of a training depends on the timing of the threads and is not reproducible.
+ * Only the default <code>SgdOptimizer</code> is supported, the other optimizers keep a state
+ * of their steps, which is not meant to be updated concurrently.
+ *
+ * Usage:
+ *
+ * 		try (HogwildTrainer trainer = new HogwildTrainer(neuralNetwork, 8)) {
+ * 			trainer.trainRandom(new Random(42), 1000000);
+ * 		}
+ *
+ * The steps of the workers are not recorded by the <code>TrainingMetrics</code> of the network
+ * and do not change its <code>getError()</code>, see the loss returned by the train methods.
+ * The network must not be trained or used otherwise while a training is running.
+ * </pre>
+ */
+public class HogwildTrainer implements AutoCloseable {
+
+	/** the network to train */
+	private final BackpropNeuralNetwork network;
+	/** the pool running the workers */
+	private final ForkJoinPool pool;
+	/** true if the pool has been created (and will be shut down) by this trainer */
+	private final boolean ownPool;
+	/** the number of workers */
+	private final int workerCount;
+	/** the buffers of the workers */
+	private final InferenceContext[] contexts;
+
+	/**
+	 * Constructs a trainer using its own pool of threads, to be shut down by <code>close()</code>.
+	 *
+	 * @param network			the network to train
+	 * @param threadCount		the number of threads
+	 */
+	public HogwildTrainer(BackpropNeuralNetwork network, int threadCount) {
+
+		this(network, new ForkJoinPool(threadCount), true);
+	}
+
+	/**
+	 * Constructs a trainer using a given pool, with one worker per thread of the pool.
+	 * The pool is not shut down by <code>close()</code>.
+	 *
+	 * @param network			the network to train
+	 * @param pool				the pool running the workers
+	 */
+	public HogwildTrainer(BackpropNeuralNetwork network, ForkJoinPool pool) {
+
+		this(network, pool, false);
+	}
+
+	/**
+	 * Constructs a trainer.
+	 *
+	 * @param network			the network to train
+	 * @param pool				the pool running the workers
+	 * @param ownPool			true if the pool is shut down by <code>close()</code>
+	 */
+	private HogwildTrainer(BackpropNeuralNetwork network, ForkJoinPool pool, boolean ownPool) {
+
+		this.network = network;
+		this.pool = pool;
+		this.ownPool = ownPool;
+		workerCount = pool.getParallelism();
+		contexts = new InferenceContext[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			contexts[i] = network.createInferenceContext();
+		}
+	}
+
+	/**
+	 * Shuts down the pool of threads, if it has been created by this trainer.
+	 */
+	@Override
+	public void close() {
+
+		if (ownPool) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return the number of workers, which is the number of threads
+	 */
+	public int getWorkerCount() {
+
+		return workerCount;
+	}
+
+	/**
+	 * Runs the workers in parallel and waits for all of them. Each worker has its own stream of random numbers, 
+	 * split from one generator seeded by <code>random</code>, so the data sets chosen by each worker only
+	 * depend on the seed.
+	 *
+	 * @param random			the random number generator seeding the streams of the workers, 
+	 * 							or null for the generator of the network
+	 * @param trainings			the number of training steps of all workers
+	 * @param worker			the training steps of a worker
+	 * @return the mean loss of all training steps
+	 */
+	private double runWorkers(Random random, int trainings, Worker worker) {
+
+		if (!(network.getOptimizer() instanceof SgdOptimizer)) {
+			throw new IllegalArgumentException("Asynchronous training needs the SgdOptimizer, not " 
+					+ network.getOptimizer());
+		}
+		if (trainings < 0) {
+			throw new IllegalArgumentException("Invalid number of trainings: " + trainings);
+		}
+		random = random == null ? network.getRandom() : random;
+		SplittableRandom generator = new SplittableRandom(random.nextLong());
+		RandomGenerator[] streams = new RandomGenerator[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			streams[i] = generator.split();
+		}
+		double[] losses = new double[workerCount];
+		pool.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+
+				ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workerCount];
+				for (int i = 0; i < workerCount; i++) {
+					int index = i;
+					// the steps are split evenly, the workers differ in size by one step at most
+					int steps = (int) ((long) (i + 1) * trainings / workerCount - (long) i * trainings / workerCount);
+					tasks[i] = ForkJoinTask.adapt(() -> {
+						losses[index] = worker.train(streams[index], steps, contexts[index]);
+					});
+				}
+				invokeAll(tasks);
+			}
+		});
+		double sum = 0;
+		for (double loss : losses) {
+			sum += loss;
+		}
+		return trainings == 0 ? 0 : sum / trainings;
+	}
+
+	/**
+	 * Train the network with a number of randomly chosen data sets of the training data of the network, 
+	 * see <code>BackpropNeuralNetwork.createInOutVectors()</code>, one step per data set.
+	 * This method call may be repeated.
+	 *
+	 * @param random				a random number generator to seed the workers or null for the generator
+	 * 								of the network
+	 * @param trainings				the number of training steps of all workers
+	 * @return the mean loss of the training steps
+	 */
+	public double trainRandom(Random random, int trainings) {
+
+		int dataSetCount = network.getTrainingDataSetCount();
+		if (dataSetCount == 0) {
+			throw new IllegalArgumentException("The network has no training data");
+		}
+		return runWorkers(random, trainings, (workerRandom, steps, context) -> {
+			double loss = 0;
+			for (int i = 0; i < steps; i++) {
+				loss += network.trainDataSet(workerRandom.nextInt(dataSetCount), 1, context);
+			}
+			return loss;
+		});
+	}
+
+	/**
+	 * Train the network with a number of randomly chosen sparse input vectors, one step per vector.
+	 * This method call may be repeated.
+	 *
+	 * @param random				a random number generator to seed the workers or null for the generator
+	 * 								of the network
+	 * @param inputVectors			the sparse input vectors
+	 * @param desiredOutputVectors	the desired output vectors, one per input vector
+	 * @param trainings				the number of training steps of all workers
+	 * @return the mean loss of the training steps
+	 */
+	public double trainRandom(Random random, SparseVector[] inputVectors, double[][] desiredOutputVectors, 
+			int trainings) {
+
+		if (inputVectors.length == 0 || inputVectors.length != desiredOutputVectors.length) {
+			throw new IllegalArgumentException("Invalid number of vectors, inputs: " + inputVectors.length
+					+ ", outputs: " + desiredOutputVectors.length);
+		}
+		return runWorkers(random, trainings, (workerRandom, steps, context) -> {
+			double loss = 0;
+			for (int i = 0; i < steps; i++) {
+				int index = workerRandom.nextInt(inputVectors.length);
+				loss += network.train(inputVectors[index], desiredOutputVectors[index], context);
+			}
+			return loss;
+		});
+	}
+
+	/**
+	 * The training steps of a worker.
+	 */
+	@FunctionalInterface
+	private interface Worker {
+
+		/**
+		 * Trains the network a number of steps.
+		 *
+		 * @param random			the random number generator of the worker
+		 * @param steps				the number of training steps
+		 * @param context			the buffers of the worker
+		 * @return the sum of the losses of the training steps
+		 */
+		double train(RandomGenerator random, int steps, InferenceContext context);
+	}
+}
@@ -0,0 +1,497 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A hyperparameter search: trains a number of candidate networks with different configurations
+ * (hidden layers, learning rate, training steps per data set and seed) concurrently on a bounded
+ * pool of threads, and reports the loss and the training time of each candidate.
+ *
+ * <pre>
+ * All candidates share the same training data without copying it (see TrainingData), each candidate
+ * trains its own network with randomly chosen data sets, like BackpropNeuralNetwork.trainRandom().
+ * The training of a candidate is split into checkpoints: at each checkpoint the mean loss of all data 
+ * sets is computed and compared to the best loss reached at this checkpoint by any candidate so far.
+ * A candidate with a loss worse than the cancel factor times the best loss, or a diverged loss, 
+ * is cancelled, so clearly losing candidates do not use up the training budget. The first checkpoints
+ * are a grace period, the loss of a network often stays at a plateau for a while before it drops.
+ *
+ * Usage:
+ *
+ * 		try (HyperparameterSweep sweep = new HyperparameterSweep(trainingData, 4)) {
+ * 			List&lt;HyperparameterSweep.Result&gt; results = sweep.run(HyperparameterSweep.grid(
+ * 					new int[][] { { 2 }, { 4 } }, new double[] { 0.1, 0.3, 0.9 }, new int[] { 1 }, new long[] { 42 }), 
+ * 					100000);
+ * 			BackpropNeuralNetwork best = results.get(0).getNetwork();
+ * 		}
+ *
+ * Which candidates are cancelled depends on the order the candidates are trained in, 
+ * the result of each candidate that is not cancelled does not depend on the other candidates.
+ * </pre>
+ */
+public class HyperparameterSweep implements AutoCloseable {
+
+	/** the training data shared by all candidates */
+	private final TrainingData trainingData;
+	/** the pool training the candidates */
+	private final ForkJoinPool pool;
+	/** true if the pool has been created (and will be shut down) by this sweep */
+	private final boolean ownPool;
+	/** the number of checkpoints of the training of a candidate */
+	private int checkpoints = 10;
+	/** a candidate is cancelled if its loss is worse than this factor times the best loss of a checkpoint */
+	private double cancelFactor = 10;
+	/** the number of the first checkpoints a candidate is not cancelled at, unless it diverged */
+	private int graceCheckpoints = 3;
+
+	/**
+	 * Constructs a sweep using its own pool of threads, to be shut down by <code>close()</code>.
+	 *
+	 * @param trainingData		the training data shared by all candidates
+	 * @param threadCount		the number of threads, the number of candidates trained at the same time
+	 */
+	public HyperparameterSweep(TrainingData trainingData, int threadCount) {
+
+		this(trainingData, new ForkJoinPool(threadCount), true);
+	}
+
+	/**
+	 * Constructs a sweep using a given pool, which is not shut down by <code>close()</code>.
+	 *
+	 * @param trainingData		the training data shared by all candidates
+	 * @param pool				the pool training the candidates
+	 */
+	public HyperparameterSweep(TrainingData trainingData, ForkJoinPool pool) {
+
+		this(trainingData, pool, false);
+	}
+
+	/**
+	 * Constructs a sweep.
+	 *
+	 * @param trainingData		the training data shared by all candidates
+	 * @param pool				the pool training the candidates
+	 * @param ownPool			true if the pool is shut down by <code>close()</code>
+	 */
+	private HyperparameterSweep(TrainingData trainingData, ForkJoinPool pool, boolean ownPool) {
+
+		this.trainingData = trainingData;
+		this.pool = pool;
+		this.ownPool = ownPool;
+	}
+
+	/**
+	 * Shuts down the pool of threads, if it has been created by this sweep.
+	 */
+	@Override
+	public void close() {
+
+		if (ownPool) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the candidates of a grid search: each combination of the values of the hyperparameters.
+	 *
+	 * @param hiddenLayers			the hidden layers: the number of nodes of each hidden layer
+	 * @param learningRates			the learning rates
+	 * @param stepsPerSet			the numbers of training steps per data set
+	 * @param seeds					the seeds of the random numbers of the networks and the training
+	 * @return the candidates
+	 */
+	public static List<Candidate> grid(int[][] hiddenLayers, double[] learningRates, int[] stepsPerSet, long[] seeds) {
+
+		List<Candidate> candidates = new ArrayList<>();
+		for (int[] hiddenNodeCounts : hiddenLayers) {
+			for (double learningRate : learningRates) {
+				for (int steps : stepsPerSet) {
+					for (long seed : seeds) {
+						candidates.add(new Candidate(hiddenNodeCounts, learningRate, steps, seed));
+					}
+				}
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Returns the candidates of a random search with one hidden layer: the number of hidden nodes 
+	 * is chosen uniformly, the learning rate log-uniformly (each order of magnitude equally likely).
+	 *
+	 * @param random				the random number generator choosing the hyperparameters and seeds
+	 * @param count					the number of candidates
+	 * @param minHiddenNodes		the minimum number of hidden nodes
+	 * @param maxHiddenNodes		the maximum number of hidden nodes
+	 * @param minLearningRate		the minimum learning rate
+	 * @param maxLearningRate		the maximum learning rate
+	 * @param stepsPerSet			the numbers of training steps per data set to choose from
+	 * @return the candidates
+	 */
+	public static List<Candidate> random(Random random, int count, int minHiddenNodes, int maxHiddenNodes, 
+			double minLearningRate, double maxLearningRate, int[] stepsPerSet) {
+
+		if (minHiddenNodes < 1 || maxHiddenNodes < minHiddenNodes || minLearningRate <= 0 
+				|| maxLearningRate < minLearningRate || stepsPerSet.length == 0) {
+			throw new IllegalArgumentException("Invalid ranges of the hyperparameters, hidden nodes: " + minHiddenNodes 
+					+ ".." + maxHiddenNodes + ", learning rate: " + minLearningRate + ".." + maxLearningRate 
+					+ ", steps per set: " + Arrays.toString(stepsPerSet));
+		}
+		List<Candidate> candidates = new ArrayList<>();
+		double logMin = Math.log(minLearningRate);
+		double logMax = Math.log(maxLearningRate);
+		for (int i = 0; i < count; i++) {
+			int hiddenNodes = minHiddenNodes + random.nextInt(maxHiddenNodes - minHiddenNodes + 1);
+			double learningRate = Math.exp(logMin + random.nextDouble() * (logMax - logMin));
+			int steps = stepsPerSet[random.nextInt(stepsPerSet.length)];
+			candidates.add(new Candidate(new int[] { hiddenNodes }, learningRate, steps, random.nextLong()));
+		}
+		return candidates;
+	}
+
+	/**
+	 * Records the loss of a candidate at a checkpoint.
+	 *
+	 * @param bestLosses		the best loss of each checkpoint of the run, shared by its candidates
+	 * @param checkpoint		the index of the checkpoint
+	 * @param loss				the loss of the candidate
+	 * @return true if the candidate is clearly losing and is to be cancelled
+	 */
+	private boolean checkpoint(double[] bestLosses, int checkpoint, double loss) {
+
+		if (!Double.isFinite(loss)) {
+			return true;
+		}
+		synchronized (bestLosses) {
+			boolean cancel = checkpoint >= graceCheckpoints && loss > cancelFactor * bestLosses[checkpoint];
+			if (!cancel) {
+				bestLosses[checkpoint] = Math.min(bestLosses[checkpoint], loss);
+			}
+			return cancel;
+		}
+	}
+
+	/**
+	 * @return the factor of the best loss of a checkpoint a candidate is cancelled at
+	 */
+	public double getCancelFactor() {
+
+		return cancelFactor;
+	}
+
+	/**
+	 * @return the number of checkpoints of the training of a candidate
+	 */
+	public int getCheckpoints() {
+
+		return checkpoints;
+	}
+
+	/**
+	 * @return the number of the first checkpoints a candidate is not cancelled at, unless it diverged
+	 */
+	public int getGraceCheckpoints() {
+
+		return graceCheckpoints;
+	}
+
+	/**
+	 * Returns the mean loss of all data sets of the training data.
+	 *
+	 * @param network		the network
+	 * @return the mean loss
+	 */
+	private double loss(BackpropNeuralNetwork network) {
+
+		double sum = 0;
+		for (int i = 0; i < trainingData.getDataSetCount(); i++) {
+			sum += network.loss(i);
+		}
+		return sum / trainingData.getDataSetCount();
+	}
+
+	/**
+	 * Trains the candidates concurrently and returns the results, sorted by the final loss:
+	 * the best candidate first and the cancelled candidates last. Runs may overlap, 
+	 * each run cancels its candidates by the losses of its own candidates only.
+	 *
+	 * @param candidates		the candidates
+	 * @param trainings			the number of randomly chosen data sets of each candidate, each one trained
+	 * 							with the steps per set of the candidate, see <code>BackpropNeuralNetwork.trainRandom()</code>
+	 * @return the results
+	 */
+	public List<Result> run(List<Candidate> candidates, int trainings) {
+
+		double[] bestLosses = new double[checkpoints];
+		Arrays.fill(bestLosses, Double.POSITIVE_INFINITY);
+		List<ForkJoinTask<Result>> tasks = new ArrayList<>();
+		for (Candidate candidate : candidates) {
+			tasks.add(pool.submit(() -> train(candidate, trainings, bestLosses)));
+		}
+		List<Result> results = new ArrayList<>();
+		for (ForkJoinTask<Result> task : tasks) {
+			results.add(task.join());
+		}
+		results.sort(Comparator.comparing(Result::isCancelled).thenComparingDouble(Result::getLoss));
+		return results;
+	}
+
+	/**
+	 * Sets the factor of the best loss of a checkpoint a candidate is cancelled at, the default is 10.
+	 *
+	 * @param cancelFactor		the factor, at least 1, <code>Double.POSITIVE_INFINITY</code> to cancel
+	 * 							diverged candidates only
+	 */
+	public void setCancelFactor(double cancelFactor) {
+
+		if (!(cancelFactor >= 1)) {
+			throw new IllegalArgumentException("Invalid cancel factor: " + cancelFactor);
+		}
+		this.cancelFactor = cancelFactor;
+	}
+
+	/**
+	 * Sets the number of checkpoints of the training of a candidate, the default is 10.
+	 *
+	 * @param checkpoints		the number of checkpoints, at least 1
+	 */
+	public void setCheckpoints(int checkpoints) {
+
+		if (checkpoints < 1) {
+			throw new IllegalArgumentException("Invalid number of checkpoints: " + checkpoints);
+		}
+		this.checkpoints = checkpoints;
+	}
+
+	/**
+	 * Sets the number of the first checkpoints a candidate is not cancelled at, unless it diverged, 
+	 * the default is 3.
+	 *
+	 * @param graceCheckpoints		the number of checkpoints, 0 to check all checkpoints
+	 */
+	public void setGraceCheckpoints(int graceCheckpoints) {
+
+		if (graceCheckpoints < 0) {
+			throw new IllegalArgumentException("Invalid number of grace checkpoints: " + graceCheckpoints);
+		}
+		this.graceCheckpoints = graceCheckpoints;
+	}
+
+	/**
+	 * Trains the network of a candidate checkpoint by checkpoint, until it is finished or cancelled.
+	 *
+	 * @param candidate			the candidate
+	 * @param trainings			the number of randomly chosen data sets of the candidate
+	 * @param bestLosses		the best loss of each checkpoint of the run, one entry per checkpoint
+	 * @return the result
+	 */
+	private Result train(Candidate candidate, int trainings, double[] bestLosses) {
+
+		long start = System.nanoTime();
+		int[] layerNodeCounts = new int[candidate.hiddenNodeCounts.length + 2];
+		layerNodeCounts[0] = trainingData.getInputCount();
+		System.arraycopy(candidate.hiddenNodeCounts, 0, layerNodeCounts, 1, candidate.hiddenNodeCounts.length);
+		layerNodeCounts[layerNodeCounts.length - 1] = trainingData.getOutputCount();
+		Random random = new Random(candidate.seed);
+		BackpropNeuralNetwork network = new BackpropNeuralNetwork(layerNodeCounts, candidate.learningRate, random);
+		network.setTrainingData(trainingData);
+		int trained = 0;
+		double loss = Double.NaN;
+		boolean cancelled = false;
+		int checkpoints = bestLosses.length;
+		for (int i = 0; i < checkpoints && !cancelled; i++) {
+			int end = (int) ((long) (i + 1) * trainings / checkpoints);
+			network.trainRandom(random, end - trained, candidate.stepsPerSet);
+			trained = end;
+			loss = loss(network);
+			cancelled = checkpoint(bestLosses, i, loss);
+		}
+		return new Result(candidate, network, loss, trained, cancelled, System.nanoTime() - start);
+	}
+
+	/**
+	 * A configuration of a network and its training.
+	 */
+	public static final class Candidate {
+
+		/** the number of nodes of each hidden layer */
+		private final int[] hiddenNodeCounts;
+		/** the learning rate */
+		private final double learningRate;
+		/** the number of training steps per data set */
+		private final int stepsPerSet;
+		/** the seed of the random numbers of the network and the training */
+		private final long seed;
+
+		/**
+		 * Constructs a candidate.
+		 *
+		 * @param hiddenNodeCounts		the number of nodes of each hidden layer
+		 * @param learningRate			the learning rate
+		 * @param stepsPerSet			the number of training steps per data set, at least 1
+		 * @param seed					the seed of the random numbers of the network and the training
+		 */
+		public Candidate(int[] hiddenNodeCounts, double learningRate, int stepsPerSet, long seed) {
+
+			if (!(learningRate > 0) || stepsPerSet < 1) {
+				throw new IllegalArgumentException("Invalid learning rate " + learningRate + " or steps per set " 
+						+ stepsPerSet);
+			}
+			this.hiddenNodeCounts = hiddenNodeCounts.clone();
+			this.learningRate = learningRate;
+			this.stepsPerSet = stepsPerSet;
+			this.seed = seed;
+		}
+
+		/**
+		 * @return the number of nodes of each hidden layer
+		 */
+		public int[] getHiddenNodeCounts() {
+
+			return hiddenNodeCounts.clone();
+		}
+
+		/**
+		 * @return the learning rate
+		 */
+		public double getLearningRate() {
+
+			return learningRate;
+		}
+
+		/**
+		 * @return the seed of the random numbers of the network and the training
+		 */
+		public long getSeed() {
+
+			return seed;
+		}
+
+		/**
+		 * @return the number of training steps per data set
+		 */
+		public int getStepsPerSet() {
+
+			return stepsPerSet;
+		}
+
+		@Override
+		public String toString() {
+
+			return "hidden " + Arrays.toString(hiddenNodeCounts) + ", learning rate " + learningRate 
+					+ ", steps per set " + stepsPerSet + ", seed " + seed;
+		}
+	}
+
+	/**
+	 * The result of the training of a candidate.
+	 */
+	public static final class Result {
+
+		/** the candidate */
+		private final Candidate candidate;
+		/** the trained network */
+		private final BackpropNeuralNetwork network;
+		/** the mean loss of the training data at the last checkpoint */
+		private final double loss;
+		/** the number of data sets trained */
+		private final int trainings;
+		/** true if the training has been cancelled */
+		private final boolean cancelled;
+		/** the time of the training in nanoseconds */
+		private final long nanos;
+
+		/**
+		 * Constructs a result.
+		 *
+		 * @param candidate			the candidate
+		 * @param network			the trained network
+		 * @param loss				the mean loss of the training data at the last checkpoint
+		 * @param trainings			the number of data sets trained
+		 * @param cancelled			true if the training has been cancelled
+		 * @param nanos				the time of the training in nanoseconds
+		 */
+		private Result(Candidate candidate, BackpropNeuralNetwork network, double loss, int trainings, 
+				boolean cancelled, long nanos) {
+
+			this.candidate = candidate;
+			this.network = network;
+			this.loss = loss;
+			this.trainings = trainings;
+			this.cancelled = cancelled;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return the candidate
+		 */
+		public Candidate getCandidate() {
+
+			return candidate;
+		}
+
+		/**
+		 * @return the mean loss of the training data at the last checkpoint
+		 */
+		public double getLoss() {
+
+			return loss;
+		}
+
+		/**
+		 * @return the time of the training in nanoseconds (wall-clock)
+		 */
+		public long getNanos() {
+
+			return nanos;
+		}
+
+		/**
+		 * @return the trained network, the training data of the sweep is set
+		 */
+		public BackpropNeuralNetwork getNetwork() {
+
+			return network;
+		}
+
+		/**
+		 * @return the number of data sets trained
+		 */
+		public int getTrainings() {
+
+			return trainings;
+		}
+
+		/**
+		 * @return true if the training has been cancelled
+		 */
+		public boolean isCancelled() {
+
+			return cancelled;
+		}
+
+		@Override
+		public String toString() {
+
+			return String.format(Locale.ROOT, "%s: loss %.6f, %d trainings%s, %d ms", candidate, loss, trainings, 
+					cancelled ? " (cancelled)" : "", nanos / 1000000);
+		}
+	}
+}
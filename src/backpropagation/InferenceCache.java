@@ -0,0 +1,253 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+
+/**
+ * A bounded cache of the outputs of a <code>BackpropNeuralNetwork</code> for repeated input vectors,
+ * keyed on the contents of the input vectors, evicting the least recently used entry if it is full.
+ *
+ * <pre>
+ * Inference with few distinct input vectors (e.g. truth tables, discrete features) answers repeated
+ * vectors without a forward pass. The cache is cleared automatically when the network has changed 
+ * since the outputs were computed: by a training step, a change of an activation or a call of 
+ * BackpropNeuralNetwork.weightsChanged() after changing the weights directly (see getModificationCount()).
+ *
+ * The cache may be shared by several threads, each of them with its own inference context:
+ *
+ * 		InferenceCache cache = new InferenceCache(neuralNetwork, 1000);
+ * 		InferenceContext context = neuralNetwork.createInferenceContext();		// once per thread
+ * 		double[] outputs = cache.forwardPass(inputs, context);
+ *
+ * Like the forward pass of the network, the cache must not be used while the network is trained.
+ * Input vectors are compared by their values (see Arrays.equals()), the lookup costs a hash 
+ * of the input vector, so the cache pays off for networks that are large compared to their inputs.
+ * </pre>
+ */
+public class InferenceCache {
+
+	/** the network computing the outputs */
+	private final BackpropNeuralNetwork network;
+	/** the maximum number of entries */
+	private final int capacity;
+	/** the outputs by the input vectors, in the order of their last use */
+	private final LinkedHashMap<Key, double[]> entries;
+	/** the modification count of the network the entries have been computed with */
+	private long modificationCount;
+	/** the number of inputs answered by the cache */
+	private long hits;
+	/** the number of inputs computed by the network */
+	private long misses;
+	/** the number of entries evicted because the cache was full */
+	private long evictions;
+	/** the number of times the cache was cleared because the network had changed */
+	private long invalidations;
+
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param network			the network computing the outputs
+	 * @param capacity			the maximum number of entries, at least 1
+	 */
+	public InferenceCache(BackpropNeuralNetwork network, int capacity) {
+
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Invalid capacity of the cache: " + capacity);
+		}
+		this.network = network;
+		this.capacity = capacity;
+		entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+
+				if (size() > InferenceCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+		modificationCount = network.getModificationCount();
+	}
+
+	/**
+	 * Removes all entries, the counters are kept.
+	 */
+	public synchronized void clear() {
+
+		entries.clear();
+	}
+
+	/**
+	 * Returns the outputs for an input vector, using the buffers of the network for a miss,
+	 * see <code>BackpropNeuralNetwork.forwardPass(double[])</code>: for one thread only.
+	 * 
+	 * @param inputs			the input vector
+	 * @return the output vector, which must not be changed
+	 */
+	public double[] forwardPass(double[] inputs) {
+
+		return forwardPass(inputs, null);
+	}
+
+	/**
+	 * Returns the outputs for an input vector: the cached outputs, or the outputs computed by the network
+	 * using the buffers of a context, which are added to the cache.
+	 * 
+	 * @param inputs			the input vector
+	 * @param context			the buffers of the calling thread for a miss, see 
+	 * 							<code>BackpropNeuralNetwork.createInferenceContext()</code>, or null
+	 * 							for the buffers of the network
+	 * @return the output vector, which must not be changed
+	 */
+	public double[] forwardPass(double[] inputs, InferenceContext context) {
+
+		Key key = new Key(inputs);
+		long currentCount = network.getModificationCount();
+		synchronized (this) {
+			if (currentCount != modificationCount) {
+				if (!entries.isEmpty()) {
+					entries.clear();
+					invalidations++;
+				}
+				modificationCount = currentCount;
+			}
+			double[] outputs = entries.get(key);
+			if (outputs != null) {
+				hits++;
+				return outputs;
+			}
+			misses++;
+		}
+		double[] outputs = context == null ? network.forwardPass(inputs) : network.forwardPass(inputs, context);
+		outputs = outputs.clone();
+		synchronized (this) {
+			// do not add outputs of a network changed in the meantime
+			if (currentCount == modificationCount) {
+				entries.put(new Key(inputs.clone(), key.hash), outputs);
+			}
+		}
+		return outputs;
+	}
+
+	/**
+	 * @return the maximum number of entries
+	 */
+	public int getCapacity() {
+
+		return capacity;
+	}
+
+	/**
+	 * @return the number of entries evicted because the cache was full
+	 */
+	public synchronized long getEvictions() {
+
+		return evictions;
+	}
+
+	/**
+	 * @return the number of inputs answered by the cache
+	 */
+	public synchronized long getHits() {
+
+		return hits;
+	}
+
+	/**
+	 * @return the number of times the cache was cleared because the network had changed
+	 */
+	public synchronized long getInvalidations() {
+
+		return invalidations;
+	}
+
+	/**
+	 * @return the number of inputs computed by the network
+	 */
+	public synchronized long getMisses() {
+
+		return misses;
+	}
+
+	/**
+	 * @return the current number of entries
+	 */
+	public synchronized int getSize() {
+
+		return entries.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+
+		long lookups = hits + misses;
+		return "InferenceCache [size=" + entries.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses 
+				+ ", hit rate=" + (lookups == 0 ? 0 : Math.round(1000.0 * hits / lookups) / 10.0) + "%, evictions=" 
+				+ evictions + ", invalidations=" + invalidations + "]";
+	}
+
+	/**
+	 * The key of an entry: an input vector compared by its values.
+	 */
+	private static final class Key {
+
+		/** the input vector */
+		private final double[] values;
+		/** the hash code of the values */
+		private final int hash;
+
+		/**
+		 * Constructs a key.
+		 *
+		 * @param values		the input vector
+		 */
+		Key(double[] values) {
+
+			this(values, Arrays.hashCode(values));
+		}
+
+		/**
+		 * Constructs a key with a known hash code.
+		 *
+		 * @param values		the input vector
+		 * @param hash			the hash code of the values
+		 */
+		Key(double[] values, int hash) {
+
+			this.values = values;
+			this.hash = hash;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+
+			return object instanceof Key && ((Key) object).hash == hash 
+					&& Arrays.equals(((Key) object).values, values);
+		}
+
+		@Override
+		public int hashCode() {
+
+			return hash;
+		}
+	}
+}
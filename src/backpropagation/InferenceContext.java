@@ -0,0 +1,69 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The buffers for the outputs of all nodes during a forward pass, owned by one thread,
+ * and for the errors of all nodes during a training step (see <code>HogwildTrainer</code>).
+ * A context is created by <code>BackpropNeuralNetwork.createInferenceContext()</code> and may be
+ * reused for any number of inferences, so concurrent threads can share one trained network
+ * without allocating anything per call:
+ *
+ * <pre>
+ * 		InferenceContext context = neuralNetwork.createInferenceContext();		// once per thread
+ * 		double[] outputs = neuralNetwork.forwardPass(inputs, context);
+ * </pre>
+ */
+public class InferenceContext {
+
+	/** the outputs of the nodes of each layer */
+	final double[][] layerOutputs;
+	/** the errors of the nodes of each layer in a training step, used for backpropagation */
+	final double[][] layerErrors;
+	/** a data set of off-heap training data, copied to the heap for a training step, allocated on first use */
+	double[] dataSetBuffer;
+	/** the input vectors of a block of a batch inference, allocated on first use */
+	double[] blockInputs;
+	/** the outputs of the nodes of each layer for a block of a batch inference, allocated on first use */
+	double[][] blockLayerOutputs;
+
+	/**
+	 * Constructs a context.
+	 *
+	 * @param layers		the layers of the network
+	 */
+	InferenceContext(Layer[] layers) {
+
+		layerOutputs = new double[layers.length][];
+		layerErrors = new double[layers.length][];
+		for (int i = 0; i < layers.length; i++) {
+			layerOutputs[i] = new double[layers[i].getNodeCount()];
+			layerErrors[i] = new double[layers[i].getNodeCount()];
+		}
+	}
+
+	/**
+	 * Returns the outputs of the last forward pass using this context.
+	 * The array is reused by the next forward pass.
+	 *
+	 * @return the outputs
+	 */
+	public double[] getOutputs() {
+
+		return layerOutputs[layerOutputs.length - 1];
+	}
+}
@@ -0,0 +1,77 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.random.*;
+
+/**
+ * An initializer: the random weights and biases of a layer before training, different for each node
+ * ("symmetry breaking"), see <code>BackpropNeuralNetwork.initialize()</code>.
+ * An initializer fills the whole weight array of a layer in one loop using a <code>RandomGenerator</code>,
+ * e.g. a <code>SplittableRandom</code>, without the atomic update of <code>java.util.Random</code> per number.
+ *
+ * <pre>
+ * The initializers of this package:
+ *
+ * 		UniformInitializer	uniform random numbers in a range, [0.1 .. 0.5] by default like the constructors
+ * 							of BackpropNeuralNetwork
+ * 		XavierInitializer	Xavier/Glorot: uniform in +/- sqrt(6 / (inputs + nodes)), biases zero, for sigmoid and tanh
+ * 		HeInitializer		He: normal distribution with a deviation of sqrt(2 / inputs), biases zero, for ReLU
+ *
+ * The scaled initializers keep the variance of the outputs of a node about the same for any number 
+ * of inputs, so large layers do not start saturated (sigmoid, tanh) or exploding (ReLU).
+ * </pre>
+ */
+public abstract class Initializer {
+
+	/**
+	 * Fills a range of an array with uniformly distributed random numbers.
+	 *
+	 * @param values		the array
+	 * @param from			the first index of the range, inclusive
+	 * @param to			the last index of the range, exclusive
+	 * @param min			the minimum of the random numbers, inclusive
+	 * @param max			the maximum of the random numbers, exclusive
+	 * @param random		the random number generator
+	 */
+	protected static void fillUniform(double[] values, int from, int to, double min, double max, 
+			RandomGenerator random) {
+
+		for (int i = from; i < to; i++) {
+			values[i] = random.nextDouble(min, max);
+		}
+	}
+
+	/**
+	 * @return the name of this initializer, including its parameters
+	 */
+	public abstract String getName();
+
+	/**
+	 * Initializes the weights and biases of a layer.
+	 *
+	 * @param layer			the layer
+	 * @param random		the random number generator, used by one thread only
+	 */
+	public abstract void initialize(Layer layer, RandomGenerator random);
+
+	@Override
+	public String toString() {
+
+		return getName();
+	}
+}
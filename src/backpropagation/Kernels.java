@@ -0,0 +1,224 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The computational kernels of the networks: dot products, scaled vector additions
+ * (the outer-product weight updates), the exact sigmoid function and the derivatives 
+ * of the activation step.
+ *
+ * <pre>
+ * Two backends are available, selected once at runtime:
+ *
+ * 		vector		SIMD kernels using the Java Vector API (module jdk.incubator.vector),
+ * 					used if the module has been added to the JVM, like
+ * 					java --add-modules jdk.incubator.vector ...
+ * 		scalar		plain Java loops, used otherwise
+ *
+ * The system property backpropagation.kernels=scalar forces the scalar backend.
+ * Each backend has single precision variants of some kernels, for <code>FloatBackpropNeuralNetwork</code>,
+ * using twice the number of lanes of the vector backend.
+ *
+ * Tolerance: the backends give the same derivatives, but the vector backend sums up
+ * the dot products in a different order (one partial sum per lane), so results differ by rounding.
+ * The relative difference of a dot product of length n is below n * 2^-53 of the sum of
+ * the absolute products, for the layer sizes of neural networks usually below 1e-12.
+ * A training of many steps may amplify this slightly, like any change of the rounding.
+ * The exponential function of the exact sigmoid of the vector backend is within 1 ulp of Math.exp().
+ * The table lookups of the activations are plain loops of the activations: the vector API
+ * of Java 17 does not compile the conversion of the table indices to SIMD instructions, 
+ * a vector gather measured more than twice as slow as the scalar loop.
+ * </pre>
+ */
+public abstract class Kernels {
+
+	/** the name of the system property to select a backend */
+	public static final String PROPERTY = "backpropagation.kernels";
+	/** the name of the vector API module */
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+	/** the backend in use */
+	private static final Kernels INSTANCE = select();
+
+	/**
+	 * Adds a scaled vector to a vector, <code>y[i] += alpha * x[i]</code>.
+	 *
+	 * @param alpha			the scale
+	 * @param x				the array of the vector to add
+	 * @param xOffset		the index of the first element of <code>x</code>
+	 * @param y				the array of the vector to add to
+	 * @param yOffset		the index of the first element of <code>y</code>
+	 * @param length		the length of the vectors
+	 */
+	abstract void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+	/**
+	 * Adds a scaled vector to a vector in single precision, <code>y[i] += alpha * x[i]</code>.
+	 *
+	 * @param alpha			the scale
+	 * @param x				the array of the vector to add
+	 * @param xOffset		the index of the first element of <code>x</code>
+	 * @param y				the array of the vector to add to
+	 * @param yOffset		the index of the first element of <code>y</code>
+	 * @param length		the length of the vectors
+	 */
+	abstract void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+	/**
+	 * Adds four scaled vectors to a vector,
+	 * <code>y[i] += alpha0 * x0[i] + alpha1 * x1[i] + alpha2 * x2[i] + alpha3 * x3[i]</code>,
+	 * where the four vectors are stored at a distance of <code>stride</code> in one array.
+	 *
+	 * @param alpha0		the scale of the first vector
+	 * @param alpha1		the scale of the second vector
+	 * @param alpha2		the scale of the third vector
+	 * @param alpha3		the scale of the fourth vector
+	 * @param x				the array of the vectors to add
+	 * @param xOffset		the index of the first element of the first vector
+	 * @param stride		the distance between the vectors within <code>x</code>
+	 * @param y				the array of the vector to add to
+	 * @param yOffset		the index of the first element of <code>y</code>
+	 * @param length		the length of the vectors
+	 */
+	abstract void axpy4(double alpha0, double alpha1, double alpha2, double alpha3,
+			double[] x, int xOffset, int stride, double[] y, int yOffset, int length);
+
+	/**
+	 * Returns the dot product of two vectors.
+	 *
+	 * @param a				the array of the first vector
+	 * @param aOffset		the index of the first element of <code>a</code>
+	 * @param b				the array of the second vector
+	 * @param bOffset		the index of the first element of <code>b</code>
+	 * @param length		the length of the vectors
+	 * @return the dot product
+	 */
+	abstract double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+	/**
+	 * Returns the dot product of two vectors in single precision.
+	 *
+	 * @param a				the array of the first vector
+	 * @param aOffset		the index of the first element of <code>a</code>
+	 * @param b				the array of the second vector
+	 * @param bOffset		the index of the first element of <code>b</code>
+	 * @param length		the length of the vectors
+	 * @return the dot product
+	 */
+	abstract float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+	/**
+	 * Returns the dot product of two vectors of 8 bit integers, accumulated in 32 bit integers.
+	 * The caller has to make sure the sum does not overflow, see <code>QuantizedNeuralNetwork</code>.
+	 *
+	 * @param a				the array of the first vector
+	 * @param aOffset		the index of the first element of <code>a</code>
+	 * @param b				the array of the second vector
+	 * @param bOffset		the index of the first element of <code>b</code>
+	 * @param length		the length of the vectors
+	 * @return the dot product
+	 */
+	abstract int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+	/**
+	 * Computes the dot products of four vectors with one vector, the four vectors are stored
+	 * one after another (like four rows of a matrix).
+	 *
+	 * @param rows				the array of the four vectors
+	 * @param rowsOffset		the index of the first element of the first vector
+	 * @param vector			the array of the vector
+	 * @param vectorOffset		the index of the first element of <code>vector</code>
+	 * @param length			the length of the vectors
+	 * @param results			the four dot products
+	 * @param resultOffset		the index of the first dot product within <code>results</code>
+	 */
+	abstract void dot4(double[] rows, int rowsOffset, double[] vector, int vectorOffset, int length,
+			double[] results, int resultOffset);
+
+	/**
+	 * @return the backend in use
+	 */
+	public static Kernels get() {
+
+		return INSTANCE;
+	}
+
+	/**
+	 * @return the name of this backend
+	 */
+	public abstract String getName();
+
+	/**
+	 * Selects the backend: the vector backend if the vector module is available and
+	 * not disabled, the scalar backend otherwise.
+	 *
+	 * @return the backend
+	 */
+	private static Kernels select() {
+
+		if (!"scalar".equals(System.getProperty(PROPERTY))
+				&& ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+			try {
+				// loaded by name, the class must not be touched without the vector module
+				return (Kernels) Class.forName(Kernels.class.getPackageName() + ".VectorKernels")
+						.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// fall back to the scalar backend
+			}
+		}
+		return new ScalarKernels();
+	}
+
+	/**
+	 * Multiplies the errors of the nodes by the derivative of the sigmoid function, 
+	 * <code>errors[i] = errors[i] * outputs[i] * (1 - outputs[i])</code>.
+	 *
+	 * @param outputs		the outputs of the nodes
+	 * @param errors		the errors of the nodes
+	 * @param from			the index of the first node
+	 * @param to			the index after the last node
+	 */
+	abstract void multiplySigmoidDerivative(double[] outputs, double[] errors, int from, int to);
+
+	/**
+	 * Multiplies the errors of the nodes by the derivative of the tanh, 
+	 * <code>errors[i] *= 1 - outputs[i] * outputs[i]</code>.
+	 *
+	 * @param outputs		the outputs of the nodes
+	 * @param errors		the errors of the nodes
+	 * @param from			the index of the first node
+	 * @param to			the index after the last node
+	 */
+	abstract void multiplyTanhDerivative(double[] outputs, double[] errors, int from, int to);
+
+	/**
+	 * Applies the exact sigmoid function <code>1 / (1 + Math.exp(-x))</code> to a range of values in place.
+	 *
+	 * @param values		the values
+	 * @param from			the index of the first value
+	 * @param to			the index after the last value
+	 */
+	abstract void sigmoid(double[] values, int from, int to);
+
+	/**
+	 * @return the name of this backend
+	 */
+	@Override
+	public String toString() {
+
+		return getName();
+	}
+}
@@ -0,0 +1,158 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * A layer of nodes (neurons) of a <code>BackpropNeuralNetwork</code>, a hidden layer or the output layer:
+ * the weights of the connections from the nodes of the previous layer (or the inputs) and the bias of each node.
+ * The outputs and errors of the nodes are not part of a layer, they are kept in buffers of the caller
+ * (see <code>InferenceContext</code>), so a layer may be used by several threads for inference.
+ */
+public class Layer {
+
+	/** the number of inputs: the nodes of the previous layer */
+	private final int inputCount;
+	/** the number of nodes */
+	private final int nodeCount;
+	/** the weights of the connections into the nodes: one row per node */
+	private final WeightMatrix weights;
+	/** the bias of the nodes */
+	private final double[] bias;
+	/** the activation function of the nodes */
+	private Activation activation = SigmoidActivation.DEFAULT;
+
+	/**
+	 * Constructs a layer, all weights and biases are zero.
+	 *
+	 * @param inputCount		the number of inputs: the nodes of the previous layer
+	 * @param nodeCount			the number of nodes
+	 */
+	public Layer(int inputCount, int nodeCount) {
+
+		this.inputCount = inputCount;
+		this.nodeCount = nodeCount;
+		weights = new WeightMatrix(nodeCount, inputCount);
+		bias = new double[nodeCount];
+	}
+
+	/**
+	 * Computes the outputs of the nodes for the outputs of the previous layer.
+	 *
+	 * @param inputs		the outputs of the previous layer (or the input vector)
+	 * @param outputs		the outputs of the nodes of this layer
+	 */
+	void forward(double[] inputs, double[] outputs) {
+
+		forward(inputs, 0, outputs);
+	}
+
+	/**
+	 * Computes the outputs of the nodes for the outputs of the previous layer, read at an offset.
+	 *
+	 * @param inputs			the outputs of the previous layer (or the input vector)
+	 * @param inputOffset		the index of the first input within <code>inputs</code>
+	 * @param outputs			the outputs of the nodes of this layer
+	 */
+	void forward(double[] inputs, int inputOffset, double[] outputs) {
+
+		weights.multiply(inputs, inputOffset, bias, outputs);
+		activation.apply(outputs, 0, nodeCount);
+	}
+
+	/**
+	 * Computes the outputs of the nodes for a sparse input vector.
+	 *
+	 * @param inputs			the input vector
+	 * @param outputs			the outputs of the nodes of this layer
+	 */
+	void forward(SparseVector inputs, double[] outputs) {
+
+		weights.multiply(inputs, bias, outputs);
+		activation.apply(outputs, 0, nodeCount);
+	}
+
+	/**
+	 * Computes the outputs of the nodes for a number of output vectors of the previous layer,
+	 * as a matrix-matrix product.
+	 *
+	 * @param inputs			the output vectors of the previous layer (or the input vectors), one after another
+	 * @param inputOffset		the index of the first input within <code>inputs</code>
+	 * @param count				the number of vectors
+	 * @param outputs			the output vectors of this layer, one after another
+	 * @param outputOffset		the index of the first output within <code>outputs</code>
+	 */
+	void forwardBatch(double[] inputs, int inputOffset, int count, double[] outputs, int outputOffset) {
+
+		weights.multiplyBatch(inputs, inputOffset, count, bias, outputs, outputOffset);
+		activation.apply(outputs, outputOffset, count, nodeCount);
+	}
+
+	/**
+	 * @return the activation function of the nodes
+	 */
+	public Activation getActivation() {
+
+		return activation;
+	}
+
+	/**
+	 * Returns the bias of the nodes. Changes to the array are changes of the biases.
+	 *
+	 * @return the bias of the nodes
+	 */
+	public double[] getBias() {
+
+		return bias;
+	}
+
+	/**
+	 * @return the number of inputs: the nodes of the previous layer
+	 */
+	public int getInputCount() {
+
+		return inputCount;
+	}
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the weights of the connections into the nodes, one row per node
+	 * and one column per node of the previous layer (or input).
+	 *
+	 * @return the weights
+	 */
+	public WeightMatrix getWeights() {
+
+		return weights;
+	}
+
+	/**
+	 * Sets the activation function of the nodes, see <code>BackpropNeuralNetwork.setActivation()</code>.
+	 *
+	 * @param activation		the activation function
+	 */
+	void setActivation(Activation activation) {
+
+		this.activation = activation;
+	}
+}
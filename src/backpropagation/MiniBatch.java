@@ -0,0 +1,170 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The buffers of a mini-batch training: the data sets of the batch, the outputs and errors
+ * of all nodes for each data set, and the gradients accumulated over the whole batch.
+ * All vectors of a batch are stored one after another in one array per layer, so the
+ * forward and backward passes of the batch are matrix-matrix products.
+ */
+class MiniBatch {
+
+	/** the maximum number of data sets of this batch */
+	final int capacity;
+	/** the current number of data sets of this batch */
+	int size;
+	/** the input vectors */
+	final double[] inputs;
+	/** the desired output vectors */
+	final double[] desiredOutputs;
+	/** the outputs of the nodes of each layer, one vector per data set */
+	final double[][] outputs;
+	/** the errors of the nodes of each layer, one vector per data set */
+	final double[][] errors;
+	/** the gradients of the weights of each layer, summed over the batch */
+	final WeightMatrix[] gradients;
+	/** the gradients of the bias of each layer, summed over the batch */
+	final double[][] biasGradients;
+	/** the sum of the losses of the data sets */
+	double loss;
+	/** the time of the forward pass of the batch, if the metrics are enabled */
+	long forwardNanos;
+	/** the time of the backward pass of the batch, if the metrics are enabled */
+	long backwardNanos;
+
+	/**
+	 * Constructs an empty mini-batch.
+	 *
+	 * @param layers			the layers of the network
+	 * @param capacity			the maximum number of data sets of the batch
+	 */
+	MiniBatch(Layer[] layers, int capacity) {
+
+		this.capacity = capacity;
+		inputs = new double[capacity * layers[0].getInputCount()];
+		desiredOutputs = new double[capacity * layers[layers.length - 1].getNodeCount()];
+		outputs = new double[layers.length][];
+		errors = new double[layers.length][];
+		gradients = new WeightMatrix[layers.length];
+		biasGradients = new double[layers.length][];
+		for (int i = 0; i < layers.length; i++) {
+			int nodeCount = layers[i].getNodeCount();
+			outputs[i] = new double[capacity * nodeCount];
+			errors[i] = new double[capacity * nodeCount];
+			gradients[i] = new WeightMatrix(nodeCount, layers[i].getInputCount());
+			biasGradients[i] = new double[nodeCount];
+		}
+	}
+
+	/**
+	 * Adds a data set to this batch.
+	 *
+	 * @param inputVector				the input vector
+	 * @param desiredOutputVector		the desired output vector
+	 */
+	void add(double[] inputVector, double[] desiredOutputVector) {
+
+		System.arraycopy(inputVector, 0, inputs, size * inputVector.length, inputVector.length);
+		System.arraycopy(desiredOutputVector, 0, desiredOutputs, size * desiredOutputVector.length,
+				desiredOutputVector.length);
+		size++;
+	}
+
+	/**
+	 * Adds a data set of training data to this batch.
+	 *
+	 * @param data				the training data
+	 * @param dataSetIndex		the index of the data set within the training data
+	 */
+	void add(TrainingData data, int dataSetIndex) {
+
+		data.copyInputs(dataSetIndex, inputs, size * data.getInputCount());
+		data.copyOutputs(dataSetIndex, desiredOutputs, size * data.getOutputCount());
+		size++;
+	}
+
+	/**
+	 * Adds the loss and the times of another batch to this batch.
+	 * 
+	 * @param batch			the batch with the loss and times to add
+	 */
+	void addMetrics(MiniBatch batch) {
+
+		loss += batch.loss;
+		forwardNanos += batch.forwardNanos;
+		backwardNanos += batch.backwardNanos;
+	}
+
+	/**
+	 * Adds a range of the gradients of another batch to the gradients of this batch.
+	 * The range is a range of indices into the flat gradient arrays, the weights and biases layer by layer,
+	 * which allows to split the reduction of the gradients of several batches into independent parts.
+	 * 
+	 * @param batch			the batch with the gradients to add
+	 * @param from			the first index of the range, inclusive
+	 * @param to			the last index of the range, exclusive
+	 */
+	void addGradients(MiniBatch batch, int from, int to) {
+
+		int offset = 0;
+		for (int i = 0; i < gradients.length; i++) {
+			offset = addRange(gradients[i].getValues(), batch.gradients[i].getValues(), offset, from, to);
+			offset = addRange(biasGradients[i], batch.biasGradients[i], offset, from, to);
+		}
+	}
+
+	/**
+	 * Adds the part of a gradient array overlapping a range of the flat gradient indices.
+	 * 
+	 * @param sum			the gradient array to add to
+	 * @param values		the gradient array to add
+	 * @param offset		the flat index of the first element of the arrays
+	 * @param from			the first flat index of the range, inclusive
+	 * @param to			the last flat index of the range, exclusive
+	 * @return the flat index following the arrays
+	 */
+	private static int addRange(double[] sum, double[] values, int offset, int from, int to) {
+
+		int start = Math.max(from - offset, 0);
+		int end = Math.min(to - offset, sum.length);
+		for (int i = start; i < end; i++) {
+			sum[i] += values[i];
+		}
+		return offset + sum.length;
+	}
+
+	/**
+	 * Removes all data sets from this batch, the buffers are kept.
+	 */
+	void clear() {
+
+		size = 0;
+	}
+
+	/**
+	 * @return the number of all gradients: weights and biases
+	 */
+	int gradientCount() {
+
+		int count = 0;
+		for (int i = 0; i < gradients.length; i++) {
+			count += gradients[i].getValues().length + biasGradients[i].length;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,325 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * A compact, versioned binary file format of a trained <code>BackpropNeuralNetwork</code>:
+ * the layer sizes, the learning rate, the activations, the weights and the biases.
+ *
+ * <pre>
+ * The file format (little-endian):
+ *
+ * 		int		magic number 0x42504E4E ("BPNN")
+ * 		int		version, 2
+ * 		int		the number of node counts n, the number of layers + 1
+ * 		int[n]	the node counts: the inputs, the nodes of each hidden layer and the outputs
+ * 		... 	zero padding to a multiple of 8 bytes
+ * 		double	the learning rate
+ * 		...		for each layer the activation, 40 bytes (not in version 1 files, all layers are sigmoid):
+ * 				int		the type: 0 sigmoid, 1 tanh, 2 ReLU, 3 softmax
+ * 				int		the <code>SigmoidActivation.Method</code> of sigmoid and tanh (ordinal)
+ * 				int		the table size of sigmoid and tanh
+ * 				int		zero
+ * 				double	the minimum table value of sigmoid and tanh
+ * 				double	the maximum table value of sigmoid and tanh
+ * 				double	the slope alpha of ReLU
+ * 		double	for each layer: the weights, row after row (one row per node), followed by the bias
+ *
+ * A model is loaded by memory-mapping the file and copying each array of weights with one bulk transfer
+ * from the page cache, there is no parsing of single values. Loading a model of some hundred MB 
+ * takes some ten milliseconds if the file is cached.
+ * </pre>
+ */
+public class ModelFile {
+
+	/** the magic number at the start of a file */
+	public static final int MAGIC = 0x42504E4E;
+	/** the version of the file format */
+	public static final int FORMAT_VERSION = 2;
+	/** the size of the activation of a layer */
+	private static final int ACTIVATION_SIZE = 4 * Integer.BYTES + 3 * Double.BYTES;
+	/** the activation types */
+	private static final int SIGMOID = 0, TANH = 1, RELU = 2, SOFTMAX = 3;
+	/** the byte order of a file */
+	public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	/** the maximum size of a memory-mapped chunk of a file */
+	private static final int MAX_CHUNK_SIZE = 1 << 30;
+	/** the size of the write buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Returns the size of the header of a model: the fields up to the node counts, 
+	 * padded to a multiple of 8 bytes.
+	 *
+	 * @param nodeCounts		the number of node counts
+	 * @return the size of the header in bytes
+	 */
+	private static long headerSize(int nodeCounts) {
+
+		return (3 * Integer.BYTES + (long) nodeCounts * Integer.BYTES + 7) / 8 * 8;
+	}
+
+	/**
+	 * Reads the activation of a layer.
+	 *
+	 * @param buffer			the buffer, positioned at the activation
+	 * @param path				the file
+	 * @return the activation
+	 * @throws IOException		if the activation is invalid
+	 */
+	private static Activation readActivation(ByteBuffer buffer, Path path) throws IOException {
+
+		int type = buffer.getInt();
+		int method = buffer.getInt();
+		int tableSize = buffer.getInt();
+		buffer.getInt();
+		double min = buffer.getDouble();
+		double max = buffer.getDouble();
+		double alpha = buffer.getDouble();
+		try {
+			switch (type) {
+				case SIGMOID:
+					return readSigmoid(method, tableSize, min, max);
+				case TANH:
+					return new TanhActivation(readSigmoid(method, tableSize, min, max));
+				case RELU:
+					return new ReluActivation(alpha);
+				case SOFTMAX:
+					return new SoftmaxActivation();
+				default:
+					throw new IOException("Unknown activation type " + type + ": " + path);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt model file (" + e.getMessage() + "): " + path, e);
+		}
+	}
+
+	/**
+	 * Returns the sigmoid activation of the stored parameters, the default one if it is equal.
+	 *
+	 * @param method			the ordinal of the method
+	 * @param tableSize			the table size
+	 * @param min				the minimum table value
+	 * @param max				the maximum table value
+	 * @return the activation
+	 */
+	private static SigmoidActivation readSigmoid(int method, int tableSize, double min, double max) {
+
+		SigmoidActivation.Method[] methods = SigmoidActivation.Method.values();
+		if (method < 0 || method >= methods.length) {
+			throw new IllegalArgumentException("unknown sigmoid method " + method);
+		}
+		SigmoidActivation defaultSigmoid = SigmoidActivation.DEFAULT;
+		if (methods[method] == defaultSigmoid.getMethod() && tableSize == defaultSigmoid.getTableSize()
+				&& min == defaultSigmoid.getMin() && max == defaultSigmoid.getMax()) {
+			return defaultSigmoid;
+		}
+		return new SigmoidActivation(methods[method], tableSize, min, max);
+	}
+
+	/**
+	 * Loads a model file.
+	 *
+	 * @param path				the file
+	 * @return the network
+	 * @throws IOException		if the file cannot be read or is not a model file
+	 */
+	public static BackpropNeuralNetwork read(Path path) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer start = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 3 * Integer.BYTES))
+					.order(BYTE_ORDER);
+			if (start.remaining() < 3 * Integer.BYTES || start.getInt() != MAGIC) {
+				throw new IOException("Not a model file: " + path);
+			}
+			int version = start.getInt();
+			if (version != 1 && version != FORMAT_VERSION) {
+				throw new IOException("Unsupported model file version " + version + ": " + path);
+			}
+			int nodeCountCount = start.getInt();
+			// the node counts are checked against the file size before the array is allocated
+			if (nodeCountCount < 2 || nodeCountCount > (size - 3 * Integer.BYTES) / Integer.BYTES) {
+				throw new IOException("Corrupt model file: " + path);
+			}
+			long activationsSize = version == 1 ? 0 : (nodeCountCount - 1L) * ACTIVATION_SIZE;
+			long headerLength = headerSize(nodeCountCount) + Double.BYTES + activationsSize;
+			if (size < headerLength || headerLength > Integer.MAX_VALUE) {
+				throw new IOException("Corrupt model file: " + path);
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerLength).order(BYTE_ORDER);
+			header.position(3 * Integer.BYTES);
+			int[] nodeCounts = new int[nodeCountCount];
+			long expectedSize = headerLength;
+			for (int i = 0; i < nodeCountCount; i++) {
+				nodeCounts[i] = header.getInt();
+				if (nodeCounts[i] <= 0) {
+					throw new IOException("Corrupt model file: " + path);
+				}
+				if (i > 0) {
+					expectedSize += ((long) nodeCounts[i] * nodeCounts[i - 1] + nodeCounts[i]) * Double.BYTES;
+				}
+			}
+			if (size != expectedSize) {
+				throw new IOException("Corrupt model file (size " + size + " instead of " + expectedSize + "): " + path);
+			}
+			header.position((int) headerSize(nodeCountCount));
+			double learningRate = header.getDouble();
+			BackpropNeuralNetwork network = new BackpropNeuralNetwork(nodeCounts, learningRate);
+			for (int l = 0; l < network.getLayerCount(); l++) {
+				// version 1 files were written when the sigmoid table was the only activation
+				network.getLayer(l).setActivation(version == 1 ? SigmoidActivation.table() : readActivation(header, path));
+			}
+			long position = headerLength;
+			for (int l = 0; l < network.getLayerCount(); l++) {
+				Layer layer = network.getLayer(l);
+				position = read(channel, position, layer.getWeights().getValues());
+				position = read(channel, position, layer.getBias());
+			}
+			return network;
+		}
+	}
+
+	/**
+	 * Reads an array of values, mapping the file in chunks.
+	 *
+	 * @param channel			the file
+	 * @param position			the position of the first value within the file
+	 * @param values			the values to read
+	 * @return the position following the values
+	 * @throws IOException		if the file cannot be read
+	 */
+	private static long read(FileChannel channel, long position, double[] values) throws IOException {
+
+		for (int i = 0; i < values.length; ) {
+			int length = Math.min(values.length - i, MAX_CHUNK_SIZE / Double.BYTES);
+			channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * Double.BYTES)
+					.order(BYTE_ORDER).asDoubleBuffer().get(values, i, length);
+			position += (long) length * Double.BYTES;
+			i += length;
+		}
+		return position;
+	}
+
+	/**
+	 * Saves a model to a file.
+	 *
+	 * @param path				the file, replaced if it exists
+	 * @param network			the network
+	 * @throws IOException		if the file cannot be written
+	 */
+	public static void write(Path path, BackpropNeuralNetwork network) throws IOException {
+
+		int layerCount = network.getLayerCount();
+		ByteBuffer header = ByteBuffer.allocate((int) headerSize(layerCount + 1) + Double.BYTES + layerCount * ACTIVATION_SIZE)
+				.order(BYTE_ORDER);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(layerCount + 1);
+		header.putInt(network.getInputNodeCount());
+		for (int l = 0; l < layerCount; l++) {
+			header.putInt(network.getLayer(l).getNodeCount());
+		}
+		header.position((int) headerSize(layerCount + 1));
+		header.putDouble(network.getLearningRate());
+		for (int l = 0; l < layerCount; l++) {
+			writeActivation(header, network.getLayer(l).getActivation());
+		}
+		header.clear();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(channel, header);
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(BYTE_ORDER);
+			for (int l = 0; l < layerCount; l++) {
+				Layer layer = network.getLayer(l);
+				write(channel, buffer, layer.getWeights().getValues());
+				write(channel, buffer, layer.getBias());
+			}
+		}
+	}
+
+	/**
+	 * Writes the activation of a layer.
+	 *
+	 * @param buffer			the buffer
+	 * @param activation		the activation
+	 * @throws IOException		if the activation is not one of this package
+	 */
+	private static void writeActivation(ByteBuffer buffer, Activation activation) throws IOException {
+
+		SigmoidActivation sigmoid = null;
+		double alpha = 0;
+		if (activation instanceof SigmoidActivation) {
+			buffer.putInt(SIGMOID);
+			sigmoid = (SigmoidActivation) activation;
+		} else if (activation instanceof TanhActivation) {
+			buffer.putInt(TANH);
+			sigmoid = ((TanhActivation) activation).getSigmoid();
+		} else if (activation instanceof ReluActivation) {
+			buffer.putInt(RELU);
+			alpha = ((ReluActivation) activation).getAlpha();
+		} else if (activation instanceof SoftmaxActivation) {
+			buffer.putInt(SOFTMAX);
+		} else {
+			throw new IOException("The activation " + activation + " cannot be saved");
+		}
+		if (sigmoid != null) {
+			buffer.putInt(sigmoid.getMethod().ordinal()).putInt(sigmoid.getTableSize()).putInt(0);
+			buffer.putDouble(sigmoid.getMin()).putDouble(sigmoid.getMax());
+		} else {
+			buffer.putInt(0).putInt(0).putInt(0).putDouble(0).putDouble(0);
+		}
+		buffer.putDouble(alpha);
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer.
+	 *
+	 * @param channel			the file
+	 * @param buffer			the buffer
+	 * @throws IOException		if the file cannot be written
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Writes an array of values using a write buffer.
+	 *
+	 * @param channel			the file
+	 * @param buffer			the write buffer
+	 * @param values			the values
+	 * @throws IOException		if the file cannot be written
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+
+		for (int i = 0; i < values.length; ) {
+			int length = Math.min(values.length - i, buffer.capacity() / Double.BYTES);
+			buffer.clear();
+			buffer.asDoubleBuffer().put(values, i, length);
+			buffer.limit(length * Double.BYTES);
+			write(channel, buffer);
+			i += length;
+		}
+	}
+}
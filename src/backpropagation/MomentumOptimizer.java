@@ -0,0 +1,102 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * SGD with momentum: the update is a moving sum of the gradients, 
+ * <code>velocity = momentum * velocity + gradient</code> and <code>parameters += learningRate * velocity</code>,
+ * which speeds up the training along directions of consistent gradients and damps oscillations.
+ * Nesterov momentum uses the gradient "looking ahead" by the velocity, 
+ * <code>parameters += learningRate * (gradient + momentum * velocity)</code>.
+ */
+public class MomentumOptimizer extends Optimizer {
+
+	/** the momentum: the fraction of the velocity kept per step */
+	private final double momentum;
+	/** whether the Nesterov momentum is used */
+	private final boolean nesterov;
+	/** the velocity of each parameter, one array per parameter array */
+	private double[][] velocities;
+
+	/**
+	 * Constructs an optimizer using the momentum 0.9.
+	 */
+	public MomentumOptimizer() {
+
+		this(0.9, false);
+	}
+
+	/**
+	 * Constructs an optimizer.
+	 *
+	 * @param momentum		the fraction of the velocity kept per step, in [0, 1), usually 0.9
+	 * @param nesterov		true for the Nesterov momentum
+	 */
+	public MomentumOptimizer(double momentum, boolean nesterov) {
+
+		if (momentum < 0 || momentum >= 1) {
+			throw new IllegalArgumentException("The momentum must be in [0, 1): " + momentum);
+		}
+		this.momentum = momentum;
+		this.nesterov = nesterov;
+	}
+
+	@Override
+	public void allocate(int[] parameterCounts) {
+
+		super.allocate(parameterCounts);
+		velocities = new double[parameterCounts.length][];
+		for (int i = 0; i < parameterCounts.length; i++) {
+			velocities[i] = new double[parameterCounts[i]];
+		}
+	}
+
+	/**
+	 * @return the fraction of the velocity kept per step
+	 */
+	public double getMomentum() {
+
+		return momentum;
+	}
+
+	@Override
+	public String getName() {
+
+		return (nesterov ? "Nesterov momentum " : "momentum ") + momentum;
+	}
+
+	/**
+	 * @return true if the Nesterov momentum is used
+	 */
+	public boolean isNesterov() {
+
+		return nesterov;
+	}
+
+	@Override
+	public void update(int index, double[] parameters, double[] gradients, int dataSetCount, double learningRate) {
+
+		double[] velocity = velocities[index];
+		double gradientScale = 1.0 / dataSetCount;
+		for (int i = 0; i < parameters.length; i++) {
+			double gradient = gradientScale * gradients[i];
+			double v = momentum * velocity[i] + gradient;
+			velocity[i] = v;
+			parameters[i] += learningRate * (nesterov ? gradient + momentum * v : v);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * An optimizer: the update of the weights and biases of a network by their gradients in a training step.
+ * The gradients are the directions to improve the outputs, summed over the data sets of a step
+ * (one data set for <code>train()</code>, a batch for the mini-batch training).
+ * An optimizer keeps its state per parameter (like a moving average of the gradients) in arrays 
+ * allocated once by <code>BackpropNeuralNetwork.setOptimizer()</code>, so an optimizer instance 
+ * belongs to one network.
+ *
+ * <pre>
+ * The optimizers of this package:
+ *
+ * 		SgdOptimizer		the stochastic gradient descent: parameters += learningRate * gradient, the default
+ * 		MomentumOptimizer	SGD with momentum, optionally Nesterov momentum
+ * 		RmsPropOptimizer	the learning rate of each parameter is scaled down by its average squared gradient
+ * 		AdamOptimizer		momentum and RMSProp, with a bias correction of both averages
+ *
+ * The adaptive optimizers (RMSProp, Adam) need much smaller learning rates than SGD, usually around 0.001,
+ * and reach a small error in fewer steps without a manual decay of the learning rate.
+ * </pre>
+ */
+public abstract class Optimizer {
+
+	/** the number of training steps */
+	private long steps;
+
+	/**
+	 * Allocates the state of the optimizer for the parameters of a network and resets it:
+	 * one array of state values per array of parameters.
+	 *
+	 * @param parameterCounts		the lengths of the parameter arrays, see <code>update()</code>
+	 */
+	public void allocate(int[] parameterCounts) {
+
+		steps = 0;
+	}
+
+	/**
+	 * @return the name of this optimizer, including its parameters
+	 */
+	public abstract String getName();
+
+	/**
+	 * @return the number of training steps since the last <code>allocate()</code>
+	 */
+	public long getSteps() {
+
+		return steps;
+	}
+
+	/**
+	 * Starts a training step, followed by the updates of all parameter arrays.
+	 */
+	public void nextStep() {
+
+		steps++;
+	}
+
+	@Override
+	public String toString() {
+
+		return getName();
+	}
+
+	/**
+	 * Updates an array of parameters by their gradients.
+	 *
+	 * @param index				the index of the parameter array: <code>2 * l</code> for the weights of 
+	 * 							layer <code>l</code> (see <code>WeightMatrix.getValues()</code>), 
+	 * 							<code>2 * l + 1</code> for its bias
+	 * @param parameters		the parameters
+	 * @param gradients			the gradients of the parameters, summed over the data sets of the step
+	 * @param dataSetCount		the number of data sets of the step
+	 * @param learningRate		the learning rate
+	 */
+	public abstract void update(int index, double[] parameters, double[] gradients, int dataSetCount,
+			double learningRate);
+}
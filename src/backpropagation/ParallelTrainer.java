@@ -0,0 +1,228 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Data-parallel mini-batch training of a <code>BackpropNeuralNetwork</code> on several cores.
+ *
+ * <pre>
+ * Each mini-batch is split into one part per thread. Each part is computed by a worker
+ * with its own buffers for the outputs, errors and gradients of the nodes, while the
+ * weights of the network are only read. The gradients of the parts are then summed up
+ * (again split across the workers, but always in the same order of the parts) and
+ * applied to the network once per batch.
+ *
+ * The data sets of the batches are chosen by the calling thread, and the gradients are
+ * reduced in a fixed order, therefore training with the same seed and the same number
+ * of threads always gives the same result.
+ *
+ * Usage:
+ *
+ * 		try (ParallelTrainer trainer = new ParallelTrainer(neuralNetwork, 8)) {
+ * 			trainer.trainMiniBatch(new Random(42), 256, 10000);
+ * 		}
+ *
+ * The network must not be trained or used otherwise while a training is running.
+ * </pre>
+ */
+public class ParallelTrainer implements AutoCloseable {
+
+	/** the network to train */
+	private final BackpropNeuralNetwork network;
+	/** the pool running the workers */
+	private final ForkJoinPool pool;
+	/** true if the pool has been created (and will be shut down) by this trainer */
+	private final boolean ownPool;
+	/** the number of parts of a batch, one per worker */
+	private final int partCount;
+	/** the buffers of the parts of a batch */
+	private MiniBatch[] parts;
+	/** the indices of the data sets of the current batch */
+	private int[] dataSetIndices;
+
+	/**
+	 * Constructs a trainer using its own pool of threads, to be shut down by <code>close()</code>.
+	 *
+	 * @param network			the network to train
+	 * @param threadCount		the number of threads, the result of a training depends on it
+	 */
+	public ParallelTrainer(BackpropNeuralNetwork network, int threadCount) {
+
+		this(network, new ForkJoinPool(threadCount), true);
+	}
+
+	/**
+	 * Constructs a trainer using a given pool, with one part of each batch per thread of the pool.
+	 * The pool is not shut down by <code>close()</code>.
+	 *
+	 * @param network			the network to train
+	 * @param pool				the pool running the workers, the result of a training depends
+	 * 							on its parallelism
+	 */
+	public ParallelTrainer(BackpropNeuralNetwork network, ForkJoinPool pool) {
+
+		this(network, pool, false);
+	}
+
+	/**
+	 * Constructs a trainer.
+	 *
+	 * @param network			the network to train
+	 * @param pool				the pool running the workers
+	 * @param ownPool			true if the pool is shut down by <code>close()</code>
+	 */
+	private ParallelTrainer(BackpropNeuralNetwork network, ForkJoinPool pool, boolean ownPool) {
+
+		this.network = network;
+		this.pool = pool;
+		this.ownPool = ownPool;
+		partCount = pool.getParallelism();
+		parts = new MiniBatch[0];
+		dataSetIndices = new int[0];
+	}
+
+	/**
+	 * Shuts down the pool of threads, if it has been created by this trainer.
+	 */
+	@Override
+	public void close() {
+
+		if (ownPool) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Computes the gradients of a part of the current batch.
+	 *
+	 * @param part			the index of the part
+	 * @param batchSize		the number of data sets of the batch
+	 */
+	private void computePart(int part, int batchSize) {
+
+		MiniBatch batch = parts[part];
+		batch.clear();
+		for (int i = partStart(part, batchSize); i < partStart(part + 1, batchSize); i++) {
+			network.addDataSet(batch, dataSetIndices[i]);
+		}
+		network.computeGradients(batch);
+	}
+
+	/**
+	 * @return the number of parts of a batch, which is the number of threads
+	 */
+	public int getPartCount() {
+
+		return partCount;
+	}
+
+	/**
+	 * Returns the first index of a part of a range, the parts differ in size by one at most.
+	 *
+	 * @param part			the index of the part, <code>partCount</code> for the end of the range
+	 * @param length		the length of the range
+	 * @return the first index of the part
+	 */
+	private int partStart(int part, int length) {
+
+		return (int) ((long) part * length / partCount);
+	}
+
+	/**
+	 * Sums up a range of the gradients of all parts into the gradients of the first part,
+	 * always in the order of the parts.
+	 *
+	 * @param range				the index of the range
+	 * @param gradientCount		the number of gradients of a part
+	 */
+	private void reduceRange(int range, int gradientCount) {
+
+		int from = partStart(range, gradientCount);
+		int to = partStart(range + 1, gradientCount);
+		for (int part = 1; part < partCount; part++) {
+			parts[0].addGradients(parts[part], from, to);
+		}
+	}
+
+	/**
+	 * Runs an action for each part in parallel and waits for all of them.
+	 *
+	 * @param action		the action, called with the index of the part
+	 */
+	private void runParts(IntConsumer action) {
+
+		pool.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+
+				ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[partCount];
+				for (int i = 0; i < partCount; i++) {
+					int part = i;
+					tasks[i] = ForkJoinTask.adapt(() -> action.accept(part));
+				}
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/**
+	 * Train the network with a number of mini-batches, each built from randomly chosen data sets
+	 * of the training data of the network, see <code>BackpropNeuralNetwork.createInOutVectors()</code>.
+	 * Each batch updates the weights once, using the average gradient of its data sets.
+	 * This method call may be repeated.
+	 *
+	 * @param random				a random number generator to choose the data sets or null for the generator
+	 * 								of the network
+	 * @param batchSize				the number of data sets of a batch
+	 * @param batches				the number of batches to be trained
+	 */
+	public void trainMiniBatch(Random random, int batchSize, int batches) {
+
+		random = random == null ? network.getRandom() : random;
+		int partCapacity = partStart(1, batchSize) + 1;
+		if (parts.length == 0 || parts[0].capacity < partCapacity) {
+			parts = new MiniBatch[partCount];
+			for (int i = 0; i < partCount; i++) {
+				parts[i] = network.createMiniBatch(partCapacity);
+			}
+		}
+		if (dataSetIndices.length < batchSize) {
+			dataSetIndices = new int[batchSize];
+		}
+		int dataSetCount = network.getTrainingDataSetCount();
+		int gradientCount = parts[0].gradientCount();
+		for (int i = 0; i < batches; i++) {
+			// the calling thread chooses the data sets, so the workers do not depend on each other
+			for (int j = 0; j < batchSize; j++) {
+				dataSetIndices[j] = random.nextInt(dataSetCount);
+			}
+			runParts(part -> computePart(part, batchSize));
+			runParts(range -> reduceRange(range, gradientCount));
+			for (int part = 1; part < partCount; part++) {
+				parts[0].addMetrics(parts[part]);
+			}
+			network.applyGradients(parts[0], batchSize);
+		}
+	}
+}
@@ -0,0 +1,262 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * An immutable inference model of a trained <code>BackpropNeuralNetwork</code> with 8 bit integer weights,
+ * created by <code>BackpropNeuralNetwork.quantize()</code> (post-training quantization).
+ *
+ * <pre>
+ * The weights of each node (a row of the weight matrix) are scaled to the range -127 .. 127 by their 
+ * largest absolute value and rounded, keeping one scale per row. For a forward pass, the input vector 
+ * of each layer is quantized the same way, with one scale per vector, so the dot products of the 
+ * weights and inputs are computed in integer arithmetic (see Kernels) and scaled back afterwards:
+ *
+ * 		output[j] = activation(weightScale[j] * inputScale * sum(weight[j][i] * input[i]) + bias[j])
+ *
+ * Compared to the network:
+ *
+ * 		* the weights need an eighth of the memory (1 byte instead of 8, plus a scale per row)
+ * 		* the forward pass reads an eighth of the weight data, which dominates the time of large models
+ * 		* the outputs differ by the rounding of the weights and inputs to about 2 significant digits,
+ * 			the difference should be checked against the accuracy needed, e.g. on validation data
+ * 		* the biases and activations are kept in double precision
+ * 		* the model cannot be trained, quantize the network again after training
+ *
+ * Like the network, the model may be shared by several threads, each of them with its own context:
+ *
+ * 		QuantizedNeuralNetwork model = neuralNetwork.quantize();
+ * 		QuantizedNeuralNetwork.Context context = model.createContext();		// once per thread
+ * 		double[] outputs = model.forwardPass(inputs, context);
+ * </pre>
+ */
+public final class QuantizedNeuralNetwork {
+
+	/** the kernels of the computations */
+	private static final Kernels KERNELS = Kernels.get();
+	/** the largest absolute value of a quantized weight or input */
+	private static final int MAX_QUANTIZED = 127;
+	/** the maximum number of inputs of a layer, so an integer dot product cannot overflow */
+	public static final int MAX_LAYER_INPUTS = Integer.MAX_VALUE / (MAX_QUANTIZED * MAX_QUANTIZED);
+
+	/** the number of inputs */
+	private final int inputNodeCount;
+	/** the number of nodes of each layer */
+	private final int[] nodeCounts;
+	/** the quantized weights of each layer: one row per node, one after another */
+	private final byte[][] weights;
+	/** the scales of the rows of the weights of each layer */
+	private final double[][] weightScales;
+	/** the bias of the nodes of each layer */
+	private final double[][] biases;
+	/** the activation function of each layer */
+	private final Activation[] activations;
+
+	/**
+	 * Constructs a model quantizing the current weights of a network.
+	 *
+	 * @param network		the trained network
+	 */
+	QuantizedNeuralNetwork(BackpropNeuralNetwork network) {
+
+		int layerCount = network.getLayerCount();
+		inputNodeCount = network.getInputNodeCount();
+		nodeCounts = new int[layerCount];
+		weights = new byte[layerCount][];
+		weightScales = new double[layerCount][];
+		biases = new double[layerCount][];
+		activations = new Activation[layerCount];
+		for (int l = 0; l < layerCount; l++) {
+			Layer layer = network.getLayer(l);
+			int columns = layer.getInputCount();
+			if (columns > MAX_LAYER_INPUTS) {
+				throw new IllegalArgumentException("The layer " + l + " has " + columns 
+						+ " inputs, more than the maximum " + MAX_LAYER_INPUTS + " of a quantized layer");
+			}
+			nodeCounts[l] = layer.getNodeCount();
+			weights[l] = new byte[nodeCounts[l] * columns];
+			weightScales[l] = new double[nodeCounts[l]];
+			double[] values = layer.getWeights().getValues();
+			for (int row = 0; row < nodeCounts[l]; row++) {
+				weightScales[l][row] = quantize(values, row * columns, columns, weights[l], row * columns);
+			}
+			biases[l] = layer.getBias().clone();
+			activations[l] = layer.getActivation();
+		}
+	}
+
+	/**
+	 * Creates a context for <code>forwardPass(double[], Context)</code>: the buffers of a forward pass.
+	 * Each thread doing inference needs its own context, which may be reused for any number of calls.
+	 * 
+	 * @return a new context for this model
+	 */
+	public Context createContext() {
+
+		return new Context(this);
+	}
+
+	/**
+	 * Computes the outputs for an input vector, allocating new buffers per call.
+	 * Use <code>forwardPass(double[], Context)</code> to avoid the allocations.
+	 * 
+	 * @param inputs			the input vector
+	 * @return the output vector
+	 */
+	public double[] forwardPass(double[] inputs) {
+
+		return forwardPass(inputs, createContext());
+	}
+
+	/**
+	 * Computes the outputs for an input vector using the buffers of a context.
+	 * The returned array is the output buffer of the context, reused by the next call.
+	 * 
+	 * @param inputs			the input vector
+	 * @param context			the buffers of the calling thread, see <code>createContext()</code>
+	 * @return the output vector
+	 */
+	public double[] forwardPass(double[] inputs, Context context) {
+
+		if (inputs.length != inputNodeCount) {
+			throw new IllegalArgumentException("The length " + inputs.length 
+					+ " of the input vector differs from the number of inputs " + inputNodeCount);
+		}
+		double[] layerInputs = inputs;
+		for (int l = 0; l < weights.length; l++) {
+			int columns = layerInputs.length;
+			double inputScale = quantize(layerInputs, 0, columns, context.quantizedInputs, 0);
+			double[] outputs = context.layerOutputs[l];
+			byte[] layerWeights = weights[l];
+			double[] scales = weightScales[l];
+			double[] bias = biases[l];
+			for (int row = 0; row < outputs.length; row++) {
+				int sum = KERNELS.dot(layerWeights, row * columns, context.quantizedInputs, 0, columns);
+				outputs[row] = sum * scales[row] * inputScale + bias[row];
+			}
+			activations[l].apply(outputs, 0, outputs.length);
+			layerInputs = outputs;
+		}
+		return layerInputs;
+	}
+
+	/**
+	 * @return the number of inputs
+	 */
+	public int getInputNodeCount() {
+
+		return inputNodeCount;
+	}
+
+	/**
+	 * @return the number of layers: the hidden layers and the output layer
+	 */
+	public int getLayerCount() {
+
+		return weights.length;
+	}
+
+	/**
+	 * @return the number of outputs
+	 */
+	public int getOutputNodeCount() {
+
+		return nodeCounts[nodeCounts.length - 1];
+	}
+
+	/**
+	 * Returns the memory of the parameters of this model in bytes: the quantized weights, 
+	 * the scales of the weights and the biases.
+	 * 
+	 * @return the memory of the parameters in bytes
+	 */
+	public long getParameterBytes() {
+
+		long bytes = 0;
+		for (int l = 0; l < weights.length; l++) {
+			bytes += weights[l].length + (long) Double.BYTES * (weightScales[l].length + biases[l].length);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Quantizes a vector to 8 bit integers in the range -127 .. 127, scaled by its largest absolute value.
+	 * 
+	 * @param values			the array of the vector
+	 * @param offset			the index of the first element of the vector
+	 * @param length			the length of the vector
+	 * @param quantized			the array of the quantized vector
+	 * @param quantizedOffset	the index of the first element of the quantized vector
+	 * @return the scale of the vector: a value is about the quantized value times the scale
+	 */
+	private static double quantize(double[] values, int offset, int length, byte[] quantized, int quantizedOffset) {
+
+		double max = 0;
+		for (int i = 0; i < length; i++) {
+			max = Math.max(max, Math.abs(values[offset + i]));
+		}
+		if (max == 0) {
+			for (int i = 0; i < length; i++) {
+				quantized[quantizedOffset + i] = 0;
+			}
+			return 0;
+		}
+		double factor = MAX_QUANTIZED / max;
+		for (int i = 0; i < length; i++) {
+			quantized[quantizedOffset + i] = (byte) Math.round(values[offset + i] * factor);
+		}
+		return max / MAX_QUANTIZED;
+	}
+
+	/**
+	 * The buffers of a forward pass of a <code>QuantizedNeuralNetwork</code>, owned by one thread.
+	 */
+	public static final class Context {
+
+		/** the quantized input vector of the current layer */
+		private final byte[] quantizedInputs;
+		/** the outputs of the nodes of each layer */
+		private final double[][] layerOutputs;
+
+		/**
+		 * Constructs a context.
+		 *
+		 * @param model		the model
+		 */
+		private Context(QuantizedNeuralNetwork model) {
+
+			int maxInputs = model.inputNodeCount;
+			layerOutputs = new double[model.nodeCounts.length][];
+			for (int l = 0; l < layerOutputs.length; l++) {
+				layerOutputs[l] = new double[model.nodeCounts[l]];
+				maxInputs = Math.max(maxInputs, model.nodeCounts[l]);
+			}
+			quantizedInputs = new byte[maxInputs];
+		}
+
+		/**
+		 * Returns the outputs of the last forward pass using this context.
+		 * The array is reused by the next forward pass.
+		 *
+		 * @return the outputs
+		 */
+		public double[] getOutputs() {
+
+			return layerOutputs[layerOutputs.length - 1];
+		}
+	}
+}
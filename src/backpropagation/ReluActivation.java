@@ -0,0 +1,114 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The rectified linear unit <code>max(0, x)</code> as an activation, or the leaky ReLU
+ * <code>x &gt; 0 ? x : alpha * x</code> with a small slope for negative net inputs, so a node 
+ * with negative net inputs for all data sets keeps a gradient and may recover ("dying ReLU").
+ * The function is cheaper than sigmoid and tanh, and does not saturate for positive net inputs,
+ * so deep networks train faster. The outputs are not bounded: use a sigmoid or softmax output layer 
+ * for outputs in (0, 1), and a smaller learning rate than for sigmoid networks.
+ */
+public class ReluActivation extends ElementwiseActivation {
+
+	/** the slope for negative net inputs, zero for the ReLU */
+	private final double alpha;
+
+	/**
+	 * Constructs a ReLU activation, <code>max(0, x)</code>.
+	 */
+	public ReluActivation() {
+
+		this(0);
+	}
+
+	/**
+	 * Constructs a leaky ReLU activation.
+	 *
+	 * @param alpha		the slope for negative net inputs, usually 0.01, zero for the ReLU
+	 */
+	public ReluActivation(double alpha) {
+
+		if (alpha < 0 || alpha >= 1) {
+			throw new IllegalArgumentException("The slope alpha must be in [0, 1): " + alpha);
+		}
+		this.alpha = alpha;
+	}
+
+	@Override
+	public double apply(double x) {
+
+		return x > 0 ? x : alpha * x;
+	}
+
+	@Override
+	public void apply(double[] values, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			double value = values[i];
+			values[i] = value > 0 ? value : alpha * value;
+		}
+	}
+
+	/**
+	 * Returns the derivative of the ReLU, 1 for positive outputs and <code>alpha</code> otherwise.
+	 *
+	 * @param output		the output of the node
+	 * @return the derivative
+	 */
+	@Override
+	public double derivative(double output) {
+
+		return output > 0 ? 1 : alpha;
+	}
+
+	/**
+	 * @return the slope for negative net inputs, zero for the ReLU
+	 */
+	public double getAlpha() {
+
+		return alpha;
+	}
+
+	@Override
+	public String getName() {
+
+		return alpha == 0 ? "ReLU" : "leaky ReLU (alpha " + alpha + ")";
+	}
+
+	/**
+	 * Creates a leaky ReLU activation.
+	 *
+	 * @param alpha		the slope for negative net inputs, usually 0.01
+	 * @return the activation
+	 */
+	public static ReluActivation leaky(double alpha) {
+
+		return new ReluActivation(alpha);
+	}
+
+	@Override
+	public void multiplyDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			if (outputs[i] <= 0) {
+				errors[i] *= alpha;
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * RMSProp: the learning rate of each parameter is divided by the root of a moving average 
+ * of its squared gradients, <code>average = decay * average + (1 - decay) * gradient^2</code> and
+ * <code>parameters += learningRate * gradient / (sqrt(average) + epsilon)</code>, so parameters with 
+ * small gradients (flat areas) take larger steps. Use a small learning rate, usually 0.001.
+ */
+public class RmsPropOptimizer extends Optimizer {
+
+	/** the fraction of the average kept per step */
+	private final double decay;
+	/** the small value added to the root to avoid a division by zero */
+	private final double epsilon;
+	/** the moving averages of the squared gradients, one array per parameter array */
+	private double[][] averages;
+
+	/**
+	 * Constructs an optimizer using the decay 0.9 and epsilon 1e-8.
+	 */
+	public RmsPropOptimizer() {
+
+		this(0.9, 1e-8);
+	}
+
+	/**
+	 * Constructs an optimizer.
+	 *
+	 * @param decay			the fraction of the average kept per step, in [0, 1), usually 0.9
+	 * @param epsilon		the small positive value added to the root to avoid a division by zero
+	 */
+	public RmsPropOptimizer(double decay, double epsilon) {
+
+		if (decay < 0 || decay >= 1 || !(epsilon > 0)) {
+			throw new IllegalArgumentException("Invalid decay " + decay + " or epsilon " + epsilon);
+		}
+		this.decay = decay;
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	public void allocate(int[] parameterCounts) {
+
+		super.allocate(parameterCounts);
+		averages = new double[parameterCounts.length][];
+		for (int i = 0; i < parameterCounts.length; i++) {
+			averages[i] = new double[parameterCounts[i]];
+		}
+	}
+
+	@Override
+	public String getName() {
+
+		return "RMSProp (decay " + decay + ")";
+	}
+
+	@Override
+	public void update(int index, double[] parameters, double[] gradients, int dataSetCount, double learningRate) {
+
+		double[] average = averages[index];
+		double gradientScale = 1.0 / dataSetCount;
+		for (int i = 0; i < parameters.length; i++) {
+			double gradient = gradientScale * gradients[i];
+			double a = decay * average[i] + (1 - decay) * gradient * gradient;
+			average[i] = a;
+			parameters[i] += learningRate * gradient / (Math.sqrt(a) + epsilon);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The kernels as plain Java loops, the default backend.
+ */
+final class ScalarKernels extends Kernels {
+
+	@Override
+	void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+
+		for (int i = 0; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+
+		for (int i = 0; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	void axpy4(double alpha0, double alpha1, double alpha2, double alpha3,
+			double[] x, int xOffset, int stride, double[] y, int yOffset, int length) {
+
+		int x0 = xOffset;
+		int x1 = x0 + stride;
+		int x2 = x1 + stride;
+		int x3 = x2 + stride;
+		for (int i = 0; i < length; i++) {
+			y[yOffset + i] += alpha0 * x[x0 + i] + alpha1 * x[x1 + i] + alpha2 * x[x2 + i] + alpha3 * x[x3 + i];
+		}
+	}
+
+	@Override
+	double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+
+		double sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+
+		float sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+
+		int sum = 0;
+		for (int i = 0; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	void dot4(double[] rows, int rowsOffset, double[] vector, int vectorOffset, int length,
+			double[] results, int resultOffset) {
+
+		int row0 = rowsOffset;
+		int row1 = row0 + length;
+		int row2 = row1 + length;
+		int row3 = row2 + length;
+		double sum0 = 0;
+		double sum1 = 0;
+		double sum2 = 0;
+		double sum3 = 0;
+		// each element of the vector is loaded once for four dot products
+		for (int i = 0; i < length; i++) {
+			double value = vector[vectorOffset + i];
+			sum0 += rows[row0 + i] * value;
+			sum1 += rows[row1 + i] * value;
+			sum2 += rows[row2 + i] * value;
+			sum3 += rows[row3 + i] * value;
+		}
+		results[resultOffset] = sum0;
+		results[resultOffset + 1] = sum1;
+		results[resultOffset + 2] = sum2;
+		results[resultOffset + 3] = sum3;
+	}
+
+	@Override
+	public String getName() {
+
+		return "scalar";
+	}
+
+	@Override
+	void multiplySigmoidDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			double output = outputs[i];
+			errors[i] = errors[i] * output * (1 - output);
+		}
+	}
+
+	@Override
+	void multiplyTanhDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			double output = outputs[i];
+			errors[i] *= 1 - output * output;
+		}
+	}
+
+	@Override
+	void sigmoid(double[] values, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			values[i] = 1 / (1 + Math.exp(-values[i]));
+		}
+	}
+}
@@ -0,0 +1,40 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The stochastic gradient descent: <code>parameters += learningRate * gradient</code>, 
+ * using the average gradient of the data sets of a step. This optimizer has no state,
+ * it is the default of a network.
+ */
+public final class SgdOptimizer extends Optimizer {
+
+	/** the kernels of the computations */
+	private static final Kernels KERNELS = Kernels.get();
+
+	@Override
+	public String getName() {
+
+		return "SGD";
+	}
+
+	@Override
+	public void update(int index, double[] parameters, double[] gradients, int dataSetCount, double learningRate) {
+
+		KERNELS.axpy(learningRate / dataSetCount, gradients, 0, parameters, 0, parameters.length);
+	}
+}
@@ -18,24 +18,34 @@ package backpropagation;
 
 /**
  * Fast table lookup implementation for the Sigmoid function, speeding up computation time.
+ * See <code>SigmoidActivation</code> for more accurate methods.
  */
 public class Sigmoid {
 
 	/** the table size for fast table lookup */
-    private static final int TABLE_SIZE = 10000;
+    static final int TABLE_SIZE = 10000;
 	/** the minimum value of the table */
-    private static final double TABLE_MIN = -6.0;
+    static final double TABLE_MIN = -6.0;
 	/** the maximum value of the table */
-    private static final double TABLE_MAX = 6.0;
+    static final double TABLE_MAX = 6.0;
 	/** the table for fast table lookup */
-    private static final double[] SIGMOID_TABLE = new double[TABLE_SIZE];
+    static final double[] SIGMOID_TABLE = new double[TABLE_SIZE];
 	/** the value of a step within the table */
-    private static final double TABLE_STEP = (TABLE_MAX - TABLE_MIN) / (TABLE_SIZE - 1);
+    static final double TABLE_STEP = (TABLE_MAX - TABLE_MIN) / (TABLE_SIZE - 1);
+	/** the table for fast table lookup in single precision */
+    static final float[] SIGMOID_TABLE_FLOAT = new float[TABLE_SIZE];
+	/** the minimum value of the table in single precision */
+    static final float TABLE_MIN_FLOAT = (float) TABLE_MIN;
+	/** the maximum value of the table in single precision */
+    static final float TABLE_MAX_FLOAT = (float) TABLE_MAX;
+	/** the value of a step within the table in single precision */
+    static final float TABLE_STEP_FLOAT = (float) TABLE_STEP;
 
     static {
         for (int i = 0; i < TABLE_SIZE; i++) {
             double x = TABLE_MIN + i * TABLE_STEP;
             SIGMOID_TABLE[i] = 1.0 / (1.0 + Math.exp(-x));
+            SIGMOID_TABLE_FLOAT[i] = (float) SIGMOID_TABLE[i];
         }
     }
 
@@ -55,4 +65,21 @@ public class Sigmoid {
             return SIGMOID_TABLE[(int) ((x - TABLE_MIN) / TABLE_STEP)];
         }
     }
+
+    /**
+     * Returns the sigmoid function result in single precision using a table lookup.
+     * 
+     * @param x		the <code>x</code> of <code>sigmoid(x)</code>
+     * @return the sigmoid function result
+     */
+    public static float sigmoid(float x) {
+    	
+        if (x <= TABLE_MIN_FLOAT) {
+            return SIGMOID_TABLE_FLOAT[0];
+        } else if (x >= TABLE_MAX_FLOAT) {
+            return SIGMOID_TABLE_FLOAT[TABLE_SIZE - 1];
+        } else {
+            return SIGMOID_TABLE_FLOAT[(int) ((x - TABLE_MIN_FLOAT) / TABLE_STEP_FLOAT)];
+        }
+    }
 }
@@ -0,0 +1,96 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The softmax function <code>e^x[i] / sum(e^x[j])</code> as the activation of the output layer 
+ * of a classification: the outputs of a data set are positive and sum up to 1, the probabilities 
+ * of the classes. The desired outputs are one-hot vectors (or probabilities).
+ * 
+ * <pre>
+ * A network with a softmax output layer is trained using the cross-entropy loss -sum(desired[i] * log(output[i])),
+ * its gradient with respect to the net inputs of the output nodes is simply (desired[i] - output[i]):
+ * the derivative of the softmax is part of this error, so <code>multiplyDerivative()</code> keeps the errors.
+ * This also avoids the vanishing gradient of a saturated sigmoid output node with a squared error loss.
+ * The errors are up to four times the errors of a sigmoid output node (whose derivative is at most 0.25),
+ * so a network with a softmax output layer usually needs a smaller learning rate.
+ *
+ * 		network.setActivation(network.getLayerCount() - 1, new SoftmaxActivation());
+ * </pre>
+ * 
+ * The softmax of a node depends on all nodes of the layer, so it can only be the activation 
+ * of the output layer.
+ */
+public class SoftmaxActivation extends Activation {
+
+	/**
+	 * Replaces a vector in place by its softmax. The range is one vector: the net inputs of all nodes of a layer.
+	 *
+	 * @param values		the net inputs of the nodes, replaced by their outputs
+	 * @param from			the index of the first value
+	 * @param to			the index after the last value
+	 */
+	@Override
+	public void apply(double[] values, int from, int to) {
+
+		// subtract the maximum so e^x does not overflow, the result is the same
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			max = Math.max(max, values[i]);
+		}
+		double sum = 0;
+		for (int i = from; i < to; i++) {
+			double value = Math.exp(values[i] - max);
+			values[i] = value;
+			sum += value;
+		}
+		double scale = 1 / sum;
+		for (int i = from; i < to; i++) {
+			values[i] *= scale;
+		}
+	}
+
+	@Override
+	public void apply(double[] values, int offset, int count, int length) {
+
+		for (int i = 0; i < count; i++) {
+			int from = offset + i * length;
+			apply(values, from, from + length);
+		}
+	}
+
+	@Override
+	public String getName() {
+
+		return "softmax (cross-entropy)";
+	}
+
+	/**
+	 * Keeps the errors: the errors of a softmax output layer using the cross-entropy loss are 
+	 * the gradients of the net inputs already.
+	 *
+	 * @param outputs		the outputs of the nodes
+	 * @param errors		the errors of the nodes
+	 * @param from			the index of the first node
+	 * @param to			the index after the last node
+	 */
+	@Override
+	public void multiplyDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		// the errors (desired - output) are the gradients of the cross-entropy loss
+	}
+}
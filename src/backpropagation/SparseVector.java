@@ -0,0 +1,156 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+
+/**
+ * A sparse input vector: the indices and values of its non-zero elements. For high-dimensional, 
+ * mostly-zero input vectors the first layer computes only with the columns of the weights of the 
+ * non-zero inputs, see <code>BackpropNeuralNetwork.forwardPass(SparseVector)</code> and 
+ * <code>BackpropNeuralNetwork.train(SparseVector, double[])</code>: O(non-zeros * nodes) instead of 
+ * O(inputs * nodes) per data set.
+ *
+ * <pre>
+ * 		// 100000 inputs, three of them are not zero
+ * 		SparseVector inputs = new SparseVector(100000, new int[] { 17, 4711, 99000 }, new double[] { 1, 0.5, 1 });
+ * </pre>
+ *
+ * The arrays are not copied, they must not be changed while the vector is used.
+ */
+public final class SparseVector {
+
+	/** the dimension: the number of all elements, including the zeros */
+	private final int dimension;
+	/** the indices of the non-zero elements, strictly increasing */
+	private final int[] indices;
+	/** the values of the non-zero elements */
+	private final double[] values;
+
+	/**
+	 * Constructs a sparse vector.
+	 *
+	 * @param dimension		the number of all elements, including the zeros
+	 * @param indices		the indices of the non-zero elements, strictly increasing
+	 * @param values		the values of the non-zero elements, as many as indices
+	 */
+	public SparseVector(int dimension, int[] indices, double[] values) {
+
+		if (indices.length != values.length) {
+			throw new IllegalArgumentException("The number of indices (" + indices.length 
+					+ ") differs from the number of values (" + values.length + ")");
+		}
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] < 0 || indices[i] >= dimension || (i > 0 && indices[i] <= indices[i - 1])) {
+				throw new IllegalArgumentException("The indices must be strictly increasing within [0, " + dimension 
+						+ "): " + indices[i] + " at " + i);
+			}
+		}
+		this.dimension = dimension;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	/**
+	 * @return the number of all elements, including the zeros
+	 */
+	public int getDimension() {
+
+		return dimension;
+	}
+
+	/**
+	 * @return the indices of the non-zero elements, strictly increasing
+	 */
+	public int[] getIndices() {
+
+		return indices;
+	}
+
+	/**
+	 * @return the number of non-zero elements
+	 */
+	public int getNonZeroCount() {
+
+		return indices.length;
+	}
+
+	/**
+	 * @return the values of the non-zero elements
+	 */
+	public double[] getValues() {
+
+		return values;
+	}
+
+	/**
+	 * Creates a sparse vector of the non-zero elements of a dense vector.
+	 *
+	 * @param vector		the dense vector
+	 * @return the sparse vector
+	 */
+	public static SparseVector of(double[] vector) {
+
+		int count = 0;
+		for (double value : vector) {
+			if (value != 0) {
+				count++;
+			}
+		}
+		int[] indices = new int[count];
+		double[] values = new double[count];
+		for (int i = 0, n = 0; i < vector.length; i++) {
+			if (vector[i] != 0) {
+				indices[n] = i;
+				values[n++] = vector[i];
+			}
+		}
+		return new SparseVector(vector.length, indices, values);
+	}
+
+	/**
+	 * @return the sum of the squares of the elements
+	 */
+	public double squaredNorm() {
+
+		double sum = 0;
+		for (double value : values) {
+			sum += value * value;
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the dense vector of this sparse vector.
+	 *
+	 * @return a new array of length <code>getDimension()</code>
+	 */
+	public double[] toArray() {
+
+		double[] vector = new double[dimension];
+		for (int i = 0; i < indices.length; i++) {
+			vector[indices[i]] = values[i];
+		}
+		return vector;
+	}
+
+	@Override
+	public String toString() {
+
+		return "SparseVector(" + dimension + ", " + Arrays.toString(indices) + ", " + Arrays.toString(values) + ")";
+	}
+}
@@ -0,0 +1,103 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The hyperbolic tangent <code>tanh(x) = 2 * sigmoid(2 * x) - 1</code> as an activation, computed
+ * by a sigmoid activation, so it has the speed and (twice) the error of the chosen sigmoid method.
+ * The outputs are in (-1, 1) and centered around zero, a network of tanh hidden layers usually 
+ * converges in fewer steps than one of sigmoid hidden layers.
+ */
+public class TanhActivation extends ElementwiseActivation {
+
+	/** the kernels of the computations */
+	private static final Kernels KERNELS = Kernels.get();
+	/** the default sigmoid activation computing the tanh: interpolated, 4096 entries in [-16, 16] */
+	private static final SigmoidActivation DEFAULT_SIGMOID = SigmoidActivation.interpolated(4096, -16, 16);
+
+	/** the sigmoid activation computing the tanh */
+	private final SigmoidActivation sigmoid;
+
+	/**
+	 * Constructs a tanh activation using an interpolated table of 4096 entries in [-16, 16].
+	 */
+	public TanhActivation() {
+
+		this(DEFAULT_SIGMOID);
+	}
+
+	/**
+	 * Constructs a tanh activation using a sigmoid activation, 
+	 * e.g. <code>SigmoidActivation.exact()</code> for the exact function.
+	 *
+	 * @param sigmoid		the sigmoid activation computing the tanh
+	 */
+	public TanhActivation(SigmoidActivation sigmoid) {
+
+		this.sigmoid = sigmoid;
+	}
+
+	@Override
+	public double apply(double x) {
+
+		return 2 * sigmoid.apply(2 * x) - 1;
+	}
+
+	@Override
+	public void apply(double[] values, int from, int to) {
+
+		for (int i = from; i < to; i++) {
+			values[i] *= 2;
+		}
+		sigmoid.apply(values, from, to);
+		for (int i = from; i < to; i++) {
+			values[i] = 2 * values[i] - 1;
+		}
+	}
+
+	/**
+	 * Returns the derivative of the tanh, <code>1 - output * output</code>.
+	 *
+	 * @param output		the output of the node
+	 * @return the derivative
+	 */
+	@Override
+	public double derivative(double output) {
+
+		return 1 - output * output;
+	}
+
+	@Override
+	public void multiplyDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		KERNELS.multiplyTanhDerivative(outputs, errors, from, to);
+	}
+
+	@Override
+	public String getName() {
+
+		return "tanh (" + sigmoid.getName() + ")";
+	}
+
+	/**
+	 * @return the sigmoid activation computing the tanh
+	 */
+	public SigmoidActivation getSigmoid() {
+
+		return sigmoid;
+	}
+}
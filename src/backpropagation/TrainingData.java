@@ -0,0 +1,368 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.nio.*;
+
+/**
+ * The training data of a network: a number of data sets, each one an input vector followed by 
+ * its desired output vector, stored one after another in one flat buffer of <code>double</code> values.
+ * The buffer is either a <code>double</code> array on the heap or a (direct, off-heap) <code>ByteBuffer</code>,
+ * so loading training data costs one allocation, and no small array per data set for the GC to trace.
+ *
+ * <pre>
+ * Data set i starts at index i * stride of the buffer, where stride = inputCount + outputCount:
+ *
+ * 		| inputs 0 | outputs 0 | inputs 1 | outputs 1 | ...
+ *
+ * A network reads the data sets of a heap buffer directly (using the index of the row within the 
+ * array), the data sets of an off-heap buffer are copied one by one into a buffer of the network.
+ * Off-heap data may be split into chunks of whole data sets, like a memory-mapped 
+ * file larger than 2 GB (see <code>TrainingDataFile</code>).
+ * </pre>
+ */
+public class TrainingData {
+
+	/** the number of bytes of a value */
+	private static final int VALUE_BYTES = Double.BYTES;
+
+	/** the number of data sets */
+	private final int dataSetCount;
+	/** the number of inputs of a data set */
+	private final int inputCount;
+	/** the number of outputs of a data set */
+	private final int outputCount;
+	/** the number of values of a data set */
+	private final int stride;
+	/** the values of a heap buffer, or null */
+	private final double[] values;
+	/** the chunks of an off-heap buffer, or null */
+	private final DoubleBuffer[] chunks;
+	/** the number of data sets of a chunk of an off-heap buffer */
+	private final int chunkDataSets;
+
+	/**
+	 * Constructs training data using a heap or an off-heap buffer.
+	 *
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @param valueCount		the number of values of the buffer
+	 * @param values			the values of a heap buffer, or null
+	 * @param chunks			the chunks of an off-heap buffer, or null
+	 * @param chunkDataSets		the number of data sets of a chunk of an off-heap buffer
+	 */
+	private TrainingData(int inputCount, int outputCount, long valueCount, double[] values, 
+			DoubleBuffer[] chunks, int chunkDataSets) {
+
+		if (inputCount <= 0 || outputCount <= 0) {
+			throw new IllegalArgumentException("Invalid number of inputs/outputs: " + inputCount + "/" + outputCount);
+		}
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+		stride = inputCount + outputCount;
+		if (valueCount % stride != 0 || valueCount / stride > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The number of values (" + valueCount 
+					+ ") is not a multiple of the values of a data set (" + stride + ") or too large");
+		}
+		dataSetCount = (int) (valueCount / stride);
+		this.values = values;
+		this.chunks = chunks;
+		this.chunkDataSets = Math.max(1, chunkDataSets);
+	}
+
+	/**
+	 * Allocates training data on the heap, all values are zero.
+	 *
+	 * @param dataSetCount		the number of data sets
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static TrainingData allocate(int dataSetCount, int inputCount, int outputCount) {
+
+		return wrap(new double[Math.multiplyExact(dataSetCount, inputCount + outputCount)], inputCount, outputCount);
+	}
+
+	/**
+	 * Allocates training data in a direct (off-heap) buffer using the native byte order, all values are zero.
+	 *
+	 * @param dataSetCount		the number of data sets
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static TrainingData allocateDirect(int dataSetCount, int inputCount, int outputCount) {
+
+		int bytes = Math.multiplyExact(Math.multiplyExact(dataSetCount, inputCount + outputCount), VALUE_BYTES);
+		return wrap(ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()), inputCount, outputCount);
+	}
+
+	/**
+	 * Copies the input vector of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param target			the array to copy the inputs to
+	 * @param targetOffset		the index of the first input within <code>target</code>
+	 */
+	public void copyInputs(int dataSetIndex, double[] target, int targetOffset) {
+
+		copy(dataSetIndex, 0, target, targetOffset, inputCount);
+	}
+
+	/**
+	 * Copies the desired output vector of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param target			the array to copy the outputs to
+	 * @param targetOffset		the index of the first output within <code>target</code>
+	 */
+	public void copyOutputs(int dataSetIndex, double[] target, int targetOffset) {
+
+		copy(dataSetIndex, inputCount, target, targetOffset, outputCount);
+	}
+
+	/**
+	 * Copies values of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param index				the index of the first value within the data set
+	 * @param target			the array to copy the values to
+	 * @param targetOffset		the index of the first value within <code>target</code>
+	 * @param length			the number of values
+	 */
+	private void copy(int dataSetIndex, int index, double[] target, int targetOffset, int length) {
+
+		if (values != null) {
+			System.arraycopy(values, dataSetIndex * stride + index, target, targetOffset, length);
+		} else {
+			chunks[dataSetIndex / chunkDataSets].get((dataSetIndex % chunkDataSets) * stride + index, 
+					target, targetOffset, length);
+		}
+	}
+
+	/**
+	 * Returns the values of a heap buffer, to read the data sets without copying them: 
+	 * see <code>inputOffset()</code> and <code>outputOffset()</code>.
+	 *
+	 * @return the values of the heap buffer, or null for an off-heap buffer
+	 */
+	public double[] getArray() {
+
+		return values;
+	}
+
+	/**
+	 * @return the number of data sets
+	 */
+	public int getDataSetCount() {
+
+		return dataSetCount;
+	}
+
+	/**
+	 * Returns an input of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param inputIndex		the index of the input
+	 * @return the input
+	 */
+	public double getInput(int dataSetIndex, int inputIndex) {
+
+		return get(dataSetIndex, inputIndex);
+	}
+
+	/**
+	 * @return the number of inputs of a data set
+	 */
+	public int getInputCount() {
+
+		return inputCount;
+	}
+
+	/**
+	 * Returns a desired output of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param outputIndex		the index of the output
+	 * @return the output
+	 */
+	public double getOutput(int dataSetIndex, int outputIndex) {
+
+		return get(dataSetIndex, inputCount + outputIndex);
+	}
+
+	/**
+	 * @return the number of outputs of a data set
+	 */
+	public int getOutputCount() {
+
+		return outputCount;
+	}
+
+	/**
+	 * @return the number of values of a data set: the inputs and the outputs
+	 */
+	public int getStride() {
+
+		return stride;
+	}
+
+	/**
+	 * Returns a value of a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param index				the index of the value within the data set
+	 * @return the value
+	 */
+	private double get(int dataSetIndex, int index) {
+
+		if (values != null) {
+			return values[dataSetIndex * stride + index];
+		}
+		return chunks[dataSetIndex / chunkDataSets].get((dataSetIndex % chunkDataSets) * stride + index);
+	}
+
+	/**
+	 * Returns the index of the first input of a data set within the array of a heap buffer.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @return the index within the buffer
+	 */
+	public int inputOffset(int dataSetIndex) {
+
+		return dataSetIndex * stride;
+	}
+
+	/**
+	 * @return true if the values are stored off-heap (or in a <code>ByteBuffer</code>), 
+	 * 			false if they are stored in a <code>double</code> array
+	 */
+	public boolean isDirect() {
+
+		return values == null;
+	}
+
+	/**
+	 * Creates training data on the heap from interleaved vectors, 
+	 * like <code>BackpropNeuralNetwork.createInOutVectors()</code>.
+	 *
+	 * @param trainingData		the training data: input vector 0, desired output vector 0, 
+	 * 							input vector 1, desired output vector 1, and so on
+	 * @return the training data
+	 */
+	public static TrainingData of(double[][] trainingData) {
+
+		int dataSetCount = trainingData.length / 2;
+		TrainingData data = allocate(dataSetCount, trainingData[0].length, trainingData[1].length);
+		for (int i = 0; i < dataSetCount; i++) {
+			data.setDataSet(i, trainingData[i * 2], trainingData[i * 2 + 1]);
+		}
+		return data;
+	}
+
+	/**
+	 * Returns the index of the first desired output of a data set within the array of a heap buffer.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @return the index within the buffer
+	 */
+	public int outputOffset(int dataSetIndex) {
+
+		return dataSetIndex * stride + inputCount;
+	}
+
+	/**
+	 * Sets a data set.
+	 *
+	 * @param dataSetIndex		the index of the data set
+	 * @param inputs			the input vector
+	 * @param outputs			the desired output vector
+	 */
+	public void setDataSet(int dataSetIndex, double[] inputs, double[] outputs) {
+
+		if (inputs.length != inputCount || outputs.length != outputCount) {
+			throw new IllegalArgumentException("Invalid vector length(s) of data set " + dataSetIndex 
+					+ ": " + inputs.length + "/" + outputs.length);
+		}
+		if (values != null) {
+			System.arraycopy(inputs, 0, values, inputOffset(dataSetIndex), inputCount);
+			System.arraycopy(outputs, 0, values, outputOffset(dataSetIndex), outputCount);
+		} else {
+			DoubleBuffer chunk = chunks[dataSetIndex / chunkDataSets];
+			int index = (dataSetIndex % chunkDataSets) * stride;
+			chunk.put(index, inputs);
+			chunk.put(index + inputCount, outputs);
+		}
+	}
+
+	/**
+	 * Wraps a heap array holding data sets one after another, without copying it.
+	 * Changes to the array are changes of the training data.
+	 *
+	 * @param values			the values of the data sets
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static TrainingData wrap(double[] values, int inputCount, int outputCount) {
+
+		return new TrainingData(inputCount, outputCount, values.length, values, null, 0);
+	}
+
+	/**
+	 * Wraps the remaining bytes of a buffer holding data sets one after another, without copying them.
+	 * The values are read using the byte order of the buffer, which may be a direct (off-heap) buffer
+	 * or a memory-mapped file. Changes to the buffer are changes of the training data.
+	 *
+	 * @param bytes				the buffer
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	public static TrainingData wrap(ByteBuffer bytes, int inputCount, int outputCount) {
+
+		if (bytes.remaining() % VALUE_BYTES != 0) {
+			throw new IllegalArgumentException("The number of bytes (" + bytes.remaining() 
+					+ ") is not a multiple of " + VALUE_BYTES);
+		}
+		DoubleBuffer buffer = bytes.asDoubleBuffer();
+		int stride = inputCount + outputCount;
+		return new TrainingData(inputCount, outputCount, buffer.capacity(), null, 
+				new DoubleBuffer[] {buffer}, stride > 0 ? buffer.capacity() / stride : 0);
+	}
+
+	/**
+	 * Wraps a number of buffers holding data sets one after another, without copying them.
+	 * Each buffer holds <code>chunkDataSets</code> data sets, the last one may hold less.
+	 *
+	 * @param chunks			the buffers, each one holding whole data sets
+	 * @param chunkDataSets		the number of data sets of each buffer but the last one
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the training data
+	 */
+	static TrainingData wrap(ByteBuffer[] chunks, int chunkDataSets, int inputCount, int outputCount) {
+
+		DoubleBuffer[] buffers = new DoubleBuffer[chunks.length];
+		long valueCount = 0;
+		for (int i = 0; i < chunks.length; i++) {
+			buffers[i] = chunks[i].asDoubleBuffer();
+			valueCount += buffers[i].capacity();
+		}
+		return new TrainingData(inputCount, outputCount, valueCount, null, buffers, chunkDataSets);
+	}
+}
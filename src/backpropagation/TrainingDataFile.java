@@ -0,0 +1,303 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * A compact binary file format for training data, read by memory-mapping the file: the data sets 
+ * are sampled directly from the page cache of the operating system, so training data sets much larger 
+ * than the heap need only a small, constant amount of heap.
+ *
+ * <pre>
+ * The file format (little-endian):
+ *
+ * 		int		magic number 0x42505444 ("BPTD")
+ * 		int		version, 1
+ * 		int		the number of inputs of a data set
+ * 		int		the number of outputs of a data set
+ * 		long	the number of data sets
+ * 		double	the values of the data sets: inputs 0, outputs 0, inputs 1, outputs 1, ...
+ *
+ * Usage:
+ *
+ * 		TrainingDataFile.write(path, trainingData);			// convert interleaved double[][] training data
+ * 		neuralNetwork.setTrainingData(TrainingDataFile.map(path));
+ * 		neuralNetwork.trainRandom(trainings, 1);
+ *
+ * Larger data sets are written one by one, without holding them in the heap:
+ *
+ * 		try (TrainingDataFile.Writer writer = TrainingDataFile.create(path, inputCount, outputCount)) {
+ * 			writer.add(inputs, outputs);
+ * 			...
+ * 		}
+ * </pre>
+ */
+public class TrainingDataFile {
+
+	/** the magic number at the start of a file */
+	public static final int MAGIC = 0x42505444;
+	/** the version of the file format */
+	public static final int FORMAT_VERSION = 1;
+	/** the number of bytes of the header, the values start 8-byte aligned */
+	public static final int HEADER_SIZE = 24;
+	/** the byte order of a file */
+	public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	/** the maximum size of a memory-mapped chunk of a file */
+	private static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+	/**
+	 * Creates a training data file to write data sets one by one.
+	 *
+	 * @param path				the file, replaced if it exists
+	 * @param inputCount		the number of inputs of a data set
+	 * @param outputCount		the number of outputs of a data set
+	 * @return the writer, to be closed after the last data set
+	 * @throws IOException		if the file cannot be written
+	 */
+	public static Writer create(Path path, int inputCount, int outputCount) throws IOException {
+
+		return new Writer(path, inputCount, outputCount);
+	}
+
+	/**
+	 * Memory-maps a training data file (read only). The file may be larger than 2 GB, it is mapped
+	 * in chunks of whole data sets. The mapping stays valid until the training data is garbage collected.
+	 *
+	 * @param path				the file
+	 * @return the training data, reading the data sets from the mapped file
+	 * @throws IOException		if the file cannot be read or is not a training data file
+	 */
+	public static TrainingData map(Path path) throws IOException {
+
+		return map(path, MAX_CHUNK_SIZE);
+	}
+
+	/**
+	 * Memory-maps a training data file (read only) in chunks of a maximum size.
+	 *
+	 * @param path				the file
+	 * @param maxChunkSize		the maximum size of a mapped chunk in bytes
+	 * @return the training data, reading the data sets from the mapped file
+	 * @throws IOException		if the file cannot be read or is not a training data file
+	 */
+	static TrainingData map(Path path, int maxChunkSize) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read the whole header
+			}
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+				throw new IOException("Not a training data file: " + path);
+			}
+			int version = header.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported training data file version " + version + ": " + path);
+			}
+			int inputCount = header.getInt();
+			int outputCount = header.getInt();
+			long dataSetCount = header.getLong();
+			long dataSetSize = ((long) inputCount + outputCount) * Double.BYTES;
+			if (inputCount <= 0 || outputCount <= 0 || dataSetCount < 0 || dataSetCount > Integer.MAX_VALUE
+					|| channel.size() < HEADER_SIZE + dataSetCount * dataSetSize) {
+				throw new IOException("Corrupt training data file: " + path);
+			}
+			int chunkDataSets = (int) Math.max(1, Math.min(dataSetCount, maxChunkSize / dataSetSize));
+			int chunkCount = (int) ((dataSetCount + chunkDataSets - 1) / chunkDataSets);
+			ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+			for (int i = 0; i < chunkCount; i++) {
+				long first = (long) i * chunkDataSets;
+				long size = Math.min(chunkDataSets, dataSetCount - first) * dataSetSize;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * dataSetSize, size)
+						.order(BYTE_ORDER);
+			}
+			return TrainingData.wrap(chunks, chunkDataSets, inputCount, outputCount);
+		}
+	}
+
+	/**
+	 * Writes training data in the interleaved layout of 
+	 * <code>BackpropNeuralNetwork.createInOutVectors()</code> to a file.
+	 *
+	 * @param path				the file, replaced if it exists
+	 * @param trainingData		the training data: input vector 0, desired output vector 0, 
+	 * 							input vector 1, desired output vector 1, and so on
+	 * @throws IOException		if the file cannot be written
+	 */
+	public static void write(Path path, double[][] trainingData) throws IOException {
+
+		try (Writer writer = create(path, trainingData[0].length, trainingData[1].length)) {
+			for (int i = 0; i + 1 < trainingData.length; i += 2) {
+				writer.add(trainingData[i], trainingData[i + 1]);
+			}
+		}
+	}
+
+	/**
+	 * Writes training data to a file.
+	 *
+	 * @param path				the file, replaced if it exists
+	 * @param trainingData		the training data
+	 * @throws IOException		if the file cannot be written
+	 */
+	public static void write(Path path, TrainingData trainingData) throws IOException {
+
+		double[] inputs = new double[trainingData.getInputCount()];
+		double[] outputs = new double[trainingData.getOutputCount()];
+		try (Writer writer = create(path, inputs.length, outputs.length)) {
+			for (int i = 0; i < trainingData.getDataSetCount(); i++) {
+				trainingData.copyInputs(i, inputs, 0);
+				trainingData.copyOutputs(i, outputs, 0);
+				writer.add(inputs, outputs);
+			}
+		}
+	}
+
+	/**
+	 * Writes the data sets of a training data file one by one, using a small buffer.
+	 * The number of data sets is written to the header when the writer is closed.
+	 */
+	public static class Writer implements Closeable {
+
+		/** the size of the write buffer */
+		private static final int BUFFER_SIZE = 1 << 16;
+
+		/** the file */
+		private final FileChannel channel;
+		/** the number of inputs of a data set */
+		private final int inputCount;
+		/** the number of outputs of a data set */
+		private final int outputCount;
+		/** the write buffer */
+		private final ByteBuffer buffer;
+		/** the number of data sets written */
+		private long dataSetCount;
+
+		/**
+		 * Creates the file and writes a header without data sets.
+		 *
+		 * @param path				the file, replaced if it exists
+		 * @param inputCount		the number of inputs of a data set
+		 * @param outputCount		the number of outputs of a data set
+		 * @throws IOException		if the file cannot be written
+		 */
+		private Writer(Path path, int inputCount, int outputCount) throws IOException {
+
+			if (inputCount <= 0 || outputCount <= 0) {
+				throw new IllegalArgumentException("Invalid number of inputs/outputs: " + inputCount + "/" + outputCount);
+			}
+			this.inputCount = inputCount;
+			this.outputCount = outputCount;
+			channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+					StandardOpenOption.TRUNCATE_EXISTING);
+			buffer = ByteBuffer.allocate(BUFFER_SIZE).order(BYTE_ORDER);
+			writeHeader();
+			channel.position(HEADER_SIZE);
+		}
+
+		/**
+		 * Writes a data set.
+		 *
+		 * @param inputs			the input vector
+		 * @param outputs			the desired output vector
+		 * @throws IOException		if the file cannot be written
+		 */
+		public void add(double[] inputs, double[] outputs) throws IOException {
+
+			if (inputs.length != inputCount || outputs.length != outputCount) {
+				throw new IllegalArgumentException("Invalid vector length(s) of data set " + dataSetCount 
+						+ ": " + inputs.length + "/" + outputs.length);
+			}
+			put(inputs);
+			put(outputs);
+			dataSetCount++;
+		}
+
+		/**
+		 * Writes the buffered data sets and the number of data sets, and closes the file.
+		 *
+		 * @throws IOException		if the file cannot be written
+		 */
+		@Override
+		public void close() throws IOException {
+
+			try (channel) {
+				flush();
+				writeHeader();
+			}
+		}
+
+		/**
+		 * Writes the write buffer to the file.
+		 *
+		 * @throws IOException		if the file cannot be written
+		 */
+		private void flush() throws IOException {
+
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * @return the number of data sets written
+		 */
+		public long getDataSetCount() {
+
+			return dataSetCount;
+		}
+
+		/**
+		 * Writes values to the write buffer.
+		 *
+		 * @param values			the values
+		 * @throws IOException		if the file cannot be written
+		 */
+		private void put(double[] values) throws IOException {
+
+			for (double value : values) {
+				if (buffer.remaining() < Double.BYTES) {
+					flush();
+				}
+				buffer.putDouble(value);
+			}
+		}
+
+		/**
+		 * Writes the header at the start of the file.
+		 *
+		 * @throws IOException		if the file cannot be written
+		 */
+		private void writeHeader() throws IOException {
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(inputCount).putInt(outputCount).putLong(dataSetCount);
+			header.flip();
+			long position = 0;
+			while (header.hasRemaining()) {
+				position += channel.write(header, position);
+			}
+		}
+	}
+}
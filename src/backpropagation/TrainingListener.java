@@ -0,0 +1,33 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * A listener of the training of a network, notified at the end of each epoch,
+ * see <code>TrainingMetrics.addListener()</code>.
+ */
+@FunctionalInterface
+public interface TrainingListener {
+
+	/**
+	 * Called by the training thread at the end of an epoch. The metrics of the epoch are 
+	 * the getters of <code>metrics</code>, which are overwritten by the next epoch.
+	 *
+	 * @param metrics		the metrics of the network
+	 */
+	void epochCompleted(TrainingMetrics metrics);
+}
@@ -0,0 +1,303 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.lang.management.*;
+import java.util.*;
+
+import javax.management.*;
+
+/**
+ * The metrics of the training of a network, collected per epoch: the mean loss of the data sets 
+ * (the mean squared error of the outputs, or the cross-entropy of a softmax output layer), 
+ * the data sets trained per second, the time of the forward passes, the backward passes and 
+ * the updates, and the norms of the gradients. 
+ * 
+ * <pre>
+ * The metrics are disabled by default, they add some System.nanoTime() calls and the gradient norms 
+ * to each training step (or mini-batch), but no allocations. An epoch ends after a number of data sets, 
+ * by default the number of training data sets of the network, or by <code>endEpoch()</code>. 
+ * The metrics of the last completed epoch are published to the listeners and as a JMX MBean:
+ *
+ * 		TrainingMetrics metrics = neuralNetwork.getMetrics();
+ * 		metrics.addListener(m -&gt; System.out.println(m));
+ * 		metrics.registerMBean("xor");			// backpropagation:type=TrainingMetrics,name="xor"
+ * 		metrics.setEnabled(true);
+ * </pre>
+ * 
+ * The metrics are collected by the training thread, the getters may be called by any thread.
+ * The times of a <code>ParallelTrainer</code> are the sums over its threads.
+ */
+public class TrainingMetrics implements TrainingMetricsMBean {
+
+	/** the domain of the JMX object names */
+	public static final String MBEAN_DOMAIN = "backpropagation";
+	/** the number of nanoseconds per millisecond */
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	/** true if the metrics are collected */
+	private volatile boolean enabled;
+	/** the number of data sets of an epoch, 0 for the number of training data sets */
+	private volatile int epochSize;
+	/** the listeners */
+	private volatile TrainingListener[] listeners = new TrainingListener[0];
+	/** the name of the registered MBean, null if none */
+	private ObjectName objectName;
+
+	/** the data sets of the current epoch */
+	private long samples;
+	/** the sum of the losses of the current epoch */
+	private double lossSum;
+	/** the time of the forward passes of the current epoch */
+	private long forwardNanos;
+	/** the time of the backward passes of the current epoch */
+	private long backwardNanos;
+	/** the time of the updates of the current epoch */
+	private long updateNanos;
+	/** the number of updates of the current epoch */
+	private long updates;
+	/** the sum of the gradient norms of the current epoch */
+	private double gradientNormSum;
+	/** the maximum gradient norm of the current epoch */
+	private double maxGradientNorm;
+	/** the start time of the current epoch */
+	private long startNanos;
+
+	/** the number of completed epochs */
+	private volatile long epoch;
+	/** the data sets of the last epoch */
+	private volatile long lastSamples;
+	/** the mean loss of the last epoch */
+	private volatile double lastLoss;
+	/** the data sets per second of the last epoch */
+	private volatile double lastSamplesPerSecond;
+	/** the time of the forward passes of the last epoch */
+	private volatile long lastForwardNanos;
+	/** the time of the backward passes of the last epoch */
+	private volatile long lastBackwardNanos;
+	/** the time of the updates of the last epoch */
+	private volatile long lastUpdateNanos;
+	/** the mean gradient norm of the last epoch */
+	private volatile double lastGradientNorm;
+	/** the maximum gradient norm of the last epoch */
+	private volatile double lastMaxGradientNorm;
+
+	/**
+	 * Adds a listener, notified at the end of each epoch.
+	 *
+	 * @param listener		the listener
+	 */
+	public synchronized void addListener(TrainingListener listener) {
+
+		TrainingListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+		newListeners[listeners.length] = listener;
+		listeners = newListeners;
+	}
+
+	/**
+	 * Ends the current epoch, if it has any data sets: the metrics of the epoch are published 
+	 * and the listeners are notified. Called by the training thread.
+	 */
+	public void endEpoch() {
+
+		if (samples == 0) {
+			return;
+		}
+		long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+		lastSamples = samples;
+		lastLoss = lossSum / samples;
+		lastSamplesPerSecond = samples * 1e9 / elapsedNanos;
+		lastForwardNanos = forwardNanos;
+		lastBackwardNanos = backwardNanos;
+		lastUpdateNanos = updateNanos;
+		lastGradientNorm = updates == 0 ? 0 : gradientNormSum / updates;
+		lastMaxGradientNorm = maxGradientNorm;
+		epoch++;
+		samples = 0;
+		lossSum = 0;
+		forwardNanos = 0;
+		backwardNanos = 0;
+		updateNanos = 0;
+		updates = 0;
+		gradientNormSum = 0;
+		maxGradientNorm = 0;
+		for (TrainingListener listener : listeners) {
+			listener.epochCompleted(this);
+		}
+	}
+
+	@Override
+	public double getBackwardMillis() {
+
+		return lastBackwardNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public long getEpoch() {
+
+		return epoch;
+	}
+
+	@Override
+	public int getEpochSize() {
+
+		return epochSize;
+	}
+
+	@Override
+	public double getForwardMillis() {
+
+		return lastForwardNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getGradientNorm() {
+
+		return lastGradientNorm;
+	}
+
+	@Override
+	public double getLoss() {
+
+		return lastLoss;
+	}
+
+	@Override
+	public double getMaxGradientNorm() {
+
+		return lastMaxGradientNorm;
+	}
+
+	@Override
+	public long getSamples() {
+
+		return lastSamples;
+	}
+
+	@Override
+	public double getSamplesPerSecond() {
+
+		return lastSamplesPerSecond;
+	}
+
+	@Override
+	public double getUpdateMillis() {
+
+		return lastUpdateNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public boolean isEnabled() {
+
+		return enabled;
+	}
+
+	/**
+	 * Records a training step (one data set or a mini-batch), ending the epoch if it is complete.
+	 *
+	 * @param sampleCount				the number of data sets of the step
+	 * @param loss						the sum of the losses of the data sets
+	 * @param forwardTime				the time of the forward passes in nanoseconds
+	 * @param backwardTime				the time of the backward passes in nanoseconds
+	 * @param updateTime				the time of the update in nanoseconds
+	 * @param gradientNorm				the L2 norm of the gradients of the update
+	 * @param trainingDataSetCount		the number of training data sets of the network
+	 */
+	void record(int sampleCount, double loss, long forwardTime, long backwardTime, long updateTime, 
+			double gradientNorm, int trainingDataSetCount) {
+
+		if (samples == 0) {
+			startNanos = System.nanoTime() - (forwardTime + backwardTime + updateTime);
+		}
+		samples += sampleCount;
+		lossSum += loss;
+		forwardNanos += forwardTime;
+		backwardNanos += backwardTime;
+		updateNanos += updateTime;
+		updates++;
+		gradientNormSum += gradientNorm;
+		maxGradientNorm = Math.max(maxGradientNorm, gradientNorm);
+		int size = epochSize > 0 ? epochSize : trainingDataSetCount;
+		if (size > 0 && samples >= size) {
+			endEpoch();
+		}
+	}
+
+	/**
+	 * Registers these metrics as an MBean of the platform MBean server, 
+	 * named <code>backpropagation:type=TrainingMetrics,name="&lt;name&gt;"</code>.
+	 *
+	 * @param name				the name of the network
+	 * @return the object name of the MBean
+	 * @throws JMException		if the MBean cannot be registered, e.g. the name is already registered
+	 */
+	public synchronized ObjectName registerMBean(String name) throws JMException {
+
+		ObjectName newName = new ObjectName(MBEAN_DOMAIN + ":type=TrainingMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+		objectName = newName;
+		return newName;
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener		the listener
+	 */
+	public synchronized void removeListener(TrainingListener listener) {
+
+		List<TrainingListener> newListeners = new ArrayList<>(Arrays.asList(listeners));
+		newListeners.remove(listener);
+		listeners = newListeners.toArray(new TrainingListener[0]);
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void setEpochSize(int epochSize) {
+
+		if (epochSize < 0) {
+			throw new IllegalArgumentException("Invalid epoch size: " + epochSize);
+		}
+		this.epochSize = epochSize;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format(Locale.ROOT, "epoch %d: loss %.6f, %.0f data sets/s, forward %.1f ms, backward %.1f ms, "
+				+ "update %.1f ms, gradient norm %.4g (max. %.4g)", getEpoch(), getLoss(), getSamplesPerSecond(), 
+				getForwardMillis(), getBackwardMillis(), getUpdateMillis(), getGradientNorm(), getMaxGradientNorm());
+	}
+
+	/**
+	 * Unregisters the MBean registered by <code>registerMBean()</code>, if any.
+	 *
+	 * @throws JMException		if the MBean cannot be unregistered
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+
+		if (objectName != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+/**
+ * The JMX management interface of <code>TrainingMetrics</code>: the metrics of the last completed epoch.
+ */
+public interface TrainingMetricsMBean {
+
+	/**
+	 * @return the time of the backward passes of the epoch in milliseconds
+	 */
+	double getBackwardMillis();
+
+	/**
+	 * @return the number of completed epochs
+	 */
+	long getEpoch();
+
+	/**
+	 * @return the number of data sets of an epoch, 0 for the number of training data sets of the network
+	 */
+	int getEpochSize();
+
+	/**
+	 * @return the time of the forward passes of the epoch in milliseconds
+	 */
+	double getForwardMillis();
+
+	/**
+	 * @return the mean L2 norm of the gradients of all weights and biases of the updates of the epoch
+	 */
+	double getGradientNorm();
+
+	/**
+	 * @return the mean loss of the data sets of the epoch
+	 */
+	double getLoss();
+
+	/**
+	 * @return the maximum L2 norm of the gradients of all weights and biases of the updates of the epoch
+	 */
+	double getMaxGradientNorm();
+
+	/**
+	 * @return the number of data sets of the epoch
+	 */
+	long getSamples();
+
+	/**
+	 * @return the number of data sets trained per second in the epoch
+	 */
+	double getSamplesPerSecond();
+
+	/**
+	 * @return the time of the updates of the weights and biases of the epoch in milliseconds
+	 */
+	double getUpdateMillis();
+
+	/**
+	 * @return true if the metrics are collected
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Sets the number of data sets of an epoch.
+	 *
+	 * @param epochSize		the number of data sets, 0 for the number of training data sets of the network
+	 */
+	void setEpochSize(int epochSize);
+
+	/**
+	 * Enables or disables the collection of the metrics.
+	 *
+	 * @param enabled		true to collect the metrics
+	 */
+	void setEnabled(boolean enabled);
+}
@@ -0,0 +1,80 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.random.*;
+
+/**
+ * Initializes the weights and biases with uniformly distributed random numbers in a range.
+ * The default range [0.1 .. 0.5] is the range of the constructors of <code>BackpropNeuralNetwork</code>,
+ * which works for small networks of sigmoid nodes.
+ */
+public class UniformInitializer extends Initializer {
+
+	/** the initializer of the default range [0.1 .. 0.5] */
+	public static final UniformInitializer DEFAULT = new UniformInitializer(0.1, 0.5);
+
+	/** the minimum of the weights and biases, inclusive */
+	private final double min;
+	/** the maximum of the weights and biases, exclusive */
+	private final double max;
+
+	/**
+	 * Constructs an initializer.
+	 *
+	 * @param min			the minimum of the weights and biases, inclusive
+	 * @param max			the maximum of the weights and biases, exclusive
+	 */
+	public UniformInitializer(double min, double max) {
+
+		if (!(min < max)) {
+			throw new IllegalArgumentException("Invalid range of the initializer: " + min + " .. " + max);
+		}
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * @return the maximum of the weights and biases, exclusive
+	 */
+	public double getMax() {
+
+		return max;
+	}
+
+	/**
+	 * @return the minimum of the weights and biases, inclusive
+	 */
+	public double getMin() {
+
+		return min;
+	}
+
+	@Override
+	public String getName() {
+
+		return "uniform [" + min + " .. " + max + "]";
+	}
+
+	@Override
+	public void initialize(Layer layer, RandomGenerator random) {
+
+		double[] weights = layer.getWeights().getValues();
+		fillUniform(weights, 0, weights.length, min, max, random);
+		fillUniform(layer.getBias(), 0, layer.getNodeCount(), min, max, random);
+	}
+}
@@ -0,0 +1,259 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import jdk.incubator.vector.*;
+
+/**
+ * The kernels using SIMD instructions of the Java Vector API, with the preferred vector size
+ * of the platform. This class is only loaded if the module <code>jdk.incubator.vector</code>
+ * is available, see <code>Kernels</code>.
+ */
+final class VectorKernels extends Kernels {
+
+	/** the vector species of the computations */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	/** the number of lanes of a vector */
+	private static final int LANES = SPECIES.length();
+	/** the vector species of the single precision computations */
+	private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+	/** the number of lanes of a single precision vector */
+	private static final int FLOAT_LANES = FLOAT_SPECIES.length();
+	/** the vector species of the 32 bit integer sums of the 8 bit integer computations */
+	private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+	/** the number of lanes of an integer vector */
+	private static final int INT_LANES = INT_SPECIES.length();
+	/** 
+	 * the vector species of the 8 bit integers, at least one byte per lane of an integer vector: 
+	 * a 32 bit shape does not exist, so below 8 integer lanes (128 bit vectors) the 64 bit species 
+	 * is used and converted in parts 
+	 */
+	private static final VectorSpecies<Byte> BYTE_SPECIES = VectorSpecies.of(byte.class, 
+			VectorShape.forBitSize(Math.max(64, INT_LANES * Byte.SIZE)));
+	/** the number of lanes of a byte vector */
+	private static final int BYTE_LANES = BYTE_SPECIES.length();
+	/** the number of integer vectors converted from one byte vector */
+	private static final int BYTE_PARTS = BYTE_LANES / INT_LANES;
+	/** 
+	 * whether the vector exponential function is compiled to SIMD instructions: Java 17 has intrinsics
+	 * for x86-64 only, otherwise it is computed lane by lane, much slower than <code>Math.exp()</code> 
+	 */
+	private static final boolean EXP_INTRINSIC = "amd64".equals(System.getProperty("os.arch"))
+			|| "x86_64".equals(System.getProperty("os.arch"));
+	/** the kernels of the exponential function without intrinsics */
+	private static final Kernels SCALAR = new ScalarKernels();
+
+	@Override
+	void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+
+		DoubleVector alphas = DoubleVector.broadcast(SPECIES, alpha);
+		int i = 0;
+		for (int upper = SPECIES.loopBound(length); i < upper; i += LANES) {
+			DoubleVector.fromArray(SPECIES, x, xOffset + i)
+					.fma(alphas, DoubleVector.fromArray(SPECIES, y, yOffset + i))
+					.intoArray(y, yOffset + i);
+		}
+		for (; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+
+		FloatVector alphas = FloatVector.broadcast(FLOAT_SPECIES, alpha);
+		int i = 0;
+		for (int upper = FLOAT_SPECIES.loopBound(length); i < upper; i += FLOAT_LANES) {
+			FloatVector.fromArray(FLOAT_SPECIES, x, xOffset + i)
+					.fma(alphas, FloatVector.fromArray(FLOAT_SPECIES, y, yOffset + i))
+					.intoArray(y, yOffset + i);
+		}
+		for (; i < length; i++) {
+			y[yOffset + i] += alpha * x[xOffset + i];
+		}
+	}
+
+	@Override
+	void axpy4(double alpha0, double alpha1, double alpha2, double alpha3,
+			double[] x, int xOffset, int stride, double[] y, int yOffset, int length) {
+
+		int x0 = xOffset;
+		int x1 = x0 + stride;
+		int x2 = x1 + stride;
+		int x3 = x2 + stride;
+		DoubleVector alphas0 = DoubleVector.broadcast(SPECIES, alpha0);
+		DoubleVector alphas1 = DoubleVector.broadcast(SPECIES, alpha1);
+		DoubleVector alphas2 = DoubleVector.broadcast(SPECIES, alpha2);
+		DoubleVector alphas3 = DoubleVector.broadcast(SPECIES, alpha3);
+		int i = 0;
+		for (int upper = SPECIES.loopBound(length); i < upper; i += LANES) {
+			DoubleVector sum = DoubleVector.fromArray(SPECIES, y, yOffset + i);
+			sum = DoubleVector.fromArray(SPECIES, x, x0 + i).fma(alphas0, sum);
+			sum = DoubleVector.fromArray(SPECIES, x, x1 + i).fma(alphas1, sum);
+			sum = DoubleVector.fromArray(SPECIES, x, x2 + i).fma(alphas2, sum);
+			sum = DoubleVector.fromArray(SPECIES, x, x3 + i).fma(alphas3, sum);
+			sum.intoArray(y, yOffset + i);
+		}
+		for (; i < length; i++) {
+			y[yOffset + i] += alpha0 * x[x0 + i] + alpha1 * x[x1 + i] + alpha2 * x[x2 + i] + alpha3 * x[x3 + i];
+		}
+	}
+
+	@Override
+	double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+
+		DoubleVector sums = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (int upper = SPECIES.loopBound(length); i < upper; i += LANES) {
+			sums = DoubleVector.fromArray(SPECIES, a, aOffset + i)
+					.fma(DoubleVector.fromArray(SPECIES, b, bOffset + i), sums);
+		}
+		double sum = sums.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+
+		FloatVector sums = FloatVector.zero(FLOAT_SPECIES);
+		int i = 0;
+		for (int upper = FLOAT_SPECIES.loopBound(length); i < upper; i += FLOAT_LANES) {
+			sums = FloatVector.fromArray(FLOAT_SPECIES, a, aOffset + i)
+					.fma(FloatVector.fromArray(FLOAT_SPECIES, b, bOffset + i), sums);
+		}
+		float sum = sums.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+
+		IntVector sums = IntVector.zero(INT_SPECIES);
+		int i = 0;
+		for (int upper = BYTE_SPECIES.loopBound(length); i < upper; i += BYTE_LANES) {
+			ByteVector as = ByteVector.fromArray(BYTE_SPECIES, a, aOffset + i);
+			ByteVector bs = ByteVector.fromArray(BYTE_SPECIES, b, bOffset + i);
+			for (int part = 0; part < BYTE_PARTS; part++) {
+				IntVector aInts = (IntVector) as.convertShape(VectorOperators.B2I, INT_SPECIES, part);
+				IntVector bInts = (IntVector) bs.convertShape(VectorOperators.B2I, INT_SPECIES, part);
+				sums = aInts.mul(bInts).add(sums);
+			}
+		}
+		int sum = sums.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			sum += a[aOffset + i] * b[bOffset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	void dot4(double[] rows, int rowsOffset, double[] vector, int vectorOffset, int length,
+			double[] results, int resultOffset) {
+
+		int row0 = rowsOffset;
+		int row1 = row0 + length;
+		int row2 = row1 + length;
+		int row3 = row2 + length;
+		DoubleVector sums0 = DoubleVector.zero(SPECIES);
+		DoubleVector sums1 = DoubleVector.zero(SPECIES);
+		DoubleVector sums2 = DoubleVector.zero(SPECIES);
+		DoubleVector sums3 = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (int upper = SPECIES.loopBound(length); i < upper; i += LANES) {
+			DoubleVector values = DoubleVector.fromArray(SPECIES, vector, vectorOffset + i);
+			sums0 = DoubleVector.fromArray(SPECIES, rows, row0 + i).fma(values, sums0);
+			sums1 = DoubleVector.fromArray(SPECIES, rows, row1 + i).fma(values, sums1);
+			sums2 = DoubleVector.fromArray(SPECIES, rows, row2 + i).fma(values, sums2);
+			sums3 = DoubleVector.fromArray(SPECIES, rows, row3 + i).fma(values, sums3);
+		}
+		double sum0 = sums0.reduceLanes(VectorOperators.ADD);
+		double sum1 = sums1.reduceLanes(VectorOperators.ADD);
+		double sum2 = sums2.reduceLanes(VectorOperators.ADD);
+		double sum3 = sums3.reduceLanes(VectorOperators.ADD);
+		for (; i < length; i++) {
+			double value = vector[vectorOffset + i];
+			sum0 += rows[row0 + i] * value;
+			sum1 += rows[row1 + i] * value;
+			sum2 += rows[row2 + i] * value;
+			sum3 += rows[row3 + i] * value;
+		}
+		results[resultOffset] = sum0;
+		results[resultOffset + 1] = sum1;
+		results[resultOffset + 2] = sum2;
+		results[resultOffset + 3] = sum3;
+	}
+
+	@Override
+	public String getName() {
+
+		return "vector (" + SPECIES + ")";
+	}
+
+	@Override
+	void multiplySigmoidDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		DoubleVector ones = DoubleVector.broadcast(SPECIES, 1);
+		int i = from;
+		for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += LANES) {
+			DoubleVector output = DoubleVector.fromArray(SPECIES, outputs, i);
+			DoubleVector.fromArray(SPECIES, errors, i).mul(output).mul(ones.sub(output)).intoArray(errors, i);
+		}
+		for (; i < to; i++) {
+			double output = outputs[i];
+			errors[i] = errors[i] * output * (1 - output);
+		}
+	}
+
+	@Override
+	void multiplyTanhDerivative(double[] outputs, double[] errors, int from, int to) {
+
+		DoubleVector ones = DoubleVector.broadcast(SPECIES, 1);
+		int i = from;
+		for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += LANES) {
+			DoubleVector output = DoubleVector.fromArray(SPECIES, outputs, i);
+			DoubleVector.fromArray(SPECIES, errors, i).mul(ones.sub(output.mul(output))).intoArray(errors, i);
+		}
+		for (; i < to; i++) {
+			double output = outputs[i];
+			errors[i] *= 1 - output * output;
+		}
+	}
+
+	@Override
+	void sigmoid(double[] values, int from, int to) {
+
+		if (!EXP_INTRINSIC) {
+			SCALAR.sigmoid(values, from, to);
+			return;
+		}
+		DoubleVector ones = DoubleVector.broadcast(SPECIES, 1);
+		int i = from;
+		for (int upper = from + SPECIES.loopBound(to - from); i < upper; i += LANES) {
+			DoubleVector exp = DoubleVector.fromArray(SPECIES, values, i).neg().lanewise(VectorOperators.EXP);
+			ones.div(exp.add(ones)).intoArray(values, i);
+		}
+		for (; i < to; i++) {
+			values[i] = 1 / (1 + Math.exp(-values[i]));
+		}
+	}
+}
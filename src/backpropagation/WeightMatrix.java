@@ -0,0 +1,366 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+
+/**
+ * The weights between two layers of a neural network, stored in one contiguous row-major
+ * <code>double</code> array.<br>
+ * Row <code>i</code> holds the weights of all connections into node <code>i</code> of the receiving
+ * layer, column <code>j</code> belongs to node <code>j</code> of the sending layer. This layout lets
+ * the dot products of the forward pass as well as the weight updates of the training walk
+ * through memory sequentially, instead of jumping to a different row array for each multiply-add.
+ */
+public class WeightMatrix {
+
+	/** the kernels of the computations */
+	private static final Kernels KERNELS = Kernels.get();
+	/** the number of weights of a tile in the batch operations, chosen to stay within the L1/L2 cache */
+	private static final int TILE_SIZE = 16384;
+
+	/** the number of rows: the nodes of the receiving layer */
+	private final int rows;
+	/** the number of columns: the nodes of the sending layer */
+	private final int columns;
+	/** the weights, row after row */
+	private final double[] values;
+
+	/**
+	 * Constructs a matrix with all weights set to zero.
+	 *
+	 * @param rows			the number of rows (nodes of the receiving layer)
+	 * @param columns		the number of columns (nodes of the sending layer)
+	 */
+	public WeightMatrix(int rows, int columns) {
+
+		this.rows = rows;
+		this.columns = columns;
+		values = new double[rows * columns];
+	}
+
+	/**
+	 * Adds the scaled outer product of two vectors to this matrix,
+	 * <code>this[i][j] += scale * rowVector[i] * columnVector[j]</code>.
+	 * This is the weight update of a training step, where <code>rowVector</code> are the errors of the
+	 * receiving layer and <code>columnVector</code> are the outputs of the sending layer.
+	 *
+	 * @param scale				the scale, usually the learning rate
+	 * @param rowVector			a vector of length <code>rows</code>
+	 * @param columnVector		a vector of length <code>columns</code>
+	 */
+	public void addOuterProduct(double scale, double[] rowVector, double[] columnVector) {
+
+		addOuterProduct(scale, rowVector, columnVector, 0);
+	}
+
+	/**
+	 * Adds the scaled outer product of two vectors to this matrix, like 
+	 * {@link #addOuterProduct(double, double[], double[])}, but reading the column vector at an offset.
+	 *
+	 * @param scale				the scale, usually the learning rate
+	 * @param rowVector			a vector of length <code>rows</code>
+	 * @param columnVector		a vector of length <code>columns</code>, at <code>columnOffset</code>
+	 * @param columnOffset		the index of the first element within <code>columnVector</code>
+	 */
+	public void addOuterProduct(double scale, double[] rowVector, double[] columnVector, int columnOffset) {
+
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			KERNELS.axpy(scale * rowVector[i], columnVector, columnOffset, values, rowStart, columns);
+		}
+	}
+
+	/**
+	 * Adds the scaled outer product of a vector and a sparse vector to this matrix, like 
+	 * {@link #addOuterProduct(double, double[], double[])}, but only the columns of the non-zero 
+	 * elements of the sparse vector are changed.
+	 *
+	 * @param scale				the scale, usually the learning rate
+	 * @param rowVector			a vector of length <code>rows</code>
+	 * @param columnVector		a sparse vector of dimension <code>columns</code>
+	 */
+	public void addOuterProduct(double scale, double[] rowVector, SparseVector columnVector) {
+
+		int[] indices = columnVector.getIndices();
+		double[] columnValues = columnVector.getValues();
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			double alpha = scale * rowVector[i];
+			for (int n = 0; n < indices.length; n++) {
+				values[rowStart + indices[n]] += alpha * columnValues[n];
+			}
+		}
+	}
+
+	/**
+	 * Adds the scaled outer products of pairs of vectors to this matrix,
+	 * <code>this[i][j] += scale * sum(rowVectors[n][i] * columnVectors[n][j])</code>.
+	 * Used as a gradient, this accumulates a whole mini-batch in one matrix-matrix product:
+	 * <code>rowVectors</code> are the errors of the receiving layer and <code>columnVectors</code>
+	 * the outputs of the sending layer, one vector per data set of the batch.
+	 *
+	 * @param scale				the scale
+	 * @param rowVectors		<code>count</code> vectors of length <code>rows</code>, one after another
+	 * @param columnVectors		<code>count</code> vectors of length <code>columns</code>, one after another
+	 * @param count				the number of vector pairs
+	 */
+	public void addOuterProducts(double scale, double[] rowVectors, double[] columnVectors, int count) {
+
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			// the row i of this matrix stays in the cache while the batch is streamed through,
+			// four vector pairs at a time to save loads and stores of the row
+			int n = 0;
+			for (; n + 3 < count; n += 4) {
+				KERNELS.axpy4(scale * rowVectors[n * rows + i], scale * rowVectors[(n + 1) * rows + i],
+						scale * rowVectors[(n + 2) * rows + i], scale * rowVectors[(n + 3) * rows + i],
+						columnVectors, n * columns, columns, values, rowStart, columns);
+			}
+			for (; n < count; n++) {
+				KERNELS.axpy(scale * rowVectors[n * rows + i], columnVectors, n * columns, values, rowStart, columns);
+			}
+		}
+	}
+
+	/**
+	 * Adds a scaled matrix of the same size to this matrix, <code>this += scale * matrix</code>.
+	 *
+	 * @param scale			the scale
+	 * @param matrix		the matrix to add, usually an accumulated gradient
+	 */
+	public void addScaled(double scale, WeightMatrix matrix) {
+
+		KERNELS.axpy(scale, matrix.values, 0, values, 0, values.length);
+	}
+
+	/**
+	 * Sets all weights to zero.
+	 */
+	public void clear() {
+
+		Arrays.fill(values, 0);
+	}
+
+	/**
+	 * Returns a weight.
+	 *
+	 * @param row			the row (node of the receiving layer)
+	 * @param column		the column (node of the sending layer)
+	 * @return the weight
+	 */
+	public double get(int row, int column) {
+
+		return values[row * columns + column];
+	}
+
+	/**
+	 * @return the number of columns (nodes of the sending layer)
+	 */
+	public int getColumns() {
+
+		return columns;
+	}
+
+	/**
+	 * @return the number of rows (nodes of the receiving layer)
+	 */
+	public int getRows() {
+
+		return rows;
+	}
+
+	/**
+	 * Returns the backing array of this matrix, row after row.
+	 * Changes to the array are changes of the weights.
+	 *
+	 * @return the backing array
+	 */
+	public double[] getValues() {
+
+		return values;
+	}
+
+	/**
+	 * Multiplies this matrix with a vector and adds a bias,
+	 * <code>result[i] = sum(this[i][j] * vector[j]) + bias[i]</code>.
+	 * This is the net input of the receiving layer in a forward pass.
+	 *
+	 * @param vector		the outputs of the sending layer, a vector of length <code>columns</code>
+	 * @param bias			the bias of the receiving layer, a vector of length <code>rows</code>
+	 * @param result		the result, a vector of length <code>rows</code>
+	 */
+	public void multiply(double[] vector, double[] bias, double[] result) {
+
+		multiply(vector, 0, bias, result);
+	}
+
+	/**
+	 * Multiplies this matrix with a vector and adds a bias, like 
+	 * {@link #multiply(double[], double[], double[])}, but reading the vector at an offset.
+	 *
+	 * @param vector			the outputs of the sending layer, a vector of length <code>columns</code>
+	 * @param vectorOffset		the index of the first element within <code>vector</code>
+	 * @param bias				the bias of the receiving layer, a vector of length <code>rows</code>
+	 * @param result			the result, a vector of length <code>rows</code>
+	 */
+	public void multiply(double[] vector, int vectorOffset, double[] bias, double[] result) {
+
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			result[i] = KERNELS.dot(values, rowStart, vector, vectorOffset, columns) + bias[i];
+		}
+	}
+
+	/**
+	 * Multiplies this matrix with a sparse vector and adds a bias, like 
+	 * {@link #multiply(double[], double[], double[])}, but only the columns of the non-zero 
+	 * elements of the sparse vector are read.
+	 *
+	 * @param vector			a sparse vector of dimension <code>columns</code>
+	 * @param bias				the bias of the receiving layer, a vector of length <code>rows</code>
+	 * @param result			the result, a vector of length <code>rows</code>
+	 */
+	public void multiply(SparseVector vector, double[] bias, double[] result) {
+
+		int[] indices = vector.getIndices();
+		double[] vectorValues = vector.getValues();
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			double sum = 0;
+			for (int n = 0; n < indices.length; n++) {
+				sum += values[rowStart + indices[n]] * vectorValues[n];
+			}
+			result[i] = sum + bias[i];
+		}
+	}
+
+	/**
+	 * Multiplies this matrix with a number of vectors and adds a bias to each result,
+	 * <code>results[n][i] = sum(this[i][j] * vectors[n][j]) + bias[i]</code>.
+	 * This is the net input of the receiving layer for a whole mini-batch: a matrix-matrix product,
+	 * computed in tiles of rows, so each tile of weights is reused for all vectors while it is in the cache.
+	 *
+	 * @param vectors		<code>count</code> vectors of length <code>columns</code>, one after another
+	 * @param count			the number of vectors
+	 * @param bias			the bias of the receiving layer, a vector of length <code>rows</code>
+	 * @param results		the results, <code>count</code> vectors of length <code>rows</code>, one after another
+	 */
+	public void multiplyBatch(double[] vectors, int count, double[] bias, double[] results) {
+
+		multiplyBatch(vectors, 0, count, bias, results, 0);
+	}
+
+	/**
+	 * Multiplies this matrix with a number of vectors and adds a bias to each result, 
+	 * like {@link #multiplyBatch(double[], int, double[], double[])}, but reading the vectors and 
+	 * writing the results at an offset of the arrays.
+	 *
+	 * @param vectors			<code>count</code> vectors of length <code>columns</code>, one after another
+	 * @param vectorOffset		the index of the first vector element within <code>vectors</code>
+	 * @param count				the number of vectors
+	 * @param bias				the bias of the receiving layer, a vector of length <code>rows</code>
+	 * @param results			the results, <code>count</code> vectors of length <code>rows</code>, one after another
+	 * @param resultOffset		the index of the first result element within <code>results</code>
+	 */
+	public void multiplyBatch(double[] vectors, int vectorOffset, int count, double[] bias, 
+			double[] results, int resultOffset) {
+
+		int tileRows = tileRows();
+		for (int tileStart = 0; tileStart < rows; tileStart += tileRows) {
+			int tileEnd = Math.min(rows, tileStart + tileRows);
+			for (int n = 0, vectorStart = vectorOffset; n < count; n++, vectorStart += columns) {
+				int resultStart = resultOffset + n * rows;
+				int i = tileStart;
+				// four rows at a time, each element of the vector is loaded once for four dot products
+				for (; i + 3 < tileEnd; i += 4) {
+					KERNELS.dot4(values, i * columns, vectors, vectorStart, columns, results, resultStart + i);
+					results[resultStart + i] += bias[i];
+					results[resultStart + i + 1] += bias[i + 1];
+					results[resultStart + i + 2] += bias[i + 2];
+					results[resultStart + i + 3] += bias[i + 3];
+				}
+				for (; i < tileEnd; i++) {
+					results[resultStart + i] = KERNELS.dot(values, i * columns, vectors, vectorStart, columns) + bias[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Multiplies the transposed matrix with a vector, <code>result[j] = sum(this[i][j] * vector[i])</code>.
+	 * This propagates the errors of the receiving layer back to the sending layer.
+	 * The rows are accumulated one after another, so memory is still read sequentially.
+	 *
+	 * @param vector		the errors of the receiving layer, a vector of length <code>rows</code>
+	 * @param result		the result, a vector of length <code>columns</code>
+	 */
+	public void multiplyTransposed(double[] vector, double[] result) {
+
+		Arrays.fill(result, 0, columns, 0);
+		for (int i = 0, rowStart = 0; i < rows; i++, rowStart += columns) {
+			KERNELS.axpy(vector[i], values, rowStart, result, 0, columns);
+		}
+	}
+
+	/**
+	 * Multiplies the transposed matrix with a number of vectors,
+	 * <code>results[n][j] = sum(this[i][j] * vectors[n][i])</code>.
+	 * This propagates the errors of a whole mini-batch back to the sending layer, computed in tiles
+	 * of rows like {@link #multiplyBatch(double[], int, double[], double[])}.
+	 *
+	 * @param vectors		<code>count</code> vectors of length <code>rows</code>, one after another
+	 * @param count			the number of vectors
+	 * @param results		the results, <code>count</code> vectors of length <code>columns</code>, one after another
+	 */
+	public void multiplyTransposedBatch(double[] vectors, int count, double[] results) {
+
+		Arrays.fill(results, 0, count * columns, 0);
+		int tileRows = tileRows();
+		for (int tileStart = 0; tileStart < rows; tileStart += tileRows) {
+			int tileEnd = Math.min(rows, tileStart + tileRows);
+			for (int n = 0, resultStart = 0; n < count; n++, resultStart += columns) {
+				int vectorStart = n * rows;
+				int i = tileStart;
+				// four rows at a time, each element of the result is loaded and stored once for four rows
+				for (; i + 3 < tileEnd; i += 4) {
+					KERNELS.axpy4(vectors[vectorStart + i], vectors[vectorStart + i + 1], 
+							vectors[vectorStart + i + 2], vectors[vectorStart + i + 3],
+							values, i * columns, columns, results, resultStart, columns);
+				}
+				for (; i < tileEnd; i++) {
+					KERNELS.axpy(vectors[vectorStart + i], values, i * columns, results, resultStart, columns);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets a weight.
+	 *
+	 * @param row			the row (node of the receiving layer)
+	 * @param column		the column (node of the sending layer)
+	 * @param value			the weight
+	 */
+	public void set(int row, int column, double value) {
+
+		values[row * columns + column] = value;
+	}
+
+	/**
+	 * @return the number of rows of a tile in the batch operations, a multiple of four
+	 */
+	private int tileRows() {
+
+		return Math.max(4, TILE_SIZE / Math.max(1, columns) / 4 * 4);
+	}
+}
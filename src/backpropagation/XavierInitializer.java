@@ -0,0 +1,44 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package backpropagation;
+
+import java.util.*;
+import java.util.random.*;
+
+/**
+ * The Xavier (Glorot) initialization: the weights are uniformly distributed in 
+ * <code>+/- sqrt(6 / (inputs + nodes))</code>, the biases are zero. The variance of the outputs and 
+ * of the backpropagated errors of a layer stays about the same as the variance of its inputs, 
+ * for sigmoid and tanh nodes (Glorot and Bengio, 2010).
+ */
+public class XavierInitializer extends Initializer {
+
+	@Override
+	public String getName() {
+
+		return "Xavier";
+	}
+
+	@Override
+	public void initialize(Layer layer, RandomGenerator random) {
+
+		double limit = Math.sqrt(6.0 / (layer.getInputCount() + layer.getNodeCount()));
+		double[] weights = layer.getWeights().getValues();
+		fillUniform(weights, 0, weights.length, -limit, limit, random);
+		Arrays.fill(layer.getBias(), 0);
+	}
+}
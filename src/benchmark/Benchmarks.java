@@ -0,0 +1,401 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package benchmark;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import backpropagation.*;
+
+/**
+ * Benchmark suite for the time critical parts of <code>BackpropNeuralNetwork</code>:
+ * <code>forwardPass()</code>, <code>train()</code>, <code>trainRandom()</code> (the first two also of
+ * <code>FloatBackpropNeuralNetwork</code>), <code>forwardPassBatch()</code> on one thread and on a pool
+ * of all processors (an operation is one row, so the score is in rows per second, like the score of 
+ * <code>forwardPass()</code>), <code>Sigmoid.sigmoid()</code> and the methods of 
+ * <code>SigmoidActivation</code>, for a range of layer sizes from the tiny XOR network up to 4096 x 4096 nodes.
+ *
+ * <pre>
+ * Each benchmark is warmed up first (to let the JIT compiler do its work), then measured
+ * in a number of timed iterations. The throughput (operations per second) of each iteration is
+ * recorded, the result is the mean and the error (99.9% confidence interval) of these iterations.
+ * The results are printed and written to a file, to be compared between releases:
+ *
+ * 		*.json		a JSON array, one object per benchmark (like the JSON output of JMH)
+ * 		*.csv		one line per benchmark
+ *
+ * Usage:
+ *
+ * 		ant benchmark
+ * 		java -cp build benchmark.Benchmarks [-quick] [-filter text] [resultfile.json|resultfile.csv]
+ *
+ * 		-quick			short iterations, layer sizes up to 1024 only
+ * 		-filter text	run only benchmarks with a name or parameters containing the text
+ * </pre>
+ */
+public class Benchmarks {
+
+	/** the layer sizes (inputs, hidden nodes, outputs) of the benchmarks */
+	private static final int[][] LAYER_SIZES = {
+			{2, 2, 1},
+			{64, 64, 8},
+			{256, 256, 10},
+			{1024, 1024, 10},
+			{4096, 4096, 10},
+	};
+	/** the command line usage */
+	private static final String USAGE = "java -cp build benchmark.Benchmarks [-quick] [-filter text] "
+			+ "[resultfile.json|resultfile.csv]";
+	/** the largest layer size used with -quick */
+	private static final int QUICK_MAX_LAYER_SIZE = 1024;
+	/** the number of arguments of a Sigmoid benchmark operation */
+	private static final int SIGMOID_VALUES = 4096;
+	/** the number of training data sets of a trainRandom benchmark */
+	private static final int TRAINING_DATA_SETS = 256;
+	/** the number of rows of a forwardPassBatch call */
+	private static final int BATCH_ROWS = 1024;
+
+	/** the number of warm-up iterations */
+	private int warmupIterations = 5;
+	/** the number of measured iterations */
+	private int iterations = 10;
+	/** the time of an iteration in milliseconds */
+	private long iterationMillis = 500;
+	/** the largest layer size to benchmark */
+	private int maxLayerSize = Integer.MAX_VALUE;
+	/** the benchmarks to run must contain this text in their name */
+	private String filter = "";
+	/** the results */
+	private List<Result> results = new ArrayList<>();
+	/** a value depending on all computations, to prevent the JIT compiler from removing them */
+	private static volatile double sink;
+
+	/**
+	 * A benchmarked operation.
+	 */
+	@FunctionalInterface
+	private interface Operation {
+
+		/**
+		 * Runs the operation a number of times.
+		 *
+		 * @param count			the number of operations
+		 * @return a value depending on the computations
+		 */
+		double run(int count);
+	}
+
+	/**
+	 * The result of a benchmark.
+	 *
+	 * @param name			the name of the benchmark
+	 * @param params		the parameters of the benchmark
+	 * @param score			the mean throughput in operations per second
+	 * @param error			the error of the score (99.9% confidence interval)
+	 * @param min			the lowest throughput of an iteration
+	 * @param max			the highest throughput of an iteration
+	 */
+	private record Result(String name, String params, double score, double error, double min, double max) {
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args		the arguments, see the class description
+	 * @throws IOException		if the result file cannot be written
+	 * @throws IllegalArgumentException		if the arguments are invalid
+	 */
+	public Benchmarks(String[] args) throws IOException {
+
+		String resultFile = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-quick" -> {
+				warmupIterations = 3;
+				iterations = 5;
+				iterationMillis = 200;
+				maxLayerSize = QUICK_MAX_LAYER_SIZE;
+			}
+			case "-filter" -> {
+				if (++i == args.length) {
+					throw new IllegalArgumentException("-filter requires a text");
+				}
+				filter = args[i];
+			}
+			default -> resultFile = args[i];
+			}
+		}
+		System.out.println("\nBackpropagation benchmarks, Java " + System.getProperty("java.version")
+				+ ", " + Runtime.getRuntime().availableProcessors() + " processors, kernels: " + Kernels.get() + "\n");
+		System.out.println(String.format(Locale.ROOT, "%-18s %-34s %16s %14s  %s", "Benchmark", "Parameters", "Score", "Error", "Units"));
+		benchmarkSigmoid();
+		benchmarkActivations();
+		for (int[] sizes : LAYER_SIZES) {
+			if (Math.max(sizes[0], sizes[1]) <= maxLayerSize) {
+				benchmarkNetwork(sizes[0], sizes[1], sizes[2]);
+			}
+		}
+		if (resultFile != null) {
+			writeResults(Path.of(resultFile));
+			System.out.println("\nResults written to " + resultFile);
+		}
+	}
+
+	/**
+	 * Runs the benchmarks of a network.
+	 *
+	 * @param inputNodeCount		the number of inputs
+	 * @param hiddenNodeCount		the number of hidden nodes
+	 * @param outputNodeCount		the number of outputs
+	 */
+	private void benchmarkNetwork(int inputNodeCount, int hiddenNodeCount, int outputNodeCount) {
+
+		String params = "layers=" + inputNodeCount + "x" + hiddenNodeCount + "x" + outputNodeCount;
+		Random random = new Random(42);
+		double[][] trainingData = new double[TRAINING_DATA_SETS * 2][];
+		for (int i = 0; i < TRAINING_DATA_SETS; i++) {
+			trainingData[i * 2] = random.doubles(inputNodeCount).toArray();
+			trainingData[i * 2 + 1] = random.doubles(outputNodeCount).toArray();
+		}
+		double[] inputs = trainingData[0];
+		double[] desiredOutputs = trainingData[1];
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(inputNodeCount, hiddenNodeCount, outputNodeCount);
+		neuralNetwork.createInOutVectors(trainingData);
+		run("forwardPass", params, count -> {
+			double sum = 0;
+			for (int i = 0; i < count; i++) {
+				sum += neuralNetwork.forwardPass(inputs)[0];
+			}
+			return sum;
+		});
+		// batch inference: an operation is one row, the rows are computed in batches of BATCH_ROWS
+		double[] batchInputs = random.doubles((long) BATCH_ROWS * inputNodeCount).toArray();
+		double[] batchOutputs = new double[BATCH_ROWS * outputNodeCount];
+		InferenceContext context = neuralNetwork.createInferenceContext();
+		run("forwardPassBatch", params, count -> {
+			for (int done = 0; done < count; done += BATCH_ROWS) {
+				neuralNetwork.forwardPassBatch(batchInputs, batchOutputs, Math.min(BATCH_ROWS, count - done), context);
+			}
+			return batchOutputs[0];
+		});
+		ForkJoinPool pool = new ForkJoinPool();
+		InferenceContext[] contexts = new InferenceContext[pool.getParallelism()];
+		for (int i = 0; i < contexts.length; i++) {
+			contexts[i] = neuralNetwork.createInferenceContext();
+		}
+		run("forwardPassBatch", params + ",threads=" + contexts.length, count -> {
+			for (int done = 0; done < count; done += BATCH_ROWS) {
+				neuralNetwork.forwardPassBatch(batchInputs, batchOutputs, Math.min(BATCH_ROWS, count - done), 
+						pool, contexts);
+			}
+			return batchOutputs[0];
+		});
+		pool.shutdown();
+		run("train", params, count -> {
+			for (int i = 0; i < count; i++) {
+				neuralNetwork.train(inputs, desiredOutputs);
+			}
+			return neuralNetwork.getOutputErrors()[0];
+		});
+		Random trainingRandom = new Random(42);
+		run("trainRandom", params, count -> {
+			neuralNetwork.trainRandom(trainingRandom, count, 1);
+			return neuralNetwork.getOutputErrors()[0];
+		});
+		// the same network in single precision
+		FloatBackpropNeuralNetwork floatNetwork = new FloatBackpropNeuralNetwork(inputNodeCount, hiddenNodeCount, outputNodeCount);
+		float[] floatInputs = new float[inputNodeCount];
+		float[] floatDesiredOutputs = new float[outputNodeCount];
+		for (int i = 0; i < inputNodeCount; i++) {
+			floatInputs[i] = (float) inputs[i];
+		}
+		for (int i = 0; i < outputNodeCount; i++) {
+			floatDesiredOutputs[i] = (float) desiredOutputs[i];
+		}
+		run("forwardPassFloat", params, count -> {
+			double sum = 0;
+			for (int i = 0; i < count; i++) {
+				sum += floatNetwork.forwardPass(floatInputs)[0];
+			}
+			return sum;
+		});
+		run("trainFloat", params, count -> {
+			for (int i = 0; i < count; i++) {
+				floatNetwork.train(floatInputs, floatDesiredOutputs);
+			}
+			return floatNetwork.getOutputErrors()[0];
+		});
+	}
+
+	/**
+	 * Runs the benchmark of the Sigmoid function.
+	 */
+	private void benchmarkSigmoid() {
+
+		double[] arguments = new Random(42).doubles(SIGMOID_VALUES, -8, 8).toArray();
+		run("sigmoid", "values=" + SIGMOID_VALUES, count -> {
+			double sum = 0;
+			for (int i = 0; i < count; i++) {
+				for (double x : arguments) {
+					sum += Sigmoid.sigmoid(x);
+				}
+			}
+			return sum;
+		});
+	}
+
+	/**
+	 * Runs the benchmarks of the sigmoid activations, applied to a vector.
+	 */
+	private void benchmarkActivations() {
+
+		double[] arguments = new Random(42).doubles(SIGMOID_VALUES, -8, 8).toArray();
+		double[] results = new double[SIGMOID_VALUES];
+		SigmoidActivation[] activations = {
+				SigmoidActivation.table(), 
+				SigmoidActivation.interpolated(4096, -16, 16), 
+				SigmoidActivation.cubic(256, -16, 16), 
+				SigmoidActivation.exact()
+		};
+		for (SigmoidActivation activation : activations) {
+			run("activation", "sigmoid=" + activation.getMethod() + ",values=" + SIGMOID_VALUES, count -> {
+				double sum = 0;
+				for (int i = 0; i < count; i++) {
+					activation.apply(arguments, results);
+					sum += results[i % SIGMOID_VALUES];
+				}
+				return sum;
+			});
+		}
+	}
+
+	/**
+	 * Returns the number of operations taking about the time of an iteration.
+	 *
+	 * @param operation			the operation
+	 * @param iterationNanos	the time of an iteration in nanoseconds
+	 * @return the number of operations
+	 */
+	private static int calibrate(Operation operation, long iterationNanos) {
+
+		int count = 1;
+		long time;
+		while ((time = measure(operation, count)) < iterationNanos / 10 && count < Integer.MAX_VALUE / 2) {
+			count *= 2;
+		}
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (double) count * iterationNanos / time));
+	}
+
+	/**
+	 * Measures the time of a number of operations.
+	 *
+	 * @param operation		the operation
+	 * @param count			the number of operations
+	 * @return the time in nanoseconds
+	 */
+	private static long measure(Operation operation, int count) {
+
+		long start = System.nanoTime();
+		sink += operation.run(count);
+		return Math.max(1, System.nanoTime() - start);
+	}
+
+	/**
+	 * Runs a benchmark, if it is not filtered out, and records its result.
+	 *
+	 * @param name			the name of the benchmark
+	 * @param params		the parameters of the benchmark
+	 * @param operation		the benchmarked operation
+	 */
+	private void run(String name, String params, Operation operation) {
+
+		if (!(name + " " + params).contains(filter)) {
+			return;
+		}
+		long iterationNanos = iterationMillis * 1_000_000;
+		// warm up for a fixed time (not a fixed number of operations, the code gets faster while
+		// it is compiled), then calibrate the number of operations of an iteration again
+		int count = calibrate(operation, iterationNanos);
+		long warmupEnd = System.nanoTime() + warmupIterations * iterationNanos;
+		while (System.nanoTime() < warmupEnd) {
+			measure(operation, count);
+		}
+		count = calibrate(operation, iterationNanos);
+		double[] scores = new double[iterations];
+		for (int i = 0; i < iterations; i++) {
+			scores[i] = count * 1e9 / measure(operation, count);
+		}
+		double mean = Arrays.stream(scores).average().orElse(0);
+		double variance = Arrays.stream(scores).map(score -> (score - mean) * (score - mean)).sum()
+				/ Math.max(1, iterations - 1);
+		// 99.9% confidence interval, normal approximation
+		double error = 3.291 * Math.sqrt(variance / iterations);
+		Result result = new Result(name, params, mean, error,
+				Arrays.stream(scores).min().orElse(0), Arrays.stream(scores).max().orElse(0));
+		results.add(result);
+		System.out.println(String.format(Locale.ROOT, "%-18s %-34s %16.3f +- %11.3f  ops/s", name, params, mean, error));
+	}
+
+	/**
+	 * Writes the results to a file, as JSON or CSV depending on the file name extension.
+	 *
+	 * @param path		the file
+	 * @throws IOException		if the file cannot be written
+	 */
+	private void writeResults(Path path) throws IOException {
+
+		StringBuilder builder = new StringBuilder();
+		if (path.toString().endsWith(".csv")) {
+			builder.append("Benchmark,Parameters,Mode,Score,Error,Min,Max,Unit\n");
+			for (Result result : results) {
+				builder.append(String.format(Locale.ROOT, "%s,%s,thrpt,%.6f,%.6f,%.6f,%.6f,ops/s%n",
+						result.name(), result.params(), result.score(), result.error(), result.min(), result.max()));
+			}
+		} else {
+			builder.append("[\n");
+			for (int i = 0; i < results.size(); i++) {
+				Result result = results.get(i);
+				builder.append(String.format(Locale.ROOT,
+						"    {\"benchmark\": \"%s\", \"params\": \"%s\", \"mode\": \"thrpt\", \"version\": \"%s\", \"kernels\": \"%s\", "
+						+ "\"primaryMetric\": {\"score\": %.6f, \"scoreError\": %.6f, \"min\": %.6f, \"max\": %.6f, "
+						+ "\"scoreUnit\": \"ops/s\"}}%s\n",
+						result.name(), result.params(), BackpropNeuralNetwork.VERSION, Kernels.get().getName(), result.score(),
+						result.error(), result.min(), result.max(), i < results.size() - 1 ? "," : ""));
+			}
+			builder.append("]\n");
+		}
+		Files.writeString(path, builder.toString());
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args		the arguments, see the class description
+	 * @throws IOException		if the result file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+
+		try {
+			new Benchmarks(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage() + "\nUsage: " + USAGE);
+			System.exit(2);
+		}
+	}
+}
@@ -10,4 +10,9 @@
  * @see "backpropagation.BackpropNeuralNetwork or one of the test programs for further information"
  */
 module Backpropagation {
+	
+	// optional: the SIMD kernels are used if the module is added to the JVM (--add-modules jdk.incubator.vector)
+	requires static jdk.incubator.vector;
+	// the training metrics as a JMX MBean
+	requires java.management;
 }
\ No newline at end of file
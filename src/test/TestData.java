@@ -0,0 +1,76 @@
+/**
+ * Copyright 2023 Heinz Silberbauer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+/**
+ * The training data of the testers: random points in the unit square and their desired outputs,
+ * stored like <code>TesterXOR.trainingData</code> (input and desired output vectors alternating).
+ */
+final class TestData {
+
+	/** the number of classes of the ring data */
+	static final int RING_CLASSES = 3;
+
+	/**
+	 * Not instantiated.
+	 */
+	private TestData() {
+	}
+
+	/**
+	 * Creates random points classified by a circle (output 1 inside, 0 outside).
+	 * The points are the same for each call.
+	 *
+	 * @param count		the number of points
+	 * @return the data sets: input and desired output vectors
+	 */
+	static double[][] circle(int count) {
+
+		Random random = new Random(7);
+		double[][] data = new double[2 * count][];
+		for (int i = 0; i < count; i++) {
+			double x = random.nextDouble();
+			double y = random.nextDouble();
+			data[2 * i] = new double[] { x, y };
+			data[2 * i + 1] = new double[] { Math.hypot(x - 0.5, y - 0.5) < 0.3 ? 1 : 0 };
+		}
+		return data;
+	}
+
+	/**
+	 * Creates random points classified by two circles around the center: class 0 inside the inner circle,
+	 * class 1 between the circles and class 2 outside (one output per class, 1 for the class of a point).
+	 *
+	 * @param random	the random numbers of the points, so training and test data can be drawn one after another
+	 * @param count		the number of points
+	 * @return the data sets: input and desired output vectors
+	 */
+	static double[][] rings(Random random, int count) {
+
+		double[][] data = new double[2 * count][];
+		for (int i = 0; i < count; i++) {
+			double x = random.nextDouble();
+			double y = random.nextDouble();
+			double distance = Math.hypot(x - 0.5, y - 0.5);
+			data[2 * i] = new double[] { x, y };
+			data[2 * i + 1] = new double[RING_CLASSES];
+			data[2 * i + 1][distance < 0.2 ? 0 : distance < 0.4 ? 1 : 2] = 1;
+		}
+		return data;
+	}
+}
@@ -0,0 +1,112 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Measures the accuracy and the speed of the sigmoid activations (see <code>SigmoidActivation</code>):
+ * the maximum absolute error against <code>1 / (1 + Math.exp(-x))</code> for values in [-20, 20],
+ * and the time to compute a vector of 1024 values, using the kernels in use (see <code>Kernels</code>).
+ */
+public class TesterActivation {
+
+	/** the number of values to measure the error */
+	private static final int ERROR_VALUES = 10_000_000;
+	/** the number of values of a vector to measure the speed */
+	private static final int VECTOR_SIZE = 1024;
+	/** the time to measure the speed of an activation, in nanoseconds */
+	private static final long MEASURE_NANOS = 1_000_000_000L;
+
+	/**
+	 * Runs <code>TesterActivation</code>.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		SigmoidActivation[] activations = {
+				SigmoidActivation.table(),
+				SigmoidActivation.interpolated(4096, -16, 16),
+				SigmoidActivation.cubic(256, -16, 16),
+				SigmoidActivation.exact()
+		};
+		System.out.println("\nSigmoid activations, kernels: " + Kernels.get() + "\n");
+		System.out.println(String.format("%-45s %12s %12s", "Activation", "max. error", "ns/value"));
+		for (SigmoidActivation activation : activations) {
+			System.out.println(String.format(Locale.ROOT, "%-45s %12.1e %12.2f", 
+					activation, maxError(activation), nanosPerValue(activation)));
+		}
+	}
+
+	/**
+	 * Returns the maximum absolute error of an activation, for evenly spaced values in [-20, 20].
+	 *
+	 * @param activation		the activation
+	 * @return the maximum absolute error
+	 */
+	private static double maxError(Activation activation) {
+
+		double[] values = new double[ERROR_VALUES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = -20 + 40.0 * i / (values.length - 1);
+		}
+		double[] results = new double[ERROR_VALUES];
+		activation.apply(values, results);
+		double maxError = 0;
+		for (int i = 0; i < values.length; i++) {
+			maxError = Math.max(maxError, Math.abs(results[i] - 1 / (1 + Math.exp(-values[i]))));
+		}
+		return maxError;
+	}
+
+	/**
+	 * Returns the time to compute a value, applying an activation to vectors of random values.
+	 *
+	 * @param activation		the activation
+	 * @return the time per value in nanoseconds
+	 */
+	private static double nanosPerValue(Activation activation) {
+
+		double[] values = new Random(42).doubles(VECTOR_SIZE, -8, 8).toArray();
+		double[] results = new double[VECTOR_SIZE];
+		double sum = 0;
+		long count = 0;
+		// warm-up, then measure
+		for (int pass = 0; pass < 2; pass++) {
+			count = 0;
+			long start = System.nanoTime();
+			while (System.nanoTime() - start < MEASURE_NANOS) {
+				for (int i = 0; i < 100; i++) {
+					activation.apply(values, results);
+					sum += results[i];
+				}
+				count += 100;
+			}
+			if (pass == 1) {
+				long nanos = System.nanoTime() - start;
+				if (sum == 0) {
+					System.out.println();		// keeps the results alive
+				}
+				return (double) nanos / count / VECTOR_SIZE;
+			}
+		}
+		return 0;
+	}
+}
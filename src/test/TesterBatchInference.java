@@ -0,0 +1,104 @@
+/**
+ * Copyright 2023 Heinz Silberbauer
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import backpropagation.*;
+
+/**
+ * Batch inference: the outputs of <code>forwardPassBatch()</code> on one thread, on a pool of threads
+ * and of the <code>double[][]</code> variant are compared to <code>forwardPass()</code> of each row,
+ * then the throughput in rows per second is displayed. The batch inference sums up the products of
+ * a row in the same order, so the outputs differ at most by rounding.
+ */
+public class TesterBatchInference {
+
+	/** the maximum difference of an output of the batch inference and <code>forwardPass()</code> */
+	private static final double TOLERANCE = 1e-12;
+	/** the number of rows */
+	private static final int ROWS = 1000;
+
+	/**
+	 * Runs <code>TesterBatchInference</code>.
+	 *
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		boolean passed = true;
+		ForkJoinPool pool = new ForkJoinPool(4);
+		InferenceContext[] contexts = new InferenceContext[pool.getParallelism()];
+		for (int[] layerNodeCounts : new int[][] { { 2, 2, 1 }, { 64, 64, 8 }, { 256, 128, 64, 10 } }) {
+			BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(layerNodeCounts, 0.1, new Random(42));
+			int inputCount = neuralNetwork.getInputNodeCount();
+			int outputCount = neuralNetwork.getOutputNodeCount();
+			double[] inputs = new Random(7).doubles((long) ROWS * inputCount, -1, 1).toArray();
+			double[][] inputVectors = new double[ROWS][];
+			double[][] expected = new double[ROWS][];
+			for (int i = 0; i < ROWS; i++) {
+				inputVectors[i] = Arrays.copyOfRange(inputs, i * inputCount, (i + 1) * inputCount);
+				expected[i] = neuralNetwork.forwardPass(inputVectors[i]).clone();
+			}
+			for (int i = 0; i < contexts.length; i++) {
+				contexts[i] = neuralNetwork.createInferenceContext();
+			}
+			InferenceContext context = contexts[0];
+			double[] outputs = new double[ROWS * outputCount];
+			double[] poolOutputs = new double[ROWS * outputCount];
+			double[][] outputVectors = new double[ROWS][outputCount];
+			neuralNetwork.forwardPassBatch(inputs, outputs, ROWS, context);
+			neuralNetwork.forwardPassBatch(inputs, poolOutputs, ROWS, pool, contexts);
+			neuralNetwork.forwardPassBatch(inputVectors, outputVectors, context);
+			double maxDifference = 0;
+			for (int i = 0; i < ROWS; i++) {
+				for (int j = 0; j < outputCount; j++) {
+					maxDifference = Math.max(maxDifference, Math.abs(outputs[i * outputCount + j] - expected[i][j]));
+					maxDifference = Math.max(maxDifference, Math.abs(poolOutputs[i * outputCount + j] - expected[i][j]));
+					maxDifference = Math.max(maxDifference, Math.abs(outputVectors[i][j] - expected[i][j]));
+				}
+			}
+			passed &= maxDifference <= TOLERANCE;
+			System.out.println("\n***** Network " + Arrays.toString(layerNodeCounts) + ", " + ROWS + " rows *****\n");
+			System.out.println("maximum difference to forwardPass(): " + maxDifference);
+			// throughput, the last round is measured
+			long forwardPassNanos = 0;
+			long batchNanos = 0;
+			long poolNanos = 0;
+			for (int round = 0; round < 20; round++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < ROWS; i++) {
+					neuralNetwork.forwardPass(inputVectors[i], context);
+				}
+				long middle = System.nanoTime();
+				neuralNetwork.forwardPassBatch(inputs, outputs, ROWS, context);
+				long end = System.nanoTime();
+				neuralNetwork.forwardPassBatch(inputs, poolOutputs, ROWS, pool, contexts);
+				forwardPassNanos = middle - start;
+				batchNanos = end - middle;
+				poolNanos = System.nanoTime() - end;
+			}
+			System.out.printf("rows/s: forwardPass %.0f, forwardPassBatch %.0f, %d threads %.0f%n",
+					ROWS * 1e9 / forwardPassNanos, ROWS * 1e9 / batchNanos, contexts.length, ROWS * 1e9 / poolNanos);
+		}
+		pool.shutdown();
+		System.out.println("\nParity (tolerance " + TOLERANCE + "): " + (passed ? "passed" : "FAILED"));
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: a classification tester comparing the activations of the layers. Points of 
+ * the unit square are classified into three classes by two circles around the center, 
+ * the desired outputs are one-hot vectors. Each network is trained with the same data
+ * and number of steps, the accuracy is measured on other points.
+ */
+public class TesterClassification {
+
+	/** the number of classes */
+	private static final int CLASSES = TestData.RING_CLASSES;
+	/** the random numbers of the points */
+	private final Random random = new Random(7);
+	/** the training data: input and desired output vectors */
+	private final double[][] trainingData = TestData.rings(random, 2000);
+	/** the test data: input and desired output vectors */
+	private final double[][] testData = TestData.rings(random, 1000);
+
+	/**
+	 * Construct the tester, train the networks and display the accuracy of each network.
+	 */
+	public TesterClassification() {
+
+		int trainings = 200000;
+		System.out.println("***** Three classes, network 2-16-3, " + trainings + " training steps *****\n");
+		test("sigmoid / sigmoid", new SigmoidActivation[0], null, 0.3, trainings);
+		test("tanh / softmax", new Activation[] { new TanhActivation() }, new SoftmaxActivation(), 0.01, trainings);
+		test("ReLU / softmax", new Activation[] { new ReluActivation() }, new SoftmaxActivation(), 0.05, trainings);
+		test("leaky ReLU / softmax", new Activation[] { ReluActivation.leaky(0.01) }, new SoftmaxActivation(), 
+				0.05, trainings);
+	}
+
+	/**
+	 * Returns the index of the largest output, the class of a classification.
+	 *
+	 * @param outputs		the outputs
+	 * @return the class
+	 */
+	private static int maxIndex(double[] outputs) {
+
+		int index = 0;
+		for (int i = 1; i < outputs.length; i++) {
+			if (outputs[i] > outputs[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Trains a network and displays its accuracy.
+	 *
+	 * @param name					the name of the test
+	 * @param hiddenActivations		the activation of the hidden layer, none for the default
+	 * @param outputActivation		the activation of the output layer, null for the default
+	 * @param learningRate			the learning rate
+	 * @param trainings				the number of training steps
+	 */
+	private void test(String name, Activation[] hiddenActivations, Activation outputActivation, 
+			double learningRate, int trainings) {
+
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 16, CLASSES }, 
+				learningRate, new Random(42));
+		for (int l = 0; l < hiddenActivations.length; l++) {
+			neuralNetwork.setActivation(l, hiddenActivations[l]);
+		}
+		if (outputActivation != null) {
+			neuralNetwork.setActivation(neuralNetwork.getLayerCount() - 1, outputActivation);
+		}
+		neuralNetwork.createInOutVectors(trainingData);
+		long start = System.nanoTime();
+		neuralNetwork.trainRandom(trainings, 1);
+		long time = System.nanoTime() - start;
+		int correct = 0;
+		for (int i = 0; i < testData.length; i += 2) {
+			if (maxIndex(neuralNetwork.forwardPass(testData[i])) == maxIndex(testData[i + 1])) {
+				correct++;
+			}
+		}
+		System.out.printf("%-22s accuracy %5.1f %%   (%d ms)%n", name, 200.0 * correct / testData.length, 
+				time / 1000000);
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterClassification();
+	}
+}
@@ -0,0 +1,85 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: an epoch trainer tester. Instead of guessing the number of trainings, 
+ * the networks are trained epoch by epoch until a target loss is reached or the loss 
+ * of the validation data sets does not improve anymore.
+ */
+public class TesterEpochTrainer {
+
+	/**
+	 * Construct the tester, train the networks and display the results.
+	 */
+	public TesterEpochTrainer() {
+
+		// XOR: all four data sets are needed for training, no validation split
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 2, 1 }, 0.3, new Random(42));
+		neuralNetwork.createInOutVectors(TesterXOR.trainingData);
+		EpochTrainer trainer = new EpochTrainer(neuralNetwork, 0);
+		trainer.setTargetLoss(0.001);
+		long start = System.nanoTime();
+		trainer.train(new Random(1), 1000000);
+		System.out.println("***** XOR, target loss 0.001 *****\n");
+		display(trainer, System.nanoTime() - start);
+		for (int i = 0; i < TesterXOR.trainingData.length; i += 2) {
+			System.out.println(Arrays.toString(TesterXOR.trainingData[i]) + " -> " 
+					+ Arrays.toString(neuralNetwork.forwardPass(TesterXOR.trainingData[i])));
+		}
+		// a circle: 20% of the data sets for validation, stop if the validation loss does not improve
+		neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 16, 1 }, 0.01, new Random(42));
+		neuralNetwork.setOptimizer(new AdamOptimizer());
+		neuralNetwork.createInOutVectors(TestData.circle(2000));
+		trainer = new EpochTrainer(neuralNetwork, 0.2);
+		trainer.setBatchSize(16);
+		trainer.setPatience(20);
+		trainer.setMinDelta(1e-5);
+		start = System.nanoTime();
+		trainer.train(new Random(1), 10000);
+		System.out.println("\n***** Circle, 2000 data sets (20% validation), Adam, mini-batches of 16, patience 20 *****\n");
+		display(trainer, System.nanoTime() - start);
+	}
+
+	/**
+	 * Displays the result of a training.
+	 *
+	 * @param trainer		the trainer
+	 * @param time			the time of the training in nanoseconds
+	 */
+	private static void display(EpochTrainer trainer, long time) {
+
+		System.out.printf("stopped: %s after %d epochs (%d ms), best loss %.6f in epoch %d, "
+				+ "last training loss %.6f, validation loss %.6f%n", trainer.getStopReason(), trainer.getEpoch(), 
+				time / 1000000, trainer.getBestLoss(), trainer.getBestEpoch(), trainer.getTrainingLoss(), 
+				trainer.getValidationLoss());
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterEpochTrainer();
+	}
+}
@@ -0,0 +1,118 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Accuracy parity of <code>FloatBackpropNeuralNetwork</code> and <code>BackpropNeuralNetwork</code>:
+ * both networks are trained the same way on the data of <code>TesterSimpleNumbers</code> and
+ * <code>TesterXOR</code>, and the outputs are compared. Both networks start with the same
+ * (rounded) weights and train the same data sets in the same order. Both networks use the sigmoid
+ * table of <code>Sigmoid</code> (the double precision network explicitly <code>SigmoidActivation.table()</code>),
+ * so the outputs differ only by rounding and the lower resolution of the single precision sigmoid.
+ */
+public class TesterFloatParity {
+
+	/** the maximum difference of an output of the two networks */
+	private static final double TOLERANCE = 1e-3;
+
+	/**
+	 * Runs <code>TesterFloatParity</code>.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		boolean passed = true;
+		// TesterSimpleNumbers: one data set, 200 training steps
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(2, 3, 1);
+		neuralNetwork.setActivation(SigmoidActivation.table());
+		FloatBackpropNeuralNetwork floatNetwork = new FloatBackpropNeuralNetwork(2, 3, 1);
+		double[] input = {0.1, 0.4};
+		double[] desiredOutput = {0.7};
+		neuralNetwork.trainDataSet(input, desiredOutput, 200);
+		floatNetwork.trainDataSet(toFloat(input), toFloat(desiredOutput), 200);
+		System.out.println("\n***** TesterSimpleNumbers: 200 training steps *****");
+		passed &= compare(neuralNetwork, floatNetwork, new double[][] {input});
+		// TesterXOR: 20000 trainings of 10 steps each, with the default and a higher learning rate
+		for (float learningRate : new float[] {BackpropNeuralNetwork.DEFAULT_LEARNING_RATE, 0.3f}) {
+			neuralNetwork = new BackpropNeuralNetwork(2, 2, 1);
+			neuralNetwork.setActivation(SigmoidActivation.table());
+			neuralNetwork.setLearningRate(learningRate);
+			neuralNetwork.createInOutVectors(TesterXOR.trainingData);
+			neuralNetwork.trainRandom(20000, 10);
+			floatNetwork = new FloatBackpropNeuralNetwork(2, 2, 1);
+			floatNetwork.setLearningRate(learningRate);
+			floatNetwork.createInOutVectors(TesterXOR.trainingData);
+			floatNetwork.trainRandom(20000, 10);
+			System.out.println("\n***** TesterXOR (learning rate " + learningRate 
+					+ "): 20000 trainings (each 10 steps) *****");
+			double[][] inputs = new double[TesterXOR.trainingData.length / 2][];
+			for (int i = 0; i < inputs.length; i++) {
+				inputs[i] = TesterXOR.trainingData[i * 2];
+			}
+			passed &= compare(neuralNetwork, floatNetwork, inputs);
+		}
+		System.out.println("\nParity (tolerance " + TOLERANCE + "): " + (passed ? "passed" : "FAILED"));
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Displays and compares the outputs of both networks.
+	 * 
+	 * @param neuralNetwork		the double precision network
+	 * @param floatNetwork		the single precision network
+	 * @param inputs			the input vectors
+	 * @return true if all outputs are within the tolerance
+	 */
+	private static boolean compare(BackpropNeuralNetwork neuralNetwork, FloatBackpropNeuralNetwork floatNetwork, 
+			double[][] inputs) {
+
+		double maxDifference = 0;
+		for (double[] input : inputs) {
+			double[] outputs = neuralNetwork.forwardPass(input);
+			float[] floatOutputs = floatNetwork.forwardPass(toFloat(input));
+			System.out.println("Input: " + Arrays.toString(input) + "  double: " + Arrays.toString(outputs) 
+					+ "  float: " + Arrays.toString(floatOutputs));
+			for (int i = 0; i < outputs.length; i++) {
+				maxDifference = Math.max(maxDifference, Math.abs(outputs[i] - floatOutputs[i]));
+			}
+		}
+		System.out.println("Maximum difference: " + maxDifference);
+		return maxDifference <= TOLERANCE;
+	}
+
+	/**
+	 * Rounds a vector to single precision.
+	 * 
+	 * @param vector		the vector
+	 * @return the rounded vector
+	 */
+	private static float[] toFloat(double[] vector) {
+
+		float[] result = new float[vector.length];
+		for (int i = 0; i < vector.length; i++) {
+			result[i] = (float) vector[i];
+		}
+		return result;
+	}
+}
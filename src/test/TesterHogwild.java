@@ -0,0 +1,99 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: an asynchronous (Hogwild) training tester. Equal networks are trained with the same
+ * number of steps, single-threaded by <code>trainRandom()</code> and by a <code>HogwildTrainer</code> with
+ * a growing number of threads. The losses after the training show the convergence, the steps per second 
+ * show the scaling of the throughput, which is limited by the number of cores of the machine.
+ */
+public class TesterHogwild {
+
+	/** the number of training steps of each network */
+	private static final int TRAININGS = 400000;
+
+	/**
+	 * Construct the tester, train the networks and display the results.
+	 */
+	public TesterHogwild() {
+
+		double[][] data = TestData.circle(2000);
+		System.out.println("***** Circle, 2000 data sets, 2-32-1, " + TRAININGS + " steps, " 
+				+ Runtime.getRuntime().availableProcessors() + " cores *****\n");
+		// warm up the JIT compiler, so the first measurement is not penalized
+		createNetwork(data).trainRandom(new Random(1), TRAININGS, 1);
+		BackpropNeuralNetwork neuralNetwork = createNetwork(data);
+		long start = System.nanoTime();
+		neuralNetwork.trainRandom(new Random(1), TRAININGS, 1);
+		display("trainRandom", neuralNetwork, data, System.nanoTime() - start);
+		for (int threads = 1; threads <= 8; threads *= 2) {
+			neuralNetwork = createNetwork(data);
+			try (HogwildTrainer trainer = new HogwildTrainer(neuralNetwork, threads)) {
+				start = System.nanoTime();
+				trainer.trainRandom(new Random(1), TRAININGS);
+				display("Hogwild, " + threads + " threads", neuralNetwork, data, System.nanoTime() - start);
+			}
+		}
+	}
+
+	/**
+	 * Creates a network for the data sets.
+	 *
+	 * @param data		the data sets: input and desired output vectors
+	 * @return the network
+	 */
+	private static BackpropNeuralNetwork createNetwork(double[][] data) {
+
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 32, 1 }, 0.5, new Random(42));
+		neuralNetwork.createInOutVectors(data);
+		return neuralNetwork;
+	}
+
+	/**
+	 * Displays the result of a training: the mean squared error of all data sets and the throughput.
+	 *
+	 * @param name				the name of the training
+	 * @param neuralNetwork		the trained network
+	 * @param data				the data sets: input and desired output vectors
+	 * @param time				the time of the training in nanoseconds
+	 */
+	private static void display(String name, BackpropNeuralNetwork neuralNetwork, double[][] data, long time) {
+
+		double sum = 0;
+		for (int i = 0; i < data.length; i += 2) {
+			double difference = neuralNetwork.forwardPass(data[i])[0] - data[i + 1][0];
+			sum += difference * difference;
+		}
+		System.out.printf("%-20s loss %.6f, %5d ms, %8.0f steps/s%n", name, sum / (data.length / 2), 
+				time / 1000000, TRAININGS * 1e9 / time);
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterHogwild();
+	}
+}
@@ -0,0 +1,91 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: a hyperparameter sweep tester. Instead of trying the settings of <code>TesterXOR</code> 
+ * one after another, a grid of hidden layers, learning rates, steps per data set and seeds is trained
+ * concurrently by a <code>HyperparameterSweep</code>, cancelling clearly losing candidates. 
+ * The same grid without cancelling shows the training budget saved.
+ */
+public class TesterHyperparameterSweep {
+
+	/** the number of randomly chosen data sets of each candidate */
+	private static final int TRAININGS = 20000;
+
+	/**
+	 * Construct the tester, run the sweeps and display the results.
+	 */
+	public TesterHyperparameterSweep() {
+
+		TrainingData trainingData = TrainingData.of(TesterXOR.trainingData);
+		List<HyperparameterSweep.Candidate> candidates = HyperparameterSweep.grid(
+				new int[][] { { 2 }, { 3 }, { 4 } }, new double[] { 0.05, 0.3, 0.9 }, new int[] { 1, 10 }, 
+				new long[] { 42, 7 });
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		System.out.println("***** XOR, " + candidates.size() + " candidates, " + TRAININGS + " trainings each, " 
+				+ threads + " threads *****\n");
+		try (HyperparameterSweep sweep = new HyperparameterSweep(trainingData, threads)) {
+			// warm up the JIT compiler, so the first measurement is not penalized
+			sweep.run(candidates, TRAININGS);
+			long start = System.nanoTime();
+			List<HyperparameterSweep.Result> results = sweep.run(candidates, TRAININGS);
+			long time = System.nanoTime() - start;
+			for (HyperparameterSweep.Result result : results) {
+				System.out.println(result);
+			}
+			display("with cancelling", results, time);
+			sweep.setCancelFactor(Double.POSITIVE_INFINITY);
+			start = System.nanoTime();
+			results = sweep.run(candidates, TRAININGS);
+			display("without cancelling", results, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Displays a summary of a sweep.
+	 *
+	 * @param name			the name of the sweep
+	 * @param results		the results of the sweep
+	 * @param time			the time of the sweep in nanoseconds
+	 */
+	private static void display(String name, List<HyperparameterSweep.Result> results, long time) {
+
+		long trainings = 0;
+		int cancelled = 0;
+		for (HyperparameterSweep.Result result : results) {
+			trainings += (long) result.getTrainings() * result.getCandidate().getStepsPerSet();
+			cancelled += result.isCancelled() ? 1 : 0;
+		}
+		System.out.printf("%n%s: %d ms, %d training steps, %d candidates cancelled, best loss %.6f%n", name, 
+				time / 1000000, trainings, cancelled, results.get(0).getLoss());
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterHyperparameterSweep();
+	}
+}
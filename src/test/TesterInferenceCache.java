@@ -0,0 +1,100 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: an inference cache tester. A network with 16 binary inputs is used with 
+ * a few hundred distinct input vectors (like a truth table), repeated many times. The time of 
+ * the inference with and without an <code>InferenceCache</code> is compared, and the training of 
+ * an XOR network shows the invalidation of the cache.
+ */
+public class TesterInferenceCache {
+
+	/** the number of inferences of each measurement */
+	private static final int INFERENCES = 200000;
+
+	/**
+	 * Construct the tester, run the inferences and display the results.
+	 */
+	public TesterInferenceCache() {
+
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 16, 512, 256, 4 }, 0.1, 
+				new Random(42));
+		// 256 distinct vectors: the lower 8 bits vary, the upper 8 bits are fixed
+		double[][] inputs = new double[256][16];
+		for (int i = 0; i < inputs.length; i++) {
+			for (int bit = 0; bit < 8; bit++) {
+				inputs[i][bit] = (i >> bit) & 1;
+			}
+			inputs[i][12] = 1;
+		}
+		InferenceCache cache = new InferenceCache(neuralNetwork, 1000);
+		Random random = new Random(7);
+		int[] order = random.ints(INFERENCES, 0, inputs.length).toArray();
+		System.out.println("***** Network 16-512-256-4, " + inputs.length + " distinct input vectors, " 
+				+ INFERENCES + " inferences *****\n");
+		double maxDifference = 0;
+		for (int round = 1; round <= 3; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < INFERENCES; i++) {
+				neuralNetwork.forwardPass(inputs[order[i]]);
+			}
+			long middle = System.nanoTime();
+			for (int i = 0; i < INFERENCES; i++) {
+				cache.forwardPass(inputs[order[i]]);
+			}
+			long end = System.nanoTime();
+			System.out.printf("round %d: forwardPass %6.2f us, cache %6.2f us per inference%n", round, 
+					(middle - start) / 1000.0 / INFERENCES, (end - middle) / 1000.0 / INFERENCES);
+		}
+		for (double[] input : inputs) {
+			double[] outputs = neuralNetwork.forwardPass(input);
+			double[] cachedOutputs = cache.forwardPass(input);
+			for (int j = 0; j < outputs.length; j++) {
+				maxDifference = Math.max(maxDifference, Math.abs(outputs[j] - cachedOutputs[j]));
+			}
+		}
+		System.out.println("\n" + cache + ", maximum difference of the outputs: " + maxDifference);
+		// training changes the weights, the next inference clears the cache: XOR
+		neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 2, 1 }, 0.3, new Random(42));
+		neuralNetwork.createInOutVectors(TesterXOR.trainingData);
+		neuralNetwork.trainRandom(new Random(1), 10000, 1);
+		cache = new InferenceCache(neuralNetwork, 4);
+		double[] inputs01 = { 0, 1 };
+		double before = cache.forwardPass(inputs01)[0];
+		double cached = cache.forwardPass(inputs01)[0];
+		neuralNetwork.trainRandom(new Random(1), 10000, 1);
+		double after = cache.forwardPass(inputs01)[0];
+		System.out.printf("%nXOR [0, 1]: %.6f, cached %.6f, after 10000 more training steps %.6f%n", before, cached, 
+				after);
+		System.out.println(cache);
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterInferenceCache();
+	}
+}
@@ -0,0 +1,135 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: an initializer tester. The time to construct a large network is compared between the
+ * default initialization (one <code>java.util.Random</code> number per weight) and the initializers,
+ * the same seed is shown to give the same weights, and networks with two hidden layers are trained
+ * after the default initialization and after a scaled initialization (Xavier for tanh, He for ReLU).
+ */
+public class TesterInitializers {
+
+	/** the number of classes */
+	private static final int CLASSES = TestData.RING_CLASSES;
+	/** the random numbers of the points */
+	private final Random random = new Random(7);
+
+	/**
+	 * Construct the tester, create and train the networks and display the results.
+	 */
+	public TesterInitializers() {
+
+		int[] layerNodeCounts = { 2048, 2048, 2048, 10 };
+		System.out.println("***** Construction of a network " + Arrays.toString(layerNodeCounts) + " *****\n");
+		for (int round = 1; round <= 3; round++) {
+			long start = System.nanoTime();
+			new BackpropNeuralNetwork(layerNodeCounts, 0.1, new Random(42));
+			long legacy = System.nanoTime() - start;
+			start = System.nanoTime();
+			new BackpropNeuralNetwork(layerNodeCounts, 0.1, UniformInitializer.DEFAULT, 42);
+			long uniform = System.nanoTime() - start;
+			start = System.nanoTime();
+			new BackpropNeuralNetwork(layerNodeCounts, 0.1, new HeInitializer(), 42);
+			long he = System.nanoTime() - start;
+			System.out.printf("round %d: Random %4d ms, uniform initializer %4d ms, He initializer %4d ms%n", round, 
+					legacy / 1000000, uniform / 1000000, he / 1000000);
+		}
+		int[] smallNodeCounts = { 16, 32, 4 };
+		BackpropNeuralNetwork first = new BackpropNeuralNetwork(smallNodeCounts, 0.1, new XavierInitializer(), 42);
+		BackpropNeuralNetwork second = new BackpropNeuralNetwork(smallNodeCounts, 0.1, new XavierInitializer(), 42);
+		BackpropNeuralNetwork other = new BackpropNeuralNetwork(smallNodeCounts, 0.1, new XavierInitializer(), 43);
+		System.out.println("\nseed 42 twice: same weights " + sameWeights(first, second) + ", seed 43: same weights " 
+				+ sameWeights(first, other));
+		// training: three classes, two hidden layers
+		double[][] trainingData = TestData.rings(random, 2000);
+		double[][] testData = TestData.rings(random, 1000);
+		int trainings = 100000;
+		System.out.println("\n***** Three classes, network 2-32-32-3, " + trainings + " training steps *****\n");
+		test("tanh / softmax, uniform", new TanhActivation(), UniformInitializer.DEFAULT, trainingData, testData, 
+				trainings);
+		test("tanh / softmax, Xavier", new TanhActivation(), new XavierInitializer(), trainingData, testData, 
+				trainings);
+		test("ReLU / softmax, uniform", new ReluActivation(), UniformInitializer.DEFAULT, trainingData, testData, 
+				trainings);
+		test("ReLU / softmax, He", new ReluActivation(), new HeInitializer(), trainingData, testData, trainings);
+	}
+
+	/**
+	 * Returns true if two networks have the same weights and biases.
+	 *
+	 * @param first			the first network
+	 * @param second		the second network
+	 * @return true if the weights and biases are the same
+	 */
+	private static boolean sameWeights(BackpropNeuralNetwork first, BackpropNeuralNetwork second) {
+
+		for (int l = 0; l < first.getLayerCount(); l++) {
+			if (!Arrays.equals(first.getLayer(l).getWeights().getValues(), second.getLayer(l).getWeights().getValues()) 
+					|| !Arrays.equals(first.getLayer(l).getBias(), second.getLayer(l).getBias())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Trains a network and displays its accuracy on the test data.
+	 *
+	 * @param name				the name of the test
+	 * @param hidden			the activation of the hidden layers
+	 * @param initializer		the initializer of the weights and biases
+	 * @param trainingData		the training data
+	 * @param testData			the test data
+	 * @param trainings			the number of training steps
+	 */
+	private static void test(String name, Activation hidden, Initializer initializer, double[][] trainingData, 
+			double[][] testData, int trainings) {
+
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 32, 32, CLASSES }, 0.01, 
+				initializer, 42);
+		neuralNetwork.setActivation(0, hidden);
+		neuralNetwork.setActivation(1, hidden);
+		neuralNetwork.setActivation(2, new SoftmaxActivation());
+		neuralNetwork.createInOutVectors(trainingData);
+		neuralNetwork.trainRandom(trainings, 1);
+		int correct = 0;
+		for (int i = 0; i < testData.length; i += 2) {
+			double[] outputs = neuralNetwork.forwardPass(testData[i]);
+			int best = 0;
+			for (int j = 1; j < outputs.length; j++) {
+				best = outputs[j] > outputs[best] ? j : best;
+			}
+			correct += testData[i + 1][best] == 1 ? 1 : 0;
+		}
+		System.out.printf("%-26s accuracy %.1f%%%n", name, 200.0 * correct / testData.length);
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterInitializers();
+	}
+}
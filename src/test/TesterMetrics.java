@@ -0,0 +1,93 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: a tester of the training metrics. A network is trained for some epochs 
+ * of online training and of mini-batch training, a listener displays the metrics of each epoch. 
+ * The metrics are also registered as a JMX MBean (see jconsole, backpropagation:type=TrainingMetrics).
+ * Finally the time of the same training with and without metrics is displayed.
+ */
+public class TesterMetrics {
+
+	/** the number of data sets */
+	private static final int DATA_SETS = 5000;
+	/** the training data: input and desired output vectors */
+	private final double[][] trainingData = TestData.circle(DATA_SETS);
+
+	/**
+	 * Construct the tester, train the networks and display the metrics.
+	 */
+	public TesterMetrics() {
+
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 16, 1 }, 1, new Random(42));
+		neuralNetwork.createInOutVectors(trainingData);
+		TrainingMetrics metrics = neuralNetwork.getMetrics();
+		TrainingListener listener = m -> System.out.println(m);
+		metrics.addListener(listener);
+		try {
+			metrics.registerMBean("TesterMetrics");
+		} catch (Exception e) {
+			System.out.println("The MBean is not registered: " + e);
+		}
+		metrics.setEnabled(true);
+		System.out.println("***** Online training, 5 epochs of " + DATA_SETS + " data sets *****\n");
+		neuralNetwork.trainRandom(5 * DATA_SETS, 1);
+		System.out.println("\n***** Adam, mini-batches of 32, 10 epochs *****\n");
+		neuralNetwork.setOptimizer(new AdamOptimizer());
+		neuralNetwork.setLearningRate(0.02);
+		neuralNetwork.trainMiniBatch(new Random(1), 32, 10 * ((DATA_SETS + 31) / 32));
+		System.out.println("\n***** The overhead of the metrics *****\n");
+		metrics.removeListener(listener);
+		for (int i = 0; i < 5; i++) {
+			metrics.setEnabled(false);
+			long time = time(neuralNetwork);
+			metrics.setEnabled(true);
+			long timeMetrics = time(neuralNetwork);
+			System.out.printf("online training of %d data sets: %d ms, with metrics %d ms%n", 20 * DATA_SETS, 
+					time / 1000000, timeMetrics / 1000000);
+		}
+	}
+
+	/**
+	 * Returns the time of an online training of 20 epochs.
+	 *
+	 * @param neuralNetwork		the network
+	 * @return the time in nanoseconds
+	 */
+	private static long time(BackpropNeuralNetwork neuralNetwork) {
+
+		neuralNetwork.setOptimizer(new SgdOptimizer());
+		long start = System.nanoTime();
+		neuralNetwork.trainRandom(20 * DATA_SETS, 1);
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterMetrics();
+	}
+}
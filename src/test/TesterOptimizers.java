@@ -0,0 +1,104 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: an optimizer tester, counting the mini-batches each optimizer needs 
+ * to train a network to a target error. The data sets are points of the unit square 
+ * classified by a circle (output 1 inside, 0 outside), all networks start with the same weights.
+ */
+public class TesterOptimizers {
+
+	/** the mean squared error to reach */
+	private static final double TARGET_ERROR = 0.02;
+	/** the maximum number of mini-batches */
+	private static final int MAX_BATCHES = 100000;
+	/** the number of data sets of a mini-batch */
+	private static final int BATCH_SIZE = 16;
+	/** the training data: input and desired output vectors */
+	private final double[][] trainingData = TestData.circle(500);
+
+	/**
+	 * Construct the tester, train the networks and display the number of mini-batches of each optimizer.
+	 */
+	public TesterOptimizers() {
+
+		System.out.println("***** Network 2-16-1, mini-batches of " + BATCH_SIZE + ", batches to a mean squared error of "
+				+ TARGET_ERROR + " *****\n");
+		test(new SgdOptimizer(), 1);
+		test(new MomentumOptimizer(), 0.1);
+		test(new MomentumOptimizer(0.9, true), 0.1);
+		test(new RmsPropOptimizer(), 0.01);
+		test(new AdamOptimizer(), 0.01);
+	}
+
+	/**
+	 * Returns the mean squared error of a network for the training data.
+	 *
+	 * @param neuralNetwork		the network
+	 * @return the error
+	 */
+	private double meanSquaredError(BackpropNeuralNetwork neuralNetwork) {
+
+		double sum = 0;
+		for (int i = 0; i < trainingData.length; i += 2) {
+			double difference = neuralNetwork.forwardPass(trainingData[i])[0] - trainingData[i + 1][0];
+			sum += difference * difference;
+		}
+		return sum / (trainingData.length / 2);
+	}
+
+	/**
+	 * Trains a network until the target error is reached and displays the number of mini-batches.
+	 *
+	 * @param optimizer			the optimizer
+	 * @param learningRate		the learning rate
+	 */
+	private void test(Optimizer optimizer, double learningRate) {
+
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 16, 1 }, learningRate, 
+				new Random(42));
+		neuralNetwork.setOptimizer(optimizer);
+		neuralNetwork.createInOutVectors(trainingData);
+		Random random = new Random(1);
+		long start = System.nanoTime();
+		int batches = 0;
+		double error = meanSquaredError(neuralNetwork);
+		while (error > TARGET_ERROR && batches < MAX_BATCHES) {
+			neuralNetwork.trainMiniBatch(random, BATCH_SIZE, 100);
+			batches += 100;
+			error = meanSquaredError(neuralNetwork);
+		}
+		long time = System.nanoTime() - start;
+		System.out.printf("%-36s learning rate %-5s %7d batches   error %.4f   (%d ms)%n", optimizer, learningRate, 
+				batches, error, time / 1000000);
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterOptimizers();
+	}
+}
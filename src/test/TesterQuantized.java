@@ -0,0 +1,136 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: a quantization tester. A classifier is trained and quantized to 8 bit integer weights,
+ * the accuracy and the outputs of both models are compared on test data. Then the memory of the weights 
+ * and the throughput of the inference of a large network are compared to its quantized model.
+ * If the vector module is available, the vector kernels must have been selected, also on platforms
+ * with 128 bit vectors (ant vectorcheck runs this tester with -XX:MaxVectorSize=16).
+ */
+public class TesterQuantized {
+
+	/** the number of classes */
+	private static final int CLASSES = TestData.RING_CLASSES;
+	/** the random numbers of the points */
+	private final Random random = new Random(7);
+
+	/**
+	 * Construct the tester, train and quantize the networks and display the results.
+	 */
+	public TesterQuantized() {
+
+		System.out.println("kernels: " + Kernels.get() + "\n");
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() 
+				&& !"scalar".equals(System.getProperty(Kernels.PROPERTY))
+				&& !Kernels.get().getName().startsWith("vector")) {
+			throw new IllegalStateException("the vector kernels are not available, kernels: " + Kernels.get());
+		}
+		// accuracy: the three classes of TesterClassification
+		BackpropNeuralNetwork neuralNetwork = new BackpropNeuralNetwork(new int[] { 2, 16, CLASSES }, 0.05, 
+				new Random(42));
+		neuralNetwork.setActivation(0, new ReluActivation());
+		neuralNetwork.setActivation(1, new SoftmaxActivation());
+		neuralNetwork.createInOutVectors(TestData.rings(random, 2000));
+		neuralNetwork.trainRandom(new Random(1), 200000, 1);
+		QuantizedNeuralNetwork model = neuralNetwork.quantize();
+		double[][] testData = TestData.rings(random, 1000);
+		int correct = 0;
+		int quantizedCorrect = 0;
+		int agreements = 0;
+		double maxDifference = 0;
+		for (int i = 0; i < testData.length; i += 2) {
+			double[] outputs = neuralNetwork.forwardPass(testData[i]);
+			double[] quantizedOutputs = model.forwardPass(testData[i]);
+			int expected = maxIndex(testData[i + 1]);
+			correct += maxIndex(outputs) == expected ? 1 : 0;
+			quantizedCorrect += maxIndex(quantizedOutputs) == expected ? 1 : 0;
+			agreements += maxIndex(outputs) == maxIndex(quantizedOutputs) ? 1 : 0;
+			for (int j = 0; j < outputs.length; j++) {
+				maxDifference = Math.max(maxDifference, Math.abs(outputs[j] - quantizedOutputs[j]));
+			}
+		}
+		int count = testData.length / 2;
+		System.out.println("***** Three classes, network 2-16-3, ReLU / softmax *****\n");
+		System.out.printf("accuracy: double %.1f%%, int8 %.1f%% (delta %+.1f%%), same class %.1f%%, "
+				+ "maximum difference of the outputs %.4f%n", 100.0 * correct / count, 100.0 * quantizedCorrect / count, 
+				100.0 * (quantizedCorrect - correct) / count, 100.0 * agreements / count, maxDifference);
+		// memory and throughput of a large network
+		int[] layerNodeCounts = { 1024, 1024, 512, 10 };
+		neuralNetwork = new BackpropNeuralNetwork(layerNodeCounts, 0.1, new Random(42));
+		neuralNetwork.setActivation(new TanhActivation());
+		model = neuralNetwork.quantize();
+		long bytes = 0;
+		for (int i = 1; i < layerNodeCounts.length; i++) {
+			bytes += (long) Double.BYTES * (layerNodeCounts[i - 1] + 1) * layerNodeCounts[i];
+		}
+		System.out.println("\n***** Network " + Arrays.toString(layerNodeCounts) + " *****\n");
+		System.out.printf("parameters: double %d KB, int8 %d KB (%.1fx less)%n", bytes / 1024, 
+				model.getParameterBytes() / 1024, (double) bytes / model.getParameterBytes());
+		double[][] inputs = new double[100][];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = random.doubles(layerNodeCounts[0], -1, 1).toArray();
+		}
+		InferenceContext context = neuralNetwork.createInferenceContext();
+		QuantizedNeuralNetwork.Context quantizedContext = model.createContext();
+		for (int round = 1; round <= 3; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < 2000; i++) {
+				neuralNetwork.forwardPass(inputs[i % inputs.length], context);
+			}
+			long middle = System.nanoTime();
+			for (int i = 0; i < 2000; i++) {
+				model.forwardPass(inputs[i % inputs.length], quantizedContext);
+			}
+			long end = System.nanoTime();
+			System.out.printf("round %d: double %7.0f rows/s, int8 %7.0f rows/s%n", round, 2000 * 1e9 / (middle - start), 
+					2000 * 1e9 / (end - middle));
+		}
+	}
+
+	/**
+	 * Returns the index of the largest value.
+	 *
+	 * @param values		the values
+	 * @return the index of the largest value
+	 */
+	private static int maxIndex(double[] values) {
+
+		int index = 0;
+		for (int i = 1; i < values.length; i++) {
+			if (values[i] > values[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterQuantized();
+	}
+}
@@ -0,0 +1,101 @@
+
+/**
+ * Copyright 2023 Heinz Silberbauer
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *     
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.*;
+
+import backpropagation.*;
+
+/**
+ * Neural network: a sparse input tester. Two equal networks with 100000 inputs are trained 
+ * with the same mostly-zero input vectors (1% non-zero), one of them with dense and the other one 
+ * with sparse input vectors. The outputs of both networks are compared, and the time of the training 
+ * and inference of each representation is displayed.
+ */
+public class TesterSparse {
+
+	/** the number of inputs */
+	private static final int INPUTS = 100000;
+	/** the number of non-zero inputs of a data set */
+	private static final int NON_ZEROS = 1000;
+	/** the number of data sets */
+	private static final int DATA_SETS = 200;
+
+	/**
+	 * Construct the tester, train the networks and display the results.
+	 */
+	public TesterSparse() {
+
+		Random random = new Random(7);
+		SparseVector[] sparseInputs = new SparseVector[DATA_SETS];
+		double[][] denseInputs = new double[DATA_SETS][];
+		double[][] desiredOutputs = new double[DATA_SETS][];
+		for (int i = 0; i < DATA_SETS; i++) {
+			// choose the non-zero inputs, sorted by index
+			int[] indices = random.ints(0, INPUTS).distinct().limit(NON_ZEROS).sorted().toArray();
+			// small values, so the sum of about 1000 weighted inputs does not saturate the sigmoid
+			double[] values = random.doubles(NON_ZEROS, 0, 0.01).toArray();
+			sparseInputs[i] = new SparseVector(INPUTS, indices, values);
+			denseInputs[i] = sparseInputs[i].toArray();
+			desiredOutputs[i] = new double[] { i % 2, 1 - i % 2 };
+		}
+		BackpropNeuralNetwork dense = new BackpropNeuralNetwork(new int[] { INPUTS, 64, 2 }, 0.01, new Random(42));
+		BackpropNeuralNetwork sparse = new BackpropNeuralNetwork(new int[] { INPUTS, 64, 2 }, 0.01, new Random(42));
+		System.out.println("***** " + INPUTS + " inputs (" + NON_ZEROS + " non-zero), 64 hidden nodes, 2 outputs *****\n");
+		for (int epoch = 1; epoch <= 5; epoch++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < DATA_SETS; i++) {
+				dense.train(denseInputs[i], desiredOutputs[i]);
+			}
+			long denseTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < DATA_SETS; i++) {
+				sparse.train(sparseInputs[i], desiredOutputs[i]);
+			}
+			long sparseTime = System.nanoTime() - start;
+			System.out.printf("epoch %d training: dense %7.1f us, sparse %6.1f us per data set%n", epoch, 
+					denseTime / 1000.0 / DATA_SETS, sparseTime / 1000.0 / DATA_SETS);
+		}
+		double maxDifference = 0;
+		long denseTime = 0;
+		long sparseTime = 0;
+		for (int i = 0; i < DATA_SETS; i++) {
+			long start = System.nanoTime();
+			double[] denseOutputs = dense.forwardPass(denseInputs[i]).clone();
+			long middle = System.nanoTime();
+			double[] sparseOutputs = sparse.forwardPass(sparseInputs[i]);
+			sparseTime += System.nanoTime() - middle;
+			denseTime += middle - start;
+			for (int j = 0; j < denseOutputs.length; j++) {
+				maxDifference = Math.max(maxDifference, Math.abs(denseOutputs[j] - sparseOutputs[j]));
+			}
+		}
+		System.out.printf("%ninference: dense %.1f us, sparse %.1f us per data set%n", denseTime / 1000.0 / DATA_SETS,
+				sparseTime / 1000.0 / DATA_SETS);
+		System.out.println("maximum difference of the outputs: " + maxDifference);
+	}
+
+	/**
+	 * Runs the test.
+	 * 
+	 * @param args		the arguments
+	 */
+	public static void main(String[] args) {
+
+		new TesterSparse();
+	}
+}